@@ -0,0 +1,23 @@
+-- One-off migration for databases created before postcodes were stored as smallint (the column was a
+-- zero-padded VARCHAR). schema.sql does not run it: the ALTER rewrites the whole table and rebuilds its indexes
+-- under an ACCESS EXCLUSIVE lock, which must not happen as a side effect of an application restart.
+--
+-- Run it once by hand, with the application stopped, before deploying a version that maps postcode as smallint:
+--
+--   psql -h <host> -U <user> -d battery_db -f db/migrations/postcode-to-smallint.sql
+--
+-- Every stored postcode must be numeric; the statement fails and changes nothing otherwise. Running it again
+-- after the column has been converted does nothing.
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1
+               FROM information_schema.columns
+               WHERE table_schema = current_schema()
+                 AND table_name = 'battery'
+                 AND column_name = 'postcode'
+                 AND data_type <> 'smallint') THEN
+        ALTER TABLE battery ALTER COLUMN postcode TYPE SMALLINT USING postcode::smallint;
+    END IF;
+END
+$$;
@@ -0,0 +1,110 @@
+package com.example.battery_api;
+
+import com.example.battery_api.dto.BatteryRequestDTO;
+import com.example.battery_api.model.Battery;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmark datasets shaped like test-dataset.json: the same name stems (the part before the numeric suffix), and
+ * postcodes and capacities drawn from the ranges the file covers. Generation is seeded, so every fork and every run
+ * sees the same data.
+ *
+ * The file is read from the working directory (the project root under exec:exec); -Dbenchmark.dataset=path
+ * points elsewhere.
+ */
+public final class BatteryDatasets {
+    private static final String DATASET = System.getProperty("benchmark.dataset", "test-dataset.json");
+
+    private final List<String> nameStems = new ArrayList<>();
+    private final int minPostcode;
+    private final int maxPostcode;
+    private final int minCapacity;
+    private final int maxCapacity;
+
+    private BatteryDatasets(List<Map<String, Object>> entries) {
+        int minPostcode = Integer.MAX_VALUE;
+        int maxPostcode = Integer.MIN_VALUE;
+        int minCapacity = Integer.MAX_VALUE;
+        int maxCapacity = Integer.MIN_VALUE;
+        for (Map<String, Object> entry : entries) {
+            String name = String.valueOf(entry.get("name"));
+            int separator = name.lastIndexOf('_');
+            String stem = separator > 0 ? name.substring(0, separator) : name;
+            if (!stem.isBlank() && !nameStems.contains(stem)) {
+                nameStems.add(stem);
+            }
+            int postcode = Integer.parseInt(String.valueOf(entry.get("postcode")));
+            int capacity = ((Number) entry.get("wattCapacity")).intValue();
+            minPostcode = Math.min(minPostcode, postcode);
+            maxPostcode = Math.max(maxPostcode, postcode);
+            minCapacity = Math.min(minCapacity, capacity);
+            maxCapacity = Math.max(maxCapacity, capacity);
+        }
+        this.minPostcode = minPostcode;
+        this.maxPostcode = maxPostcode;
+        this.minCapacity = minCapacity;
+        this.maxCapacity = maxCapacity;
+    }
+
+    public static BatteryDatasets load() {
+        File file = new File(DATASET);
+        try {
+            return new BatteryDatasets(new ObjectMapper().readValue(file, new TypeReference<>() {
+            }));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read the benchmark dataset " + file.getAbsolutePath()
+                    + "; run from the project root or pass -Dbenchmark.dataset", ex);
+        }
+    }
+
+    /**
+     * Upload entries as a client sends them. Every round(1 / invalidRatio)-th entry breaks one constraint, cycling
+     * through a blank name, a short postcode and an out-of-range capacity, so invalid entries go through the full
+     * Bean Validation engine.
+     */
+    public List<BatteryRequestDTO> requests(int size, double invalidRatio, long seed) {
+        Random random = new Random(seed);
+        int invalidEvery = invalidRatio > 0 ? (int) Math.round(1 / invalidRatio) : 0;
+        List<BatteryRequestDTO> requests = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = nameStems.get(random.nextInt(nameStems.size())) + "_" + random.nextInt(1000);
+            String postcode = String.format("%04d", minPostcode + random.nextInt(maxPostcode - minPostcode + 1));
+            int capacity = minCapacity + random.nextInt(maxCapacity - minCapacity + 1);
+            if (invalidEvery > 0 && i % invalidEvery == invalidEvery - 1) {
+                switch ((i / invalidEvery) % 3) {
+                    case 0 -> name = " ";
+                    case 1 -> postcode = postcode.substring(2);
+                    default -> capacity = 0;
+                }
+            }
+            requests.add(new BatteryRequestDTO(name, postcode, capacity));
+        }
+        return requests;
+    }
+
+    /**
+     * Valid batteries as the consumers persist them, with ids assigned.
+     */
+    public List<Battery> batteries(int size, long seed) {
+        List<Battery> batteries = new ArrayList<>(size);
+        long id = 1;
+        for (BatteryRequestDTO request : requests(size, 0, seed)) {
+            Battery battery = new Battery();
+            battery.setId(id++);
+            battery.setName(request.getName());
+            battery.setPostcode(request.getPostcode());
+            battery.setWattCapacity(request.getWattCapacity());
+            batteries.add(battery);
+        }
+        return batteries;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.battery_api.controller;
+
+import com.example.battery_api.BatteryDatasets;
+import com.example.battery_api.dto.BatteryRequestDTO;
+import com.example.battery_api.dto.BatterySaveResponseDTO;
+import com.example.battery_api.model.Battery;
+import com.example.battery_api.service.BatteryMapper;
+import com.example.battery_api.service.BatteryRequestValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Building and writing the synchronous POST /api/batteries response for an upload whose entries have already been
+ * validated and mapped: the typed records written by a Blackbird-enabled ObjectMapper (the current response), the
+ * same records with plain reflection, and the previous response of response DTOs copied into a HashMap per
+ * battery. Scores are per entry; the gc profiler's gc.alloc.rate.norm is the bytes allocated per entry.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="BatterySaveResponseBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatterySaveResponseBenchmark {
+    private static final int UPLOAD_SIZE = 1000;
+
+    // Share of invalid entries in the upload
+    @Param({"0", "0.1"})
+    private double invalidRatio;
+
+    private final BatteryMapper mapper = new BatteryMapper();
+    private final ObjectMapper reflection = new ObjectMapper();
+    private final ObjectMapper blackbird = new ObjectMapper().registerModule(new BlackbirdModule());
+    // Discards the body; unlike OutputStream.nullOutputStream() it stays writable after the mapper closes it
+    private final OutputStream body = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private List<BatteryRequestDTO> upload;
+    // Per entry: its validation errors, or null and its entity
+    private Map<String, List<String>>[] errors;
+    private Battery[] entities;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        upload = BatteryDatasets.load().requests(UPLOAD_SIZE, invalidRatio, 42);
+        errors = new Map[UPLOAD_SIZE];
+        entities = new Battery[UPLOAD_SIZE];
+        try (ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory()) {
+            BatteryRequestValidator validator = new BatteryRequestValidator(validatorFactory.getValidator());
+            for (int i = 0; i < UPLOAD_SIZE; i++) {
+                Map<String, List<String>> entryErrors = validator.validate(upload.get(i));
+                if (entryErrors.isEmpty()) {
+                    entities[i] = mapper.toEntity(upload.get(i));
+                } else {
+                    errors[i] = entryErrors;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPLOAD_SIZE)
+    public void recordsBlackbird() throws IOException {
+        blackbird.writeValue(body, records());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPLOAD_SIZE)
+    public void recordsReflection() throws IOException {
+        reflection.writeValue(body, records());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPLOAD_SIZE)
+    public void mapsReflection() throws IOException {
+        reflection.writeValue(body, maps());
+    }
+
+    private BatterySaveResponseDTO records() {
+        List<Battery> validBatteries = new ArrayList<>(UPLOAD_SIZE);
+        List<BatterySaveResponseDTO.InvalidEntry> invalidEntries = new ArrayList<>();
+        for (int i = 0; i < UPLOAD_SIZE; i++) {
+            if (errors[i] == null) {
+                validBatteries.add(entities[i]);
+            } else {
+                invalidEntries.add(new BatterySaveResponseDTO.InvalidEntry(i, upload.get(i), errors[i]));
+            }
+        }
+        return new BatterySaveResponseDTO(mapper.toSavedBatteries(validBatteries), invalidEntries, new ArrayList<>(),
+                validBatteries.size());
+    }
+
+    // The response as BatteryController built it before the typed records
+    private Map<String, Object> maps() {
+        List<Battery> validBatteries = new ArrayList<>();
+        List<Map<String, Object>> invalidEntries = new ArrayList<>();
+        for (int i = 0; i < UPLOAD_SIZE; i++) {
+            if (errors[i] == null) {
+                validBatteries.add(entities[i]);
+            } else {
+                Map<String, Object> errorEntry = new HashMap<>();
+                errorEntry.put("index", i);
+                errorEntry.put("data", upload.get(i));
+                errorEntry.put("errors", errors[i]);
+                invalidEntries.add(errorEntry);
+            }
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("savedBatteriesCount", validBatteries.size());
+        response.put("savedBatteries", mapper.toDTOList(validBatteries).stream()
+                .map(dto -> {
+                    Map<String, Object> batteryMap = new HashMap<>();
+                    batteryMap.put("name", dto.getName());
+                    batteryMap.put("postcode", dto.getPostcode());
+                    batteryMap.put("wattCapacity", dto.getWattCapacity());
+                    return batteryMap;
+                })
+                .collect(Collectors.toList()));
+        response.put("invalidEntries", invalidEntries);
+        response.put("duplicateEntries", new ArrayList<>());
+        return response;
+    }
+}
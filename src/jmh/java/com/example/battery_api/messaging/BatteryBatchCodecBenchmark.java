@@ -0,0 +1,68 @@
+package com.example.battery_api.messaging;
+
+import com.example.battery_api.BatteryDatasets;
+import com.example.battery_api.config.MessageBrokerConfig;
+import com.example.battery_api.model.Battery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode throughput of a battery batch message through the converter {@link MessageBrokerConfig} registers:
+ * the binary codec versus the Java serialization it falls back to with battery.messaging.binary-encoding=false.
+ * Batches are generated from the shape of test-dataset.json. Bytes per battery for each format are printed once
+ * per trial.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="BatteryBatchCodecBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatteryBatchCodecBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int batchSize;
+
+    @Param({"binary", "java"})
+    private String format;
+
+    private MessageConverter converter;
+    private List<Battery> batteries;
+    private Message encoded;
+
+    @Setup
+    public void setUp() {
+        converter = new MessageBrokerConfig().converter("binary".equals(format));
+        batteries = BatteryDatasets.load().batteries(batchSize, 42);
+        encoded = converter.toMessage(batteries, new MessageProperties());
+        System.out.printf("%n[%s, batchSize=%d] %.1f bytes per battery%n",
+                format, batchSize, encoded.getBody().length / (double) batchSize);
+    }
+
+    @Benchmark
+    public Message encode() {
+        return converter.toMessage(batteries, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object decode() {
+        return converter.fromMessage(encoded);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.BatteryDatasets;
+import com.example.battery_api.dto.BatteryRequestDTO;
+import com.example.battery_api.dto.BatteryResponseDTO;
+import com.example.battery_api.model.Battery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BatteryMapper} on an upload-sized batch: request DTOs to entities, and entities back to the response
+ * DTOs the synchronous upload returns. Scores are per battery.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="BatteryMapperBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatteryMapperBenchmark {
+    private static final int BATCH_SIZE = 1000;
+
+    private final BatteryMapper mapper = new BatteryMapper();
+    private List<BatteryRequestDTO> requests;
+    private List<Battery> batteries;
+
+    @Setup
+    public void setUp() {
+        BatteryDatasets datasets = BatteryDatasets.load();
+        requests = datasets.requests(BATCH_SIZE, 0, 42);
+        batteries = datasets.batteries(BATCH_SIZE, 42);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void toEntity(Blackhole blackhole) {
+        for (BatteryRequestDTO request : requests) {
+            blackhole.consume(mapper.toEntity(request));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<BatteryResponseDTO> toDTOList() {
+        return mapper.toDTOList(batteries);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.battery_api.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of /with-range statistics answered by the in-memory range index: one random rectangle query, and one
+ * incremental update as applied after a committed save.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="BatteryRangeIndexBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class BatteryRangeIndexBenchmark {
+    private static final int QUERIES = 1024;
+
+    private BatteryRangeIndex index;
+    private int[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int[] cellCounts = BatteryRangeIndex.newCellCounts();
+        for (int i = 0; i < 1_000_000; i++) {
+            cellCounts[BatteryRangeIndex.cell(200 + random.nextInt(9800), 1 + random.nextInt(1000))]++;
+        }
+        index = new BatteryRangeIndex();
+        index.load(cellCounts);
+
+        queries = new int[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            int p1 = 200 + random.nextInt(9800);
+            int c1 = 1 + random.nextInt(1000);
+            queries[i] = new int[]{p1, p1 + random.nextInt(10000 - p1), c1, c1 + random.nextInt(1001 - c1)};
+        }
+    }
+
+    @Benchmark
+    public BatteryRangeIndex.Totals query() {
+        int[] q = queries[next++ & (QUERIES - 1)];
+        return index.query(q[0], q[1], q[2], q[3]);
+    }
+
+    @Benchmark
+    public void add() {
+        int[] q = queries[next++ & (QUERIES - 1)];
+        index.add(q[0], q[2], 1);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.BatteryDatasets;
+import com.example.battery_api.model.Battery;
+import com.example.battery_api.repository.BatteryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-JVM part of a /with-range request (includeNames=false): {@link BatteryService#getBatteryRangeSummary}
+ * answered from the summary cache, or, with the cache off, computed from the range index over a million batteries
+ * generated from the shape of test-dataset.json. The database is never reached; the repository fails if it is.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="BatteryRangeSummaryBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class BatteryRangeSummaryBenchmark {
+    private static final int BATTERIES = 1_000_000;
+    // Distinct ranges requested; fewer than the cache holds, so every cached lookup is a hit
+    private static final int RANGES = 256;
+
+    @Param({"cache-hit", "index"})
+    private String path;
+
+    private BatteryService batteryService;
+    private String[][] ranges;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        BatteryRangeIndex index = new BatteryRangeIndex();
+        int[] cellCounts = BatteryRangeIndex.newCellCounts();
+        for (Battery battery : BatteryDatasets.load().batteries(BATTERIES, 42)) {
+            cellCounts[BatteryRangeIndex.cell(Integer.parseInt(battery.getPostcode()), battery.getWattCapacity())]++;
+        }
+        index.load(cellCounts);
+
+        BatteryRangeIndexService indexService = new BatteryRangeIndexService(null, null, true) {
+            @Override
+            public Optional<BatteryRangeIndex.Totals> query(int startPostcode, int endPostcode, int minCapacity,
+                                                            int maxCapacity) {
+                return Optional.of(index.query(startPostcode, endPostcode, minCapacity, maxCapacity));
+            }
+        };
+        BatteryRepository repository = (BatteryRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{BatteryRepository.class}, (proxy, method, args) -> {
+                    throw new IllegalStateException("The benchmark must not reach the repository: " + method.getName());
+                });
+        BatteryRangeCache cache = new BatteryRangeCache(new SimpleMeterRegistry(), "cache-hit".equals(path),
+                1000, 3_600_000, 500_000);
+        batteryService = new BatteryService(repository, null, null, null, null, indexService, event -> {
+        }, cache, null, null, new BatteryIngestMetrics(new SimpleMeterRegistry()), null);
+
+        Random random = new Random(42);
+        ranges = new String[RANGES][];
+        for (int i = 0; i < RANGES; i++) {
+            int start = 200 + random.nextInt(9800);
+            ranges[i] = new String[]{String.format("%04d", start),
+                    String.format("%04d", start + random.nextInt(10000 - start))};
+            // Warm the cache with every range
+            batteryService.getBatteryRangeSummary(ranges[i][0], ranges[i][1], null, null, false);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> summary() {
+        String[] range = ranges[next++ & (RANGES - 1)];
+        return batteryService.getBatteryRangeSummary(range[0], range[1], null, null, false);
+    }
+}
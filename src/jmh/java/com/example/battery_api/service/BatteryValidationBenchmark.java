@@ -0,0 +1,71 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.BatteryDatasets;
+import com.example.battery_api.dto.BatteryRequestDTO;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-entry validation as POST /api/batteries does it: every entry of an upload goes through
+ * {@link BatteryRequestValidator}, valid ones take the hand-written fast path and invalid ones the full Bean
+ * Validation engine. Scores are per entry.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="BatteryValidationBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatteryValidationBenchmark {
+    private static final int UPLOAD_SIZE = 1000;
+
+    // Share of invalid entries in the upload
+    @Param({"0", "0.1"})
+    private double invalidRatio;
+
+    private ValidatorFactory validatorFactory;
+    private BatteryRequestValidator validator;
+    private List<BatteryRequestDTO> upload;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = new BatteryRequestValidator(validatorFactory.getValidator());
+        upload = BatteryDatasets.load().requests(UPLOAD_SIZE, invalidRatio, 42);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPLOAD_SIZE)
+    public int validate() {
+        int valid = 0;
+        for (BatteryRequestDTO request : upload) {
+            if (validator.validate(request).isEmpty()) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+}
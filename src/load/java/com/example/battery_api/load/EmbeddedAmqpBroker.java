@@ -0,0 +1,94 @@
+package com.example.battery_api.load;
+
+import org.apache.qpid.server.SystemLauncher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * In-process AMQP 0-9-1 broker (Apache Qpid Broker-J) with an in-memory virtual host, standing in for RabbitMQ.
+ * Spring AMQP talks to it over a real socket with the same client and the same protocol, so publishing, prefetch,
+ * acks and redelivery behave as they would against RabbitMQ; only the broker's own storage is in memory.
+ */
+final class EmbeddedAmqpBroker implements AutoCloseable {
+    static final String USERNAME = "guest";
+    static final String PASSWORD = "guest";
+
+    private static final String CONFIG = """
+            {
+              "name": "load-broker",
+              "modelVersion": "8.0",
+              "authenticationproviders": [{
+                "name": "plain",
+                "type": "Plain",
+                "secureOnlyMechanisms": [],
+                "users": [{"name": "%s", "type": "managed", "password": "%s"}]
+              }],
+              "ports": [{
+                "name": "AMQP",
+                "port": "${qpid.amqp_port}",
+                "protocols": ["AMQP_0_9_1"],
+                "authenticationProvider": "plain",
+                "virtualhostaliases": [
+                  {"name": "nameAlias", "type": "nameAlias"},
+                  {"name": "defaultAlias", "type": "defaultAlias"}
+                ]
+              }],
+              "virtualhostnodes": [{
+                "name": "default",
+                "type": "Memory",
+                "defaultVirtualHostNode": "true",
+                "virtualHostInitialConfiguration": "{\\"type\\": \\"Memory\\"}"
+              }]
+            }
+            """.formatted(USERNAME, PASSWORD);
+
+    private final SystemLauncher launcher = new SystemLauncher();
+    private final Path workDir;
+    private final int port;
+
+    EmbeddedAmqpBroker() throws Exception {
+        workDir = Files.createTempDirectory("load-broker");
+        Path config = workDir.resolve("config.json");
+        Files.writeString(config, CONFIG, StandardCharsets.UTF_8);
+        port = freePort();
+
+        Map<String, String> context = new HashMap<>();
+        context.put("qpid.amqp_port", String.valueOf(port));
+        context.put("qpid.work_dir", workDir.toString());
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("type", "Memory");
+        attributes.put("initialConfigurationLocation", config.toUri().toString());
+        attributes.put("startupLoggedToSystemOut", false);
+        attributes.put("context", context);
+        launcher.startup(attributes);
+    }
+
+    int port() {
+        return port;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() {
+        launcher.shutdown();
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.battery_api.load;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+
+/**
+ * The PostgreSQL the application runs against during a load run: an embedded server started in a temporary
+ * directory, or an existing database when --postgres-url is given.
+ *
+ * PostgreSQL refuses to run as root, so under root (e.g. in a container) point the harness at a local database.
+ */
+final class LoadDatabase implements AutoCloseable {
+    private final EmbeddedPostgres embedded;
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private LoadDatabase(EmbeddedPostgres embedded, String url, String username, String password) {
+        this.embedded = embedded;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    static LoadDatabase external(String url, String username, String password) {
+        return new LoadDatabase(null, url, username, password);
+    }
+
+    static LoadDatabase embedded() throws IOException {
+        if ("root".equals(System.getProperty("user.name"))) {
+            throw new IllegalStateException("Embedded PostgreSQL cannot run as root; pass --postgres-url, "
+                    + "--postgres-username and --postgres-password to use a local database instead");
+        }
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        // Same driver options as application.properties
+        return new LoadDatabase(postgres, postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true",
+                "postgres", "postgres");
+    }
+
+    String url() {
+        return url;
+    }
+
+    String username() {
+        return username;
+    }
+
+    String password() {
+        return password;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (embedded != null) {
+            embedded.close();
+        }
+    }
+}
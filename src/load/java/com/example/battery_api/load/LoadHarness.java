@@ -0,0 +1,342 @@
+package com.example.battery_api.load;
+
+import com.example.battery_api.BatteryApiApplication;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * End-to-end load and soak harness. Starts the application against an embedded AMQP broker
+ * ({@link EmbeddedAmqpBroker}) and an embedded or local PostgreSQL ({@link LoadDatabase}), then drives a mix of
+ * POST /api/batteries uploads and /with-range queries built by {@link SyntheticBatteries} from closed-loop
+ * clients.
+ *
+ * run  (default): warmup, a measured phase, then a drain until the consumers have persisted every posted battery.
+ *                 Prints throughput and p50/p99/p999/max for POST, /with-range and end-to-end persist lag.
+ * soak:           the same load for hours; every report interval prints a line and appends a row to
+ *                 target/load/soak-<timestamp>.csv with rates, p99s, heap, old generation after GC, GC count
+ *                 and time, and the persist backlog, so leaks and GC drift show up as trends.
+ *
+ * Clients are closed-loop: a client waits for each response before sending the next request, so when the
+ * application stalls the harness sends less and latency percentiles understate what an open-loop client
+ * population would see (coordinated omission). Compare throughput alongside the percentiles.
+ *
+ * mvn -Pload test-compile exec:exec -Dload.args="--duration=60 --clients=32 --post-share=0.2"
+ *
+ * Options (--key=value): mode=run|soak, duration (s), warmup (s), clients, post-share, batch-size, range-width,
+ * include-names, async, consumer-mode=single|batch, report-interval (s), postgres-url, postgres-username,
+ * postgres-password. Any other --key=value containing a dot is passed to the application as a property,
+ * e.g. --battery.range-cache.enabled=false.
+ */
+public final class LoadHarness {
+    // Request latencies in microseconds, up to a minute
+    private static final long MAX_LATENCY_MICROS = 60_000_000L;
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(120);
+
+    private final Map<String, String> options;
+    private final Map<String, String> appProperties;
+    private final boolean soak;
+    private final int clients;
+    private final double postShare;
+    private final int batchSize;
+    private final int rangeWidth;
+    private final boolean includeNames;
+    private final boolean async;
+
+    private final Recorder postLatency = new Recorder(MAX_LATENCY_MICROS, 3);
+    private final Recorder rangeLatency = new Recorder(MAX_LATENCY_MICROS, 3);
+    private final LongAdder posted = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final PersistLagTracker lagTracker = new PersistLagTracker();
+    private volatile boolean running = true;
+
+    private LoadHarness(Map<String, String> options, Map<String, String> appProperties) {
+        this.options = options;
+        this.appProperties = appProperties;
+        this.soak = "soak".equals(option("mode", "run"));
+        this.clients = Integer.parseInt(option("clients", "32"));
+        this.postShare = Double.parseDouble(option("post-share", "0.2"));
+        this.batchSize = Integer.parseInt(option("batch-size", "100"));
+        this.rangeWidth = Integer.parseInt(option("range-width", "50"));
+        this.includeNames = Boolean.parseBoolean(option("include-names", "false"));
+        this.async = Boolean.parseBoolean(option("async", "false"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, String> appProperties = new LinkedHashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --key=value but got " + arg);
+            }
+            String key = arg.substring(2, equals);
+            (key.contains(".") ? appProperties : options).put(key, arg.substring(equals + 1));
+        }
+        new LoadHarness(options, appProperties).run();
+        // The HTTP client and the broker leave non-daemon threads behind
+        System.exit(0);
+    }
+
+    private String option(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+
+    private void run() throws Exception {
+        String postgresUrl = option("postgres-url", null);
+        try (EmbeddedAmqpBroker broker = new EmbeddedAmqpBroker();
+             LoadDatabase database = postgresUrl == null
+                     ? LoadDatabase.embedded()
+                     : LoadDatabase.external(postgresUrl, option("postgres-username", "postgres"),
+                             option("postgres-password", ""));
+             ConfigurableApplicationContext context = start(broker, database)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            System.out.printf("Application on port %d, AMQP broker on port %d, database %s%n",
+                    port, broker.port(), database.url());
+
+            ExecutorService executor = Executors.newFixedThreadPool(clients);
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .executor(Executors.newCachedThreadPool())
+                    .build();
+            for (int i = 0; i < clients; i++) {
+                SyntheticBatteries generator = new SyntheticBatteries(i);
+                Random random = new Random(~i);
+                executor.execute(() -> drive(client, port, generator, random));
+            }
+            try {
+                if (soak) {
+                    soak();
+                } else {
+                    measure();
+                }
+            } finally {
+                running = false;
+                executor.shutdown();
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            if (!soak) {
+                drain();
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext start(EmbeddedAmqpBroker broker, LoadDatabase database) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.rabbitmq.host", "localhost");
+        properties.put("spring.rabbitmq.port", broker.port());
+        properties.put("spring.rabbitmq.username", EmbeddedAmqpBroker.USERNAME);
+        properties.put("spring.rabbitmq.password", EmbeddedAmqpBroker.PASSWORD);
+        properties.put("spring.datasource.url", database.url());
+        properties.put("spring.datasource.username", database.username());
+        properties.put("spring.datasource.password", database.password());
+        properties.put("battery.consumer.mode", option("consumer-mode", "single"));
+        // Nothing is printed per statement or per battery while measuring
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("spring.jpa.properties.hibernate.show_sql", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.example", "WARN");
+        properties.put("logging.level.org.hibernate.engine.jdbc.batch", "WARN");
+        properties.putAll(appProperties);
+        // Passed as command-line arguments so they override application.properties
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(BatteryApiApplication.class)
+                .listeners(lagTracker)
+                .run(args);
+    }
+
+    private void drive(HttpClient client, int port, SyntheticBatteries generator, Random random) {
+        String base = "http://localhost:" + port + "/api/batteries";
+        while (running) {
+            boolean post = random.nextDouble() < postShare;
+            HttpRequest request = post
+                    ? HttpRequest.newBuilder(URI.create(async ? base + "?async=true" : base))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(generator.upload(batchSize)))
+                            .timeout(Duration.ofSeconds(60)).build()
+                    : HttpRequest.newBuilder(URI.create(base + "/with-range?" + generator.range(rangeWidth, includeNames)))
+                            .timeout(Duration.ofSeconds(60)).build();
+            long begin = System.nanoTime();
+            try {
+                int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                long micros = Math.min((System.nanoTime() - begin) / 1_000, MAX_LATENCY_MICROS);
+                if (status / 100 != 2) {
+                    errors.increment();
+                } else if (post) {
+                    postLatency.recordValue(micros);
+                    posted.add(batchSize);
+                } else {
+                    rangeLatency.recordValue(micros);
+                }
+            } catch (IOException ex) {
+                errors.increment();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void measure() throws InterruptedException {
+        int warmup = Integer.parseInt(option("warmup", "10"));
+        int duration = Integer.parseInt(option("duration", "60"));
+        System.out.printf("Warming up for %d s with %d clients%n", warmup, clients);
+        TimeUnit.SECONDS.sleep(warmup);
+        // Drop everything recorded during warmup
+        postLatency.reset();
+        rangeLatency.reset();
+        lagTracker.lag().reset();
+        long errorsBefore = errors.sum();
+
+        System.out.printf("Measuring for %d s%n", duration);
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(duration);
+        Histogram post = postLatency.getIntervalHistogram();
+        Histogram range = rangeLatency.getIntervalHistogram();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d clients, %.0f s, %.0f%% uploads of %d batteries, /with-range over %d postcodes%n",
+                clients, seconds, postShare * 100, batchSize, rangeWidth);
+        System.out.println(describe("POST       ", post, seconds) + String.format("  (%,.0f batteries/s)",
+                post.getTotalCount() * batchSize / seconds));
+        System.out.println(describe("/with-range", range, seconds));
+        System.out.printf("errors     : %,d%n", errors.sum() - errorsBefore);
+    }
+
+    private void drain() throws InterruptedException {
+        long target = posted.sum();
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (lagTracker.persisted() < target && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        long persisted = lagTracker.persisted();
+        if (persisted < target) {
+            System.out.printf("Drain timed out after %d s: %,d of %,d posted batteries persisted%n",
+                    DRAIN_TIMEOUT.toSeconds(), persisted, target);
+        }
+        Histogram lag = lagTracker.lag().getIntervalHistogram();
+        System.out.println(describe("persist lag", lag, 0) + String.format("  (%,d batteries)", lag.getTotalCount()));
+    }
+
+    private void soak() throws IOException, InterruptedException {
+        int duration = Integer.parseInt(option("duration", "14400"));
+        int interval = Integer.parseInt(option("report-interval", "60"));
+        Path csv = Path.of("target", "load",
+                "soak-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".csv");
+        Files.createDirectories(csv.getParent());
+        System.out.printf("Soaking for %d s with %d clients, reporting every %d s to %s%n",
+                duration, clients, interval, csv);
+
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool);
+            }
+        }
+        // GC counts and times are reported per interval, starting from what application startup already used
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            gcCount += Math.max(0, collector.getCollectionCount());
+            gcMillis += Math.max(0, collector.getCollectionTime());
+        }
+        long lastErrors = 0;
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csv))) {
+            out.println("elapsed_s,post_per_s,range_per_s,post_p99_ms,range_p99_ms,lag_p99_ms,errors,"
+                    + "heap_used_mb,heap_committed_mb,old_after_gc_mb,gc_count,gc_ms,backlog");
+            long start = System.nanoTime();
+            while (System.nanoTime() < end) {
+                TimeUnit.SECONDS.sleep(interval);
+                Histogram post = postLatency.getIntervalHistogram();
+                Histogram range = rangeLatency.getIntervalHistogram();
+                Histogram lag = lagTracker.lag().getIntervalHistogram();
+
+                long count = 0;
+                long millis = 0;
+                for (GarbageCollectorMXBean collector : collectors) {
+                    count += Math.max(0, collector.getCollectionCount());
+                    millis += Math.max(0, collector.getCollectionTime());
+                }
+                MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+                long totalErrors = errors.sum();
+                String row = String.format("%d,%.1f,%.1f,%.2f,%.2f,%.2f,%d,%d,%d,%d,%d,%d,%d",
+                        TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start),
+                        post.getTotalCount() / (double) interval, range.getTotalCount() / (double) interval,
+                        post.getValueAtPercentile(99) / 1000.0, range.getValueAtPercentile(99) / 1000.0,
+                        lag.getValueAtPercentile(99) / 1000.0, totalErrors - lastErrors,
+                        heap.getUsed() >> 20, heap.getCommitted() >> 20, oldGenerationAfterGc(heapPools) >> 20,
+                        count - gcCount, millis - gcMillis, posted.sum() - lagTracker.persisted());
+                out.println(row);
+                out.flush();
+                System.out.println(row);
+                gcCount = count;
+                gcMillis = millis;
+                lastErrors = totalErrors;
+            }
+        }
+    }
+
+    /**
+     * Occupancy of the old generation right after its last collection: the floor the heap returns to, which keeps
+     * climbing when something leaks. Falls back to the sum over all heap pools for collectors without one.
+     */
+    private static long oldGenerationAfterGc(List<MemoryPoolMXBean> heapPools) {
+        long total = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            if (afterGc == null) {
+                continue;
+            }
+            String name = pool.getName();
+            if (name.contains("Old") || name.contains("Tenured")) {
+                return afterGc.getUsed();
+            }
+            total += afterGc.getUsed();
+        }
+        return total;
+    }
+
+    private static String describe(String label, Histogram histogram, double seconds) {
+        if (histogram.getTotalCount() == 0) {
+            return label + ": no samples";
+        }
+        String rate = seconds > 0 ? String.format("%,8.0f req/s  ", histogram.getTotalCount() / seconds) : "";
+        return String.format("%s: %sp50 %,8.1f ms  p99 %,8.1f ms  p999 %,8.1f ms  max %,8.1f ms",
+                label, rate, histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0);
+    }
+}
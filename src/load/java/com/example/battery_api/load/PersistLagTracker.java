@@ -0,0 +1,59 @@
+package com.example.battery_api.load;
+
+import com.example.battery_api.model.Battery;
+import com.example.battery_api.service.BatteriesPersistedEvent;
+import org.HdrHistogram.Recorder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures end-to-end persist lag: from the moment an upload was built by {@link SyntheticBatteries} to the
+ * commit of the consumer transaction that wrote it. Registered on the application context so it sees every
+ * {@link BatteriesPersistedEvent}, whichever consumer mode is running.
+ */
+final class PersistLagTracker implements ApplicationListener<PayloadApplicationEvent<BatteriesPersistedEvent>> {
+    // Lag in microseconds, up to an hour
+    private static final long MAX_LAG_MICROS = 3_600_000_000L;
+
+    private final Recorder lag = new Recorder(MAX_LAG_MICROS, 3);
+    private final LongAdder persisted = new LongAdder();
+
+    @Override
+    public void onApplicationEvent(PayloadApplicationEvent<BatteriesPersistedEvent> event) {
+        List<Battery> batteries = event.getPayload().batteries();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(batteries);
+                }
+            });
+        } else {
+            record(batteries);
+        }
+    }
+
+    private void record(List<Battery> batteries) {
+        long now = SyntheticBatteries.nowMicros();
+        for (Battery battery : batteries) {
+            long sent = SyntheticBatteries.sentMicros(battery.getName());
+            if (sent >= 0) {
+                lag.recordValue(Math.min(Math.max(0, now - sent), MAX_LAG_MICROS));
+            }
+        }
+        persisted.add(batteries.size());
+    }
+
+    Recorder lag() {
+        return lag;
+    }
+
+    long persisted() {
+        return persisted.sum();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.battery_api.load;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Upload bodies shaped like test-dataset.json: a name stem with a number, a postcode in 1204-9911 and a capacity
+ * in 101-987. Every name also carries the time the upload was built, in microseconds since {@link #ORIGIN}, as
+ * {@code <stem>_<n>@<micros>}, so {@link PersistLagTracker} can tell how long a battery took to reach the database.
+ */
+final class SyntheticBatteries {
+    static final long ORIGIN = System.nanoTime();
+
+    private static final String[] STEMS = {"PowerSurge", "EnergyBlast", "ChargePulse", "ThunderGrid", "VoltMax",
+            "SolarCore", "AmpStream", "GridForce", "CellBoost", "WattWave"};
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Random random;
+
+    SyntheticBatteries(long seed) {
+        this.random = new Random(seed);
+    }
+
+    static long nowMicros() {
+        return (System.nanoTime() - ORIGIN) / 1_000;
+    }
+
+    /**
+     * Parses the send time out of a generated name, or returns -1 for names the generator did not produce.
+     */
+    static long sentMicros(String name) {
+        int at = name.lastIndexOf('@');
+        if (at < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name, at + 1, name.length(), 10);
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    String upload(int size) {
+        long sent = nowMicros();
+        StringBuilder json = new StringBuilder(size * 72).append('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"").append(STEMS[random.nextInt(STEMS.length)]).append('_')
+                    .append(sequence.incrementAndGet()).append('@').append(sent)
+                    .append("\",\"postcode\":\"").append(1204 + random.nextInt(9911 - 1204 + 1))
+                    .append("\",\"wattCapacity\":").append(101 + random.nextInt(987 - 101 + 1)).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * A /with-range query string over {@code width} postcodes.
+     */
+    String range(int width, boolean includeNames) {
+        int start = 1204 + random.nextInt(Math.max(1, 9911 - 1204 - width));
+        return String.format("startPostcode=%04d&endPostcode=%04d&includeNames=%b", start, start + width,
+                includeNames);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.battery_api.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the number of API requests in progress at once.
+ *
+ * With virtual threads Tomcat no longer runs out of worker threads, so nothing stops thousands of requests from
+ * queueing on the datasource pool until they hit its connection timeout. This filter admits at most as many
+ * requests as the pool has connections; the rest wait up to the acquire timeout and are then answered with
+ * 503 and a Retry-After header instead of tying up a connection slot.
+ */
+public class ConnectionPoolConcurrencyFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPoolConcurrencyFilter.class);
+
+    private final Semaphore permits;
+    private final int maxConcurrentRequests;
+    private final long acquireTimeoutMillis;
+
+    public ConnectionPoolConcurrencyFilter(int maxConcurrentRequests, long acquireTimeoutMillis) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be at least 1");
+        }
+        // Fair, so requests are admitted in arrival order and none waits out the timeout behind later ones
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            logger.warn("Rejected {} {}: {} requests already in progress", request.getMethod(), request.getRequestURI(),
+                    maxConcurrentRequests);
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"message\":\"Too many concurrent requests, retry later.\"}");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+}
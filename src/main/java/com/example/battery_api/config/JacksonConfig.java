@@ -0,0 +1,23 @@
+package com.example.battery_api.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers Jackson's Blackbird module with the application ObjectMapper. Blackbird replaces the reflective getter,
+ * setter and constructor calls of bean (de)serializers, such as those for the battery DTOs and response records,
+ * with generated lambdas. Set battery.json.blackbird.enabled=false to fall back to plain reflection.
+ */
+@Configuration
+@ConditionalOnProperty(name = "battery.json.blackbird.enabled", havingValue = "true", matchIfMissing = true)
+public class JacksonConfig {
+
+    // Spring Boot adds every Module bean to the auto-configured ObjectMapper
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
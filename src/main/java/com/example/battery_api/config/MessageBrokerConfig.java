@@ -1,19 +1,27 @@
 package com.example.battery_api.config;
 
+import com.example.battery_api.messaging.BatteryBatchMessageConverter;
+import com.example.battery_api.messaging.BatteryConsumerScaler;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.AllowedListDeserializingMessageConverter;
 import org.springframework.amqp.support.converter.MessageConversionException;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.amqp.support.converter.SimpleMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.util.List;
 
 @Configuration
+@EnableScheduling
 public class MessageBrokerConfig {
 
     // Define a queue for valid batteries
@@ -22,23 +30,57 @@ public class MessageBrokerConfig {
         return new Queue("batteryQueue", true); // true makes the queue durable
     }
 
-    // Create a MessageConverter bean that uses AllowedListDeserializingMessageConverter
+    // Create a MessageConverter bean that writes battery batches in the compact binary format and
+    // still reads Java-serialized batches from producers that have not been upgraded yet
     @Bean
-    public SimpleMessageConverter converter() {
+    public MessageConverter converter(@Value("${battery.messaging.binary-encoding:true}") boolean binaryEncoding) {
         SimpleMessageConverter converter = new SimpleMessageConverter();
         // Define the allowed patterns for deserialization
         converter.setAllowedListPatterns(List.of(
                 "java.util.ArrayList", // Allow ArrayList class
                 "com.example.battery_api.*" // Allow all classes in your package
         ));
-        return converter;
+        return new BatteryBatchMessageConverter(converter, binaryEncoding);
     }
 
     // Define RabbitTemplate with custom MessageConverter
     @Bean
-    public RabbitTemplate rabbitTemplate(org.springframework.amqp.rabbit.connection.ConnectionFactory connectionFactory) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory,
+                                         MessageConverter converter) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
-        rabbitTemplate.setMessageConverter(converter());
+        rabbitTemplate.setMessageConverter(converter);
         return rabbitTemplate;
     }
+
+    // Listener container factory configured from spring.rabbitmq.listener.simple.* (concurrency, prefetch, ...)
+    // with the consumer scaler as advice so it can measure how long each message takes to persist
+    @Bean
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            BatteryConsumerScaler batteryConsumerScaler) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAdviceChain(batteryConsumerScaler);
+        return factory;
+    }
+
+    // Container factory for the coalescing consumer: each consumer collects up to batch.max-messages deliveries,
+    // waiting at most batch.receive-timeout-ms for more, and acks them together once the listener returns
+    @Bean
+    public SimpleRabbitListenerContainerFactory batteryBatchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            BatteryConsumerScaler batteryConsumerScaler,
+            @Value("${battery.consumer.batch.max-messages:100}") int maxMessages,
+            @Value("${battery.consumer.batch.receive-timeout-ms:200}") long receiveTimeoutMillis) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(maxMessages);
+        factory.setReceiveTimeout(receiveTimeoutMillis);
+        factory.setAdviceChain(batteryConsumerScaler);
+        return factory;
+    }
 }
@@ -0,0 +1,36 @@
+package com.example.battery_api.config;
+
+import com.example.battery_api.repository.SqlExecutionRecorder;
+import com.example.battery_api.repository.SqlInstrumentation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * With battery.sql.instrumentation.enabled=true, routes the application datasource through
+ * {@link SqlInstrumentation}, so every JDBC statement feeds the SQL statistics and slow-query log of
+ * /actuator/hibernatestats. It is off by default: each statement then goes through proxies and is timed and
+ * recorded, which costs on every insert batch, so switch it on while investigating. COPY bulk loads are never
+ * recorded, since CopyManager.copyIn writes to the unwrapped PostgreSQL connection.
+ */
+@Configuration
+@ConditionalOnProperty(name = "battery.sql.instrumentation.enabled", havingValue = "true")
+public class SqlInstrumentationConfig {
+
+    // Static, so the post-processor is registered before the datasource and its dependents are created
+    @Bean
+    public static BeanPostProcessor sqlInstrumentationPostProcessor(ObjectProvider<SqlExecutionRecorder> recorder) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource
+                        ? SqlInstrumentation.wrap(dataSource, recorder.getObject())
+                        : bean;
+            }
+        };
+    }
+}
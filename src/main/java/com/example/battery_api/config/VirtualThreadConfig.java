@@ -0,0 +1,73 @@
+package com.example.battery_api.config;
+
+import com.example.battery_api.messaging.BatteryConsumerScaler;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Guardrails for the virtual-threads profile (spring.threads.virtual.enabled=true on Java 21 or later).
+ *
+ * Spring Boot then runs Tomcat requests and the Rabbit listener containers built from
+ * SimpleRabbitListenerContainerFactoryConfigurer on virtual threads. Listener concurrency stays bounded by the
+ * consumer count, which the consumer scaler keeps below the pool size; API requests are bounded here, by default to
+ * the connections the listeners can never take. On older runtimes the property has no effect and none of this is
+ * created.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    public FilterRegistrationBean<ConnectionPoolConcurrencyFilter> connectionPoolConcurrencyFilter(
+            DataSource dataSource, BatteryConsumerScaler consumerScaler, RabbitProperties rabbitProperties,
+            @Value("${battery.virtual-threads.max-concurrent-requests:0}") int maxConcurrentRequests,
+            @Value("${battery.virtual-threads.acquire-timeout-ms:5000}") long acquireTimeoutMillis) {
+        int limit = maxConcurrentRequests > 0
+                ? maxConcurrentRequests
+                : defaultRequestLimit(poolSize(dataSource), consumerScaler, rabbitProperties);
+        logger.info("Virtual threads enabled: at most {} concurrent API requests", limit);
+
+        FilterRegistrationBean<ConnectionPoolConcurrencyFilter> registration =
+                new FilterRegistrationBean<>(new ConnectionPoolConcurrencyFilter(limit, acquireTimeoutMillis));
+        // Actuator stays outside the limit so health checks answer while the API is saturated
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    /**
+     * One request per pooled connection the battery listeners can never hold. The listeners run up to the
+     * configured spring.rabbitmq.listener.simple concurrency, or up to the consumer scaler's limit (the pool size
+     * minus battery.consumer.adaptive.reserved-connections) once it changes the count, whichever is higher.
+     */
+    static int defaultRequestLimit(int poolSize, BatteryConsumerScaler consumerScaler, RabbitProperties rabbitProperties) {
+        RabbitProperties.SimpleContainer listener = rabbitProperties.getListener().getSimple();
+        int configured = Math.max(listener.getConcurrency() != null ? listener.getConcurrency() : 1,
+                listener.getMaxConcurrency() != null ? listener.getMaxConcurrency() : 1);
+        int listenerConnections = Math.max(configured, consumerScaler.consumerLimit());
+        return Math.max(1, poolSize - listenerConnections);
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        // Unwrapped, since the datasource bean may be the instrumenting proxy around the pool
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Cannot read the connection pool size", ex);
+        }
+        throw new IllegalStateException("Set battery.virtual-threads.max-concurrent-requests for a non-Hikari datasource");
+    }
+}
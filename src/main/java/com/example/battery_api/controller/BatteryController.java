@@ -1,20 +1,35 @@
 package com.example.battery_api.controller;
 
 import com.example.battery_api.dto.BatteryRequestDTO;
-import com.example.battery_api.dto.BatteryResponseDTO;
+import com.example.battery_api.dto.BatterySaveResponseDTO;
 import com.example.battery_api.model.Battery;
+import com.example.battery_api.service.AsyncBatteryIngestor;
+import com.example.battery_api.service.BatteryDuplicateFilter;
+import com.example.battery_api.service.BatteryExporter;
+import com.example.battery_api.service.BatteryIdempotencyStore;
+import com.example.battery_api.service.BatteryIngestJobTracker;
+import com.example.battery_api.service.BatteryIngestMetrics;
 import com.example.battery_api.service.BatteryMapper;
+import com.example.battery_api.service.BatteryRequestValidator;
 import com.example.battery_api.service.BatteryService;
-import jakarta.validation.*;
+import com.example.battery_api.service.StreamingBatteryIngestor;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * REST controller for managing battery resources.
@@ -25,12 +40,37 @@ import java.util.stream.Collectors;
 @Validated
 public class BatteryController {
     private static final Logger logger = LoggerFactory.getLogger(BatteryController.class);
+    private static final int DEFAULT_PAGE_SIZE = 100;
     private final BatteryService batteryService;
     private final BatteryMapper batteryMapper;
+    private final BatteryRequestValidator batteryRequestValidator;
+    private final StreamingBatteryIngestor streamingBatteryIngestor;
+    private final BatteryExporter batteryExporter;
+    private final AsyncBatteryIngestor asyncBatteryIngestor;
+    private final BatteryIngestJobTracker jobTracker;
+    private final BatteryIdempotencyStore idempotencyStore;
+    private final BatteryDuplicateFilter duplicateFilter;
+    private final BatteryIngestMetrics ingestMetrics;
 
-    public BatteryController(BatteryService batteryService, BatteryMapper batteryMapper) {
+    public BatteryController(BatteryService batteryService, BatteryMapper batteryMapper,
+                             BatteryRequestValidator batteryRequestValidator,
+                             StreamingBatteryIngestor streamingBatteryIngestor,
+                             BatteryExporter batteryExporter,
+                             AsyncBatteryIngestor asyncBatteryIngestor,
+                             BatteryIngestJobTracker jobTracker,
+                             BatteryIdempotencyStore idempotencyStore,
+                             BatteryDuplicateFilter duplicateFilter,
+                             BatteryIngestMetrics ingestMetrics) {
         this.batteryService = batteryService;
         this.batteryMapper = batteryMapper;
+        this.batteryRequestValidator = batteryRequestValidator;
+        this.streamingBatteryIngestor = streamingBatteryIngestor;
+        this.batteryExporter = batteryExporter;
+        this.asyncBatteryIngestor = asyncBatteryIngestor;
+        this.jobTracker = jobTracker;
+        this.idempotencyStore = idempotencyStore;
+        this.duplicateFilter = duplicateFilter;
+        this.ingestMetrics = ingestMetrics;
     }
 
     /**
@@ -49,13 +89,11 @@ public class BatteryController {
      * {
      *   "savedBatteries": [
      *     {
-     *       "id": null,
      *       "name": "PowerCell A1",
-     *       "postcode": "9002", 
+     *       "postcode": "9002",
      *       "wattCapacity": 100
      *     },
      *     {
-     *       "id": null,
      *       "name": "TurboCharge X",
      *       "postcode": "1200",
      *       "wattCapacity": 200
@@ -63,8 +101,8 @@ public class BatteryController {
      *   ],
      *   "invalidEntries": [
      *     {
-     *       "data": {"name": "VoltMaster Z", "postcode": "", "wattCapacity": 50},
      *       "index": 2,
+     *       "data": {"name": "VoltMaster Z", "postcode": "", "wattCapacity": 50},
      *       "errors": {
      *         "postcode": [
      *           "Postcode must be between 0200 and 9999 and consist of exactly 4 digits",
@@ -73,16 +111,16 @@ public class BatteryController {
      *       }
      *     },
      *     {
-     *       "data": {"name": "", "postcode": null, "wattCapacity": 300},
      *       "index": 3,
+     *       "data": {"name": "", "postcode": null, "wattCapacity": 300},
      *       "errors": {
      *         "postcode": ["Postcode cannot be null or blank"],
      *         "name": ["Name cannot be blank"]
      *       }
      *     },
      *     {
-     *       "data": {"name": null, "postcode": null, "wattCapacity": null},
      *       "index": 4,
+     *       "data": {"name": null, "postcode": null, "wattCapacity": null},
      *       "errors": {
      *         "wattCapacity": ["Watt capacity is required"],
      *         "postcode": ["Postcode cannot be null or blank"],
@@ -90,95 +128,206 @@ public class BatteryController {
      *       }
      *     }
      *   ],
+     *   "duplicateEntries": [],
      *   "savedBatteriesCount": 2
      * }
      *
+     * With battery.dedupe.enabled=true, valid entries identical (name, postcode and watt capacity) to a stored
+     * battery or to an earlier entry of the same upload are not published again; they are listed under
+     * duplicateEntries as {"index": 5, "data": {...}} instead.
+     *
+     * With async=true the upload is validated and published in the background instead, and the response is
+     * 202 Accepted right away:
+     * {
+     *   "jobId": "5b0c1c8e-...",
+     *   "receivedCount": 5,
+     *   "statusUrl": "/api/batteries/jobs/5b0c1c8e-..."
+     * }
+     * When battery.jobs.max-active jobs are already running, or the job queue is full, the upload is refused with
+     * 503 Service Unavailable and a Retry-After header.
+     *
+     * A retried request carrying the same Idempotency-Key as one that already succeeded gets the original response
+     * back (with an Idempotent-Replayed: true header) and nothing is published again; a retry sent while the
+     * original is still running gets 409 Conflict. Reusing a key with a different body or async flag gets
+     * 422 Unprocessable Entity. The replay of an upload with more than battery.idempotency.max-replay-entries
+     * entries lists only the counts.
+     *
      * @param requestDTOs List of battery requests to process
-     * @return Response containing:
+     * @param async Whether to return a job ID immediately and ingest in the background (default false)
+     * @param idempotencyKey Optional client-chosen key (at most 255 characters) identifying this upload across retries
+     * @return Response ({@link BatterySaveResponseDTO}) containing:
      *         - savedBatteries: List of successfully validated and saved batteries
      *         - invalidEntries: List of invalid entries with their validation errors
+     *         - duplicateEntries: List of entries skipped as duplicates (empty unless deduplication is enabled)
      *         - savedBatteriesCount: Number of successfully saved batteries
+     *         or, with async=true, the job ID and the URL of its status
      */
     @PostMapping
-    public ResponseEntity<Map<String, Object>> saveBatteries(@RequestBody List<BatteryRequestDTO> requestDTOs) {
+    public ResponseEntity<?> saveBatteries(
+            @RequestBody List<BatteryRequestDTO> requestDTOs,
+            @RequestParam(defaultValue = "false") boolean async,
+            @RequestHeader(name = "Idempotency-Key", required = false)
+            @Size(min = 1, max = 255, message = "Idempotency-Key must be between 1 and 255 characters")
+            String idempotencyKey) {
+        return idempotencyStore.execute(idempotencyKey,
+                () -> BatteryIdempotencyStore.requestHash(requestDTOs, async), () -> async
+                ? acceptBatteries(requestDTOs)
+                : publishBatteries(requestDTOs));
+    }
+
+    private ResponseEntity<Map<String, Object>> acceptBatteries(List<BatteryRequestDTO> requestDTOs) {
+        String jobId = asyncBatteryIngestor.submit(requestDTOs);
+        String statusUrl = "/api/batteries/jobs/" + jobId;
+        logger.info("Accepted {} batteries for asynchronous ingest as job {}", requestDTOs.size(), jobId);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("jobId", jobId);
+        response.put("receivedCount", requestDTOs.size());
+        response.put("statusUrl", statusUrl);
+        return ResponseEntity.accepted().location(URI.create(statusUrl)).body(response);
+    }
+
+    private ResponseEntity<BatterySaveResponseDTO> publishBatteries(List<BatteryRequestDTO> requestDTOs) {
         logger.info("Received request to save {} batteries", requestDTOs.size());
-        List<Battery> validBatteries = new ArrayList<>();
-        List<Map<String, Object>> invalidEntries = new ArrayList<>();
+        List<Battery> validBatteries = new ArrayList<>(requestDTOs.size());
+        List<BatterySaveResponseDTO.InvalidEntry> invalidEntries = new ArrayList<>();
+        List<BatterySaveResponseDTO.DuplicateEntry> duplicateEntries = new ArrayList<>();
+        BatteryDuplicateFilter.Screen duplicateScreen = duplicateFilter.newScreen();
+        BatteryIngestMetrics.Upload upload = ingestMetrics.startUpload(BatteryIngestMetrics.UPLOAD);
 
         // Process each battery request
         for (int i = 0; i < requestDTOs.size(); i++) {
             BatteryRequestDTO requestDTO = requestDTOs.get(i);
             logger.debug("Processing battery request at index {}: {}", i, requestDTO);
 
-            try {
-                // Validate the DTO manually
-                validateBatteryRequestDTO(requestDTO);
+            // Validate the DTO manually
+            long start = ingestMetrics.nanoTime();
+            Map<String, List<String>> errors = batteryRequestValidator.validate(requestDTO);
+            start = upload.validated(start, errors.isEmpty());
+            if (errors.isEmpty()) {
                 logger.debug("Battery request at index {} passed validation", i);
 
                 // If valid, map to entity
                 Battery battery = batteryMapper.toEntity(requestDTO);
-                validBatteries.add(battery);
-            } catch (ConstraintViolationException ex) {
-                logger.warn("Validation failed for battery at index {}: {}", i, ex.getMessage());
+                upload.mapped(start);
+                if (duplicateScreen.isDuplicate(battery)) {
+                    logger.debug("Battery request at index {} duplicates a stored battery", i);
+                    upload.duplicate();
+                    duplicateEntries.add(new BatterySaveResponseDTO.DuplicateEntry(i, requestDTO));
+                } else {
+                    validBatteries.add(battery);
+                }
+            } else {
+                logger.warn("Validation failed for battery at index {}: {}", i, errors);
                 // Collect validation errors
-                Map<String, Object> errorEntry = new HashMap<>();
-                errorEntry.put("index", i);
-                errorEntry.put("data", requestDTO);
-                errorEntry.put("errors", extractValidationErrors(ex));
-                invalidEntries.add(errorEntry);
+                invalidEntries.add(new BatterySaveResponseDTO.InvalidEntry(i, requestDTO, errors));
             }
         }
+        upload.finish();
         // Publish valid batteries to the message broker (RabbitMQ)
         logger.info("Publishing {} valid batteries to message broker", validBatteries.size());
-        batteryService.publishValidBatteries(validBatteries);
+        batteryService.publishValidBatteries(validBatteries, UUID.randomUUID().toString(), BatteryIngestMetrics.UPLOAD);
 
         // Prepare response
-        Map<String, Object> response = new HashMap<>();
-        response.put("savedBatteriesCount", validBatteries.size());
-        List<Map<String, Object>> batteryDTOs = batteryMapper.toDTOList(validBatteries).stream()
-            .map(dto -> {
-                Map<String, Object> batteryMap = new HashMap<>();
-                batteryMap.put("name", dto.getName());
-                batteryMap.put("postcode", dto.getPostcode());
-                batteryMap.put("wattCapacity", dto.getWattCapacity());
-                return batteryMap;
-            })
-            .collect(Collectors.toList());
-        response.put("savedBatteries", batteryDTOs);
-        response.put("invalidEntries", invalidEntries);
-
-        logger.info("Successfully processed battery save request. Valid: {}, Invalid: {}", 
-                validBatteries.size(), invalidEntries.size());
+        BatterySaveResponseDTO response = new BatterySaveResponseDTO(batteryMapper.toSavedBatteries(validBatteries),
+                invalidEntries, duplicateEntries, validBatteries.size());
+
+        logger.info("Successfully processed battery save request. Valid: {}, Invalid: {}, Duplicate: {}",
+                validBatteries.size(), invalidEntries.size(), duplicateEntries.size());
         return ResponseEntity.ok(response);
     }
 
     /**
-     * Validates a single BatteryRequestDTO using Jakarta validation
-     * @param requestDTO The DTO to validate
-     * @throws ConstraintViolationException if validation fails
+     * Progress of an asynchronous ingest job started with POST /api/batteries?async=true.
+     *
+     * Example Response:
+     * {
+     *   "jobId": "5b0c1c8e-...",
+     *   "state": "PERSISTING",
+     *   "acceptedAt": "2024-01-01T10:00:00Z",
+     *   "receivedCount": 5000,
+     *   "validatedCount": 4990,
+     *   "invalidCount": 10,
+     *   "duplicateCount": 0,
+     *   "publishedCount": 4990,
+     *   "persistedCount": 3000,
+     *   "failedCount": 0
+     * }
+     * state is VALIDATING, PUBLISHING, PERSISTING, COMPLETED (every published battery persisted) or FAILED
+     * (nothing could be published; see error). If publishing stops partway, error is set, the batteries never
+     * published are added to failedCount and the job still completes once the published ones are persisted.
+     * failedCount also counts batteries in persist attempts that rolled back; their messages are redelivered, so
+     * they may still be persisted later.
+     *
+     * @param jobId Job ID returned when the upload was accepted
+     * @return The job status, or 404 if the job is unknown or has expired
      */
-    private void validateBatteryRequestDTO(BatteryRequestDTO requestDTO) {
-        ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-        Validator validator = factory.getValidator();
-        Set<ConstraintViolation<BatteryRequestDTO>> violations = validator.validate(requestDTO);
-
-        if (!violations.isEmpty()) {
-            logger.debug("Validation violations found: {}", violations);
-            throw new ConstraintViolationException(violations);
-        }
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getJobStatus(@PathVariable String jobId) {
+        return jobTracker.status(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
-     * Extracts validation errors from a ConstraintViolationException
-     * @param ex The exception containing validation errors
-     * @return Map of field names to their validation error messages
+     * Streaming variant of {@link #saveBatteries(List, boolean, String)} for very large uploads.
+     * The request array is read element by element, valid batteries are published in fixed-size chunks
+     * and the result of every entry is streamed back, so memory use does not grow with the upload.
+     *
+     * Example Response:
+     * {
+     *   "entries": [
+     *     {"index": 1, "status": "invalid", "data": {"name": "", "postcode": "1200", "wattCapacity": 200},
+     *      "errors": {"name": ["Name cannot be blank"]}},
+     *     {"index": 0, "status": "saved", "battery": {"name": "PowerCell A1", "postcode": "9002", "wattCapacity": 100}}
+     *   ],
+     *   "savedBatteriesCount": 1,
+     *   "invalidEntriesCount": 1,
+     *   "duplicateEntriesCount": 0
+     * }
+     *
+     * @param request Request whose body is a JSON array of battery requests
+     * @param response Response the per-entry results and summary counts are streamed to
      */
-    private Map<String, List<String>> extractValidationErrors(ConstraintViolationException ex) {
-        return ex.getConstraintViolations().stream()
-                .collect(Collectors.groupingBy(
-                        violation -> violation.getPropertyPath().toString(), // Group by field name
-                        Collectors.mapping(ConstraintViolation::getMessage, Collectors.toList()) // Collect multiple error messages in a list
-                ));
+    @PostMapping(value = "/stream", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void saveBatteriesStreaming(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        logger.info("Received streaming request to save batteries");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        streamingBatteryIngestor.ingestJsonArray(new ServletServerHttpRequest(request), response.getOutputStream());
+    }
+
+    /**
+     * Newline-delimited JSON variant of {@link #saveBatteries(List, boolean, String)}: one battery request object per line.
+     * Lines are parsed, validated and published incrementally, so arbitrarily large files can be pushed
+     * over a single connection. Malformed lines are reported as invalid entries and do not stop the upload.
+     *
+     * Example Request:
+     * {"name": "PowerCell A1", "postcode": "9002", "wattCapacity": 100}
+     * {"name": "TurboCharge X", "postcode": "12", "wattCapacity": 200}
+     * {"name": "VoltMaster Z",
+     *
+     * Example Response:
+     * {
+     *   "entries": [
+     *     {"index": 1, "status": "invalid", "data": {"name": "TurboCharge X", "postcode": "12", "wattCapacity": 200},
+     *      "errors": {"postcode": ["Postcode must be between 0200 and 9999 and consist of exactly 4 digits"]}},
+     *     {"index": 2, "status": "invalid", "data": "{\"name\": \"VoltMaster Z\",",
+     *      "errors": {"line": ["Malformed JSON: Unexpected end-of-input: expected close marker for Object"]}},
+     *     {"index": 0, "status": "saved", "battery": {"name": "PowerCell A1", "postcode": "9002", "wattCapacity": 100}}
+     *   ],
+     *   "savedBatteriesCount": 1,
+     *   "invalidEntriesCount": 2,
+     *   "duplicateEntriesCount": 0
+     * }
+     *
+     * @param request Request whose body is newline-delimited JSON; entry indices are zero-based line numbers
+     * @param response Response the per-line results and summary counts are streamed to
+     */
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void saveBatteriesNdjson(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        logger.info("Received NDJSON request to save batteries");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        streamingBatteryIngestor.ingestJsonLines(new ServletServerHttpRequest(request), response.getOutputStream());
     }
 
     /**
@@ -191,7 +340,7 @@ public class BatteryController {
      *         "MegaVolt 4X",
      *         "Powergen"
      *     ],
-     *     "totalCapacity": 1000.0,
+     *     "totalCapacity": 1000,
      *     "averageCapacity": 250.0,
      *     "totalBatteries": 4
      * }
@@ -200,8 +349,13 @@ public class BatteryController {
      * @param endPostcode Upper bound of postcode range (inclusive), must be between 0200 and 9999
      * @param minCapacity Optional minimum watt capacity filter
      * @param maxCapacity Optional maximum watt capacity filter
+     * @param includeNames Whether to include the sorted battery names (default true); false skips the name query
+     * @param pageSize Optional page size (1-1000); returns the names page by page instead of all at once
+     * @param cursor nextCursor from the previous page; implies paging with the default page size of 100
      * @return Response containing:
-     *         - batteries: Sorted list of battery names in the specified range
+     *         - batteries: Sorted list of battery names in the specified range (only when includeNames is true),
+     *           or the names on the requested page when paging
+     *         - nextCursor: Cursor for the next page, null on the last page (only when paging)
      *         - totalCapacity: Sum of watt capacities of all matching batteries
      *         - averageCapacity: Average watt capacity of matching batteries
      *         - totalBatteries: Count of matching batteries
@@ -215,36 +369,78 @@ public class BatteryController {
             @Pattern(regexp = "^(0[2-9][0-9]{2}|[1-9][0-9]{3})$", message = "End postcode must be between 0200 and 9999 and consist of exactly 4 digits")
             String endPostcode,
             @RequestParam(required = false) Integer minCapacity,
-            @RequestParam(required = false) Integer maxCapacity) {
+            @RequestParam(required = false) Integer maxCapacity,
+            @RequestParam(defaultValue = "true") boolean includeNames,
+            @RequestParam(required = false)
+            @Min(value = 1, message = "Page size must be between 1 and 1000")
+            @Max(value = 1000, message = "Page size must be between 1 and 1000")
+            Integer pageSize,
+            @RequestParam(required = false) String cursor) {
 
         logger.info("Received request to get batteries in range. Postcodes: {} to {}, Capacity range: {} to {}", 
                 startPostcode, endPostcode, minCapacity, maxCapacity);
 
-        // Fetch batteries matching criteria
-        List<Battery> batteries = batteryService.getBatteriesInRangeWithCapacity(
-                startPostcode, endPostcode, minCapacity, maxCapacity);
-
-        // Calculate statistics
-        List<String> batteryNames = batteries.stream()
-                .map(Battery::getName)
-                .sorted()
-                .toList();
-        int totalCapacity = batteries.stream().mapToInt(Battery::getWattCapacity).sum();
-        double averageCapacity = batteries.stream().mapToInt(Battery::getWattCapacity).average().orElse(0.0);
-        int totalBatteries = batteries.size();
+        Map<String, Object> response;
+        if (pageSize != null || cursor != null) {
+            // Keyset-paginated names; the statistics still cover the whole range
+            response = batteryService.getBatteryRangePage(startPostcode, endPostcode, minCapacity, maxCapacity,
+                    pageSize != null ? pageSize : DEFAULT_PAGE_SIZE, cursor);
+        } else {
+            // Statistics come from the range index or the database; names are fetched only when requested
+            response = batteryService.getBatteryRangeSummary(
+                    startPostcode, endPostcode, minCapacity, maxCapacity, includeNames);
+        }
 
         logger.info("Found {} batteries in range with total capacity {} and average capacity {}", 
-                totalBatteries, totalCapacity, averageCapacity);
-
-        // Build response
-        Map<String, Object> response = Map.of(
-                "batteries", batteryNames,
-                "totalCapacity", totalCapacity,
-                "averageCapacity", averageCapacity,
-                "totalBatteries", totalBatteries
-        );
+                response.get("totalBatteries"), response.get("totalCapacity"), response.get("averageCapacity"));
 
         return ResponseEntity.ok(response);
     }
 
-}
\ No newline at end of file
+    /**
+     * Exports every battery in the postcode and capacity range, ordered by id, for reconciliation jobs.
+     * Rows are streamed from a database cursor straight to the response, so the export size is not limited by
+     * heap. Unlike /with-range the result is not cached or summarised.
+     *
+     * Example Response (format=csv):
+     * id,name,postcode,wattCapacity
+     * 1,PowerCell A1,9002,100
+     * 2,"Cell ""X"", rev 2",1200,200
+     *
+     * Example Response (format=ndjson):
+     * {"id":1,"name":"PowerCell A1","postcode":"9002","wattCapacity":100}
+     * {"id":2,"name":"Cell \"X\", rev 2","postcode":"1200","wattCapacity":200}
+     *
+     * @param startPostcode Lower bound of postcode range (inclusive), must be between 0200 and 9999
+     * @param endPostcode Upper bound of postcode range (inclusive), must be between 0200 and 9999
+     * @param minCapacity Optional minimum watt capacity filter
+     * @param maxCapacity Optional maximum watt capacity filter
+     * @param format csv (default) or ndjson
+     */
+    @GetMapping("/export")
+    public void exportBatteries(
+            @RequestParam
+            @Pattern(regexp = "^(0[2-9][0-9]{2}|[1-9][0-9]{3})$", message = "Start postcode must be between 0200 and 9999 and consist of exactly 4 digits")
+            String startPostcode,
+            @RequestParam
+            @Pattern(regexp = "^(0[2-9][0-9]{2}|[1-9][0-9]{3})$", message = "End postcode must be between 0200 and 9999 and consist of exactly 4 digits")
+            String endPostcode,
+            @RequestParam(required = false) Integer minCapacity,
+            @RequestParam(required = false) Integer maxCapacity,
+            @RequestParam(defaultValue = "csv")
+            @Pattern(regexp = "^(csv|ndjson)$", message = "Format must be csv or ndjson")
+            String format,
+            HttpServletResponse response) throws IOException {
+
+        logger.info("Received request to export batteries. Postcodes: {} to {}, Capacity range: {} to {}, format: {}",
+                startPostcode, endPostcode, minCapacity, maxCapacity, format);
+
+        BatteryExporter.Format exportFormat = BatteryExporter.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        response.setContentType(exportFormat == BatteryExporter.Format.CSV
+                ? "text/csv;charset=UTF-8"
+                : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader("Content-Disposition", "attachment; filename=\"batteries-" + startPostcode + "-" + endPostcode
+                + "." + format + "\"");
+        batteryExporter.export(startPostcode, endPostcode, minCapacity, maxCapacity, exportFormat, response.getOutputStream());
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.battery_api.dto;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response of the synchronous POST /api/batteries: the batteries published for saving, the entries that failed
+ * validation and the entries skipped as duplicates, in upload order. Jackson writes the records directly, so an
+ * upload costs one small record per entry on top of the entities.
+ */
+public record BatterySaveResponseDTO(List<SavedBattery> savedBatteries,
+                                     List<InvalidEntry> invalidEntries,
+                                     List<DuplicateEntry> duplicateEntries,
+                                     int savedBatteriesCount) {
+
+    public BatterySaveResponseDTO {
+        savedBatteries = Collections.unmodifiableList(savedBatteries);
+        invalidEntries = Collections.unmodifiableList(invalidEntries);
+        duplicateEntries = Collections.unmodifiableList(duplicateEntries);
+    }
+
+    public record SavedBattery(String name, String postcode, int wattCapacity) {
+    }
+
+    /**
+     * @param index Zero-based position in the upload
+     * @param data The entry as received
+     * @param errors Validation messages by field
+     */
+    public record InvalidEntry(int index, BatteryRequestDTO data, Map<String, List<String>> errors) {
+    }
+
+    /**
+     * @param index Zero-based position in the upload
+     * @param data The entry as received
+     */
+    public record DuplicateEntry(int index, BatteryRequestDTO data) {
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.battery_api.exception;
+
+import org.springframework.amqp.AmqpException;
+
+/**
+ * Thrown when publishing a batch of batteries to the message broker fails part-way. The batteries are published in
+ * order, so the first {@link #getPublishedCount()} of them were handed to the broker and will still be persisted;
+ * the rest were not sent.
+ */
+public class BatteryPublishException extends AmqpException {
+    private final int publishedCount;
+
+    public BatteryPublishException(int publishedCount, Throwable cause) {
+        super("Publishing failed after " + publishedCount + " batteries: " + cause.getMessage(), cause);
+        this.publishedCount = publishedCount;
+    }
+
+    public int getPublishedCount() {
+        return publishedCount;
+    }
+}
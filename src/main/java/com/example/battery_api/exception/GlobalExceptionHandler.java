@@ -98,4 +98,23 @@ public class GlobalExceptionHandler {
         response.put("errors", errors);
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidCursorException(InvalidCursorException ex) {
+        logger.error("Invalid cursor: {}", ex.getMessage());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Validation failed for one or more fields.");
+        response.put("errors", List.of(Map.of("field", "cursor", "message", ex.getMessage())));
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(TooManyIngestJobsException.class)
+    public ResponseEntity<Map<String, Object>> handleTooManyIngestJobsException(TooManyIngestJobsException ex) {
+        logger.warn("Rejected asynchronous upload: {}", ex.getMessage());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Too many uploads are being ingested, retry later.");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(response);
+    }
 }
@@ -0,0 +1,11 @@
+package com.example.battery_api.exception;
+
+/**
+ * Thrown when a pagination cursor sent by a client cannot be decoded.
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.battery_api.exception;
+
+/**
+ * Thrown when an asynchronous ingest job cannot be accepted because the node is already running as many as it
+ * allows; answered with 503 Service Unavailable and a Retry-After header.
+ */
+public class TooManyIngestJobsException extends RuntimeException {
+
+    public TooManyIngestJobsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.battery_api.messaging;
+
+import com.example.battery_api.model.Battery;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding for batches of batteries published to the battery queue.
+ *
+ * Layout (version 1):
+ * <pre>
+ * batch  := version:u8  count:varint  record*
+ * record := length:varint  flags:u8  [id:varint]  name:string  postcode  wattCapacity:zigzag-varint
+ * postcode := packed:u16 (when flags has POSTCODE_PACKED)  |  string
+ * string := (byteLength + 1):varint  utf8-bytes      (0 encodes null)
+ * </pre>
+ * Records are length-prefixed so later versions can append fields that older decoders skip.
+ * Postcodes of exactly four digits (every postcode that passes validation) are packed into two bytes.
+ *
+ * Bodies come from the broker and are not trusted: counts and lengths are checked against the bytes that remain
+ * before anything is allocated or read, and a corrupt body is rejected with {@link MessageConversionException}.
+ */
+public final class BatteryBatchCodec {
+    public static final byte VERSION = 1;
+
+    private static final int FLAG_HAS_ID = 1;
+    private static final int FLAG_POSTCODE_PACKED = 1 << 1;
+
+    private BatteryBatchCodec() {
+    }
+
+    public static byte[] encode(List<Battery> batteries) {
+        Writer out = new Writer(16 + batteries.size() * 24);
+        out.write(VERSION);
+        out.writeVarint(batteries.size());
+
+        Writer record = new Writer(64);
+        for (Battery battery : batteries) {
+            record.size = 0;
+            encodeRecord(record, battery);
+            out.writeVarint(record.size);
+            out.write(record.buffer, 0, record.size);
+        }
+        return out.toByteArray();
+    }
+
+    public static List<Battery> decode(byte[] body) {
+        Reader in = new Reader(body);
+        int version = in.readByte();
+        if (version < 1 || version > VERSION) {
+            throw new MessageConversionException("Unsupported battery batch version " + version);
+        }
+        // Every record takes at least one byte, so a count beyond the remaining bytes cannot be genuine
+        int count = in.readLength();
+        List<Battery> batteries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = in.readLength();
+            int end = in.position + length;
+            batteries.add(decodeRecord(in));
+            if (in.position > end) {
+                throw new MessageConversionException("Battery record overruns its length in battery batch");
+            }
+            // Skip fields appended by newer encoders
+            in.position = end;
+        }
+        return batteries;
+    }
+
+    private static void encodeRecord(Writer out, Battery battery) {
+        String postcode = battery.getPostcode();
+        boolean packed = isFourDigits(postcode);
+        int flags = (battery.getId() != null ? FLAG_HAS_ID : 0) | (packed ? FLAG_POSTCODE_PACKED : 0);
+        out.write(flags);
+        if (battery.getId() != null) {
+            out.writeVarint(battery.getId());
+        }
+        out.writeString(battery.getName());
+        if (packed) {
+            int value = Integer.parseInt(postcode);
+            out.write(value >>> 8);
+            out.write(value);
+        } else {
+            out.writeString(postcode);
+        }
+        out.writeVarint(zigzag(battery.getWattCapacity()));
+    }
+
+    private static Battery decodeRecord(Reader in) {
+        int flags = in.readByte();
+        Battery battery = new Battery();
+        if ((flags & FLAG_HAS_ID) != 0) {
+            battery.setId(in.readVarint());
+        }
+        battery.setName(in.readString());
+        if ((flags & FLAG_POSTCODE_PACKED) != 0) {
+            int value = (in.readByte() << 8) | in.readByte();
+            battery.setPostcode(formatPostcode(value));
+        } else {
+            battery.setPostcode(in.readString());
+        }
+        battery.setWattCapacity(unzigzag(in.readVarint()));
+        return battery;
+    }
+
+    private static boolean isFourDigits(String postcode) {
+        if (postcode == null || postcode.length() != 4) {
+            return false;
+        }
+        for (int i = 0; i < 4; i++) {
+            char c = postcode.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String formatPostcode(int value) {
+        char[] digits = new char[4];
+        for (int i = 3; i >= 0; i--) {
+            digits[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(digits);
+    }
+
+    private static long zigzag(int value) {
+        return ((long) value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int size;
+
+        Writer(int initialCapacity) {
+            this.buffer = new byte[initialCapacity];
+        }
+
+        void write(int b) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) b;
+        }
+
+        void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1L);
+            write(bytes, 0, bytes.length);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int readByte() {
+            if (position >= buffer.length) {
+                throw new MessageConversionException("Truncated battery batch");
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new MessageConversionException("Malformed varint in battery batch");
+        }
+
+        /**
+         * Reads a count or byte length, which can never exceed the bytes left in the body.
+         */
+        int readLength() {
+            long length = readVarint();
+            if (length < 0 || length > buffer.length - position) {
+                throw new MessageConversionException("Length " + length + " exceeds the remaining "
+                        + (buffer.length - position) + " bytes of battery batch");
+            }
+            return (int) length;
+        }
+
+        String readString() {
+            long length = readVarint();
+            if (length == 0) {
+                return null;
+            }
+            if (length < 0 || length - 1 > buffer.length - position) {
+                throw new MessageConversionException("Truncated battery batch");
+            }
+            int byteLength = (int) (length - 1);
+            String value = new String(buffer, position, byteLength, StandardCharsets.UTF_8);
+            position += byteLength;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.battery_api.messaging;
+
+import com.example.battery_api.model.Battery;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.List;
+
+/**
+ * Message converter that negotiates the battery batch wire format by content type.
+ *
+ * Incoming messages with the {@link #CONTENT_TYPE} content type are decoded with {@link BatteryBatchCodec};
+ * anything else (for example Java-serialized batches from producers that have not been upgraded yet) is
+ * handed to the delegate. Outgoing battery batches are written in the binary format unless binary
+ * encoding is switched off, which keeps producers compatible with old consumers during a rollout.
+ */
+public class BatteryBatchMessageConverter implements MessageConverter {
+    public static final String CONTENT_TYPE = "application/x-battery-batch";
+
+    private final MessageConverter delegate;
+    private final boolean binaryEncoding;
+
+    public BatteryBatchMessageConverter(MessageConverter delegate, boolean binaryEncoding) {
+        this.delegate = delegate;
+        this.binaryEncoding = binaryEncoding;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) throws MessageConversionException {
+        if (!binaryEncoding || !isBatteryList(object)) {
+            return delegate.toMessage(object, messageProperties);
+        }
+        MessageProperties properties = messageProperties != null ? messageProperties : new MessageProperties();
+        @SuppressWarnings("unchecked")
+        byte[] body = BatteryBatchCodec.encode((List<Battery>) object);
+        properties.setContentType(CONTENT_TYPE);
+        properties.setContentLength(body.length);
+        return new Message(body, properties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws MessageConversionException {
+        String contentType = message.getMessageProperties().getContentType();
+        if (contentType == null || !contentType.startsWith(CONTENT_TYPE)) {
+            return delegate.fromMessage(message);
+        }
+        try {
+            return BatteryBatchCodec.decode(message.getBody());
+        } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+            throw new MessageConversionException("Failed to decode battery batch", ex);
+        }
+    }
+
+    private static boolean isBatteryList(Object object) {
+        if (!(object instanceof List<?> list)) {
+            return false;
+        }
+        for (Object element : list) {
+            if (!(element instanceof Battery)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
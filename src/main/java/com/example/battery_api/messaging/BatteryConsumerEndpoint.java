@@ -0,0 +1,33 @@
+package com.example.battery_api.messaging;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint ({@code /actuator/batteryconsumers}) that reports the battery queue consumer count
+ * and its recent changes, and lets operators set the count by hand.
+ */
+@Component
+@Endpoint(id = "batteryconsumers")
+public class BatteryConsumerEndpoint {
+    private final BatteryConsumerScaler scaler;
+
+    public BatteryConsumerEndpoint(BatteryConsumerScaler scaler) {
+        this.scaler = scaler;
+    }
+
+    @ReadOperation
+    public Map<String, Object> consumers() {
+        return scaler.status();
+    }
+
+    @WriteOperation
+    public Map<String, Object> setConsumers(int consumers) {
+        scaler.setConsumers(consumers);
+        return scaler.status();
+    }
+}
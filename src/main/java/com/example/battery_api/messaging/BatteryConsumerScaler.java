@@ -0,0 +1,256 @@
+package com.example.battery_api.messaging;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adjusts the number of battery queue consumers between a minimum and a maximum.
+ *
+ * The scaler is installed as advice on the listener container, so it times every message the consumer
+ * persists and keeps a moving average of that latency. In adaptive mode it periodically compares the
+ * queue depth and the average latency against its targets and adds or removes one consumer at a time:
+ * a backlog with healthy latency scales up, slow persists or an empty queue scale down. The number of
+ * consumers never exceeds the datasource pool size minus the connections reserved for HTTP requests.
+ */
+@Component
+public class BatteryConsumerScaler implements MethodInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(BatteryConsumerScaler.class);
+
+    public static final String LISTENER_ID = "batteryConsumer";
+    public static final String BATCH_LISTENER_ID = "batteryBatchConsumer";
+
+    private static final int HISTORY_SIZE = 20;
+    // Weight of the newest sample in the persist latency moving average
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final RabbitListenerEndpointRegistry listenerRegistry;
+    private final AmqpAdmin amqpAdmin;
+    private final DataSource dataSource;
+    private final String queueName;
+    private final boolean adaptive;
+    private final int minConsumers;
+    private final int maxConsumers;
+    private final long targetLatencyMillis;
+    private final int backlogPerConsumer;
+    private final int reservedConnections;
+
+    private final Deque<Map<String, Object>> history = new ArrayDeque<>();
+    private double averageLatencyMillis = -1;
+    private long lastQueueDepth = -1;
+
+    public BatteryConsumerScaler(RabbitListenerEndpointRegistry listenerRegistry,
+                                 AmqpAdmin amqpAdmin,
+                                 DataSource dataSource,
+                                 @Value("${rabbitmq.queue.batteries}") String queueName,
+                                 @Value("${battery.consumer.adaptive.enabled:false}") boolean adaptive,
+                                 @Value("${battery.consumer.adaptive.min-consumers:1}") int minConsumers,
+                                 @Value("${battery.consumer.adaptive.max-consumers:16}") int maxConsumers,
+                                 @Value("${battery.consumer.adaptive.target-latency-ms:500}") long targetLatencyMillis,
+                                 @Value("${battery.consumer.adaptive.backlog-per-consumer:4}") int backlogPerConsumer,
+                                 @Value("${battery.consumer.adaptive.reserved-connections:4}") int reservedConnections) {
+        if (minConsumers < 1 || maxConsumers < minConsumers) {
+            throw new IllegalArgumentException("battery.consumer.adaptive requires 1 <= min-consumers <= max-consumers");
+        }
+        this.listenerRegistry = listenerRegistry;
+        this.amqpAdmin = amqpAdmin;
+        this.dataSource = dataSource;
+        this.queueName = queueName;
+        this.adaptive = adaptive;
+        this.minConsumers = minConsumers;
+        this.maxConsumers = maxConsumers;
+        this.targetLatencyMillis = targetLatencyMillis;
+        this.backlogPerConsumer = backlogPerConsumer;
+        this.reservedConnections = reservedConnections;
+    }
+
+    /**
+     * Times one listener invocation: a single message, or a coalesced group of messages in batch mode.
+     */
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            recordLatency((System.nanoTime() - start) / 1_000_000.0);
+        }
+    }
+
+    synchronized void recordLatency(double millis) {
+        averageLatencyMillis = averageLatencyMillis < 0
+                ? millis
+                : LATENCY_SMOOTHING * millis + (1 - LATENCY_SMOOTHING) * averageLatencyMillis;
+    }
+
+    /**
+     * Re-evaluates the consumer count. Does nothing unless adaptive mode is enabled.
+     */
+    @Scheduled(fixedDelayString = "${battery.consumer.adaptive.interval-ms:5000}")
+    public void adjust() {
+        SimpleMessageListenerContainer container = container();
+        if (!adaptive || container == null || !container.isRunning()) {
+            return;
+        }
+        QueueInformation queue = amqpAdmin.getQueueInfo(queueName);
+        if (queue == null) {
+            return;
+        }
+        lastQueueDepth = queue.getMessageCount();
+
+        int current = container.getActiveConsumerCount();
+        int desired = desiredConsumers(current, lastQueueDepth, averageLatency());
+        if (desired != current) {
+            apply(container, current, desired, "adaptive: depth=" + lastQueueDepth
+                    + ", latencyMs=" + Math.round(averageLatency()));
+        }
+    }
+
+    /**
+     * Sets the consumer count by hand, clamped to the configured bounds and the connection cap.
+     *
+     * @return The consumer count that was applied
+     */
+    public int setConsumers(int consumers) {
+        SimpleMessageListenerContainer container = container();
+        if (container == null) {
+            throw new IllegalStateException("No battery listener container is registered");
+        }
+        int current = container.getActiveConsumerCount();
+        int desired = clamp(consumers);
+        if (desired != current) {
+            apply(container, current, desired, "manual");
+        }
+        return desired;
+    }
+
+    /**
+     * Decides the next consumer count from the queue depth and the persist latency.
+     */
+    int desiredConsumers(int current, long queueDepth, double latencyMillis) {
+        int desired = current;
+        if (latencyMillis > targetLatencyMillis) {
+            // The database is the bottleneck; more consumers would only queue up on connections
+            desired = current - 1;
+        } else if (queueDepth > (long) current * backlogPerConsumer) {
+            desired = current + 1;
+        } else if (queueDepth == 0) {
+            desired = current - 1;
+        }
+        return clamp(desired);
+    }
+
+    /**
+     * The most consumers this scaler will run, adaptively or when set by hand: max-consumers, capped at the
+     * connection cap but never below min-consumers.
+     */
+    public int consumerLimit() {
+        return Math.max(minConsumers, Math.min(maxConsumers, connectionCap()));
+    }
+
+    int connectionCap() {
+        HikariDataSource hikari = pool();
+        if (hikari != null) {
+            return Math.max(1, hikari.getMaximumPoolSize() - reservedConnections);
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    // The datasource bean may be the instrumenting proxy around the pool
+    private HikariDataSource pool() {
+        if (dataSource instanceof HikariDataSource hikari) {
+            return hikari;
+        }
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException ex) {
+            return null;
+        }
+    }
+
+    private int clamp(int consumers) {
+        return Math.max(minConsumers, Math.min(consumerLimit(), consumers));
+    }
+
+    private synchronized double averageLatency() {
+        return averageLatencyMillis;
+    }
+
+    private void apply(SimpleMessageListenerContainer container, int current, int desired, String reason) {
+        // The container rejects a concurrent count above its maximum, so order the two updates
+        if (desired > current) {
+            container.setMaxConcurrentConsumers(desired);
+            container.setConcurrentConsumers(desired);
+        } else {
+            container.setConcurrentConsumers(desired);
+            container.setMaxConcurrentConsumers(desired);
+        }
+        Map<String, Object> change = new LinkedHashMap<>();
+        change.put("timestamp", Instant.now().toString());
+        change.put("from", current);
+        change.put("to", desired);
+        change.put("reason", reason);
+        synchronized (history) {
+            if (history.size() == HISTORY_SIZE) {
+                history.removeFirst();
+            }
+            history.addLast(change);
+        }
+        logger.info("Battery consumers changed from {} to {} ({})", current, desired, reason);
+    }
+
+    // The consumer of the active mode: the coalescing batch listener when it runs, otherwise the per-message one
+    private SimpleMessageListenerContainer container() {
+        MessageListenerContainer batch = listenerRegistry.getListenerContainer(BATCH_LISTENER_ID);
+        if (batch instanceof SimpleMessageListenerContainer simple && simple.isRunning()) {
+            return simple;
+        }
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(LISTENER_ID);
+        return container instanceof SimpleMessageListenerContainer simple ? simple : null;
+    }
+
+    /**
+     * Current consumer settings, measurements and the most recent concurrency changes.
+     */
+    public Map<String, Object> status() {
+        SimpleMessageListenerContainer container = container();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("adaptive", adaptive);
+        status.put("activeConsumers", container != null ? container.getActiveConsumerCount() : 0);
+        status.put("minConsumers", minConsumers);
+        status.put("maxConsumers", maxConsumers);
+        status.put("connectionCap", connectionCap());
+        status.put("queueDepth", lastQueueDepth);
+        status.put("averagePersistLatencyMs", Math.round(averageLatency()));
+        synchronized (history) {
+            status.put("recentChanges", new ArrayList<>(history));
+        }
+        return status;
+    }
+
+    List<Map<String, Object>> history() {
+        synchronized (history) {
+            return new ArrayList<>(history);
+        }
+    }
+}
@@ -12,11 +12,19 @@ import java.io.Serializable;
 @Data
 public class Battery implements Serializable {
 
+    /**
+     * Number of ids reserved per battery_seq call (pooled-lo optimizer).
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     /**
      * Unique identifier for the battery.
+     * Allocated from a pooled sequence (blocks of 50, matching hibernate.jdbc.batch_size)
+     * so Hibernate can batch inserts instead of round-tripping for every IDENTITY value.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "battery_seq")
+    @SequenceGenerator(name = "battery_seq", sequenceName = "battery_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     /**
@@ -28,8 +36,10 @@ public class Battery implements Serializable {
 
     /**
      * Postcode where the battery is located.
+     * Stored as a smallint (see {@link PostcodeConverter}), exposed as the four-digit string.
      * This field cannot be null.
      */
+    @Convert(converter = PostcodeConverter.class)
     @Column(nullable = false)
     private String postcode;
 
@@ -0,0 +1,39 @@
+package com.example.battery_api.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores four-digit postcodes as a smallint while the entity and the REST contract keep the zero-padded
+ * string form ("0200" is stored as 200 and read back as "0200").
+ * Range predicates on the column then compare integers instead of collated strings.
+ */
+@Converter
+public class PostcodeConverter implements AttributeConverter<String, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(String postcode) {
+        if (postcode == null) {
+            return null;
+        }
+        short value = Short.parseShort(postcode);
+        if (value < 0 || value > 9999) {
+            throw new IllegalArgumentException("Postcode must have at most 4 digits: " + postcode);
+        }
+        return value;
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short value) {
+        if (value == null) {
+            return null;
+        }
+        char[] digits = new char[4];
+        int remaining = value;
+        for (int i = 3; i >= 0; i--) {
+            digits[i] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        return new String(digits);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.battery_api.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Record of the message chunks (batch ID, chunk index) whose batteries have been committed.
+ *
+ * A chunk is claimed in the same transaction that persists its batteries, so the claim commits or rolls back
+ * together with them. A broker redelivery of a chunk that already committed (for example because the ack was lost
+ * when a consumer died) finds the claim and is skipped instead of inserting the batteries twice. If two consumers
+ * receive the same chunk at once, the second insert waits on the primary key until the first transaction ends.
+ *
+ * Claims older than battery.idempotency.chunk-retention-ms are deleted; redeliveries come long before that.
+ */
+@Repository
+public class BatteryChunkLedger {
+    private static final Logger logger = LoggerFactory.getLogger(BatteryChunkLedger.class);
+
+    private static final String CLAIM_SQL =
+            "INSERT INTO battery_ingested_chunk (batch_id, chunk_index) VALUES (?, ?) ON CONFLICT DO NOTHING";
+    private static final String PURGE_SQL =
+            "DELETE FROM battery_ingested_chunk WHERE committed_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long retentionMillis;
+
+    public BatteryChunkLedger(JdbcTemplate jdbcTemplate,
+                              @Value("${battery.idempotency.chunk-retention-ms:604800000}") long retentionMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * Claims the chunk in the current transaction.
+     * @return true if this is the first delivery of the chunk to commit, false if it was already claimed
+     */
+    public boolean claim(String batchId, int chunkIndex) {
+        return jdbcTemplate.update(CLAIM_SQL, batchId, chunkIndex) == 1;
+    }
+
+    @Scheduled(fixedDelayString = "${battery.idempotency.chunk-purge-interval-ms:3600000}")
+    public void purgeExpiredClaims() {
+        int purged = jdbcTemplate.update(PURGE_SQL, Timestamp.from(Instant.now().minusMillis(retentionMillis)));
+        if (purged > 0) {
+            logger.debug("Purged {} ingested chunk claims older than {} ms", purged, retentionMillis);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.battery_api.repository;
+
+import com.example.battery_api.model.Battery;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.SQLExceptionSubclassTranslator;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Bulk-loads batteries through PostgreSQL's COPY protocol.
+ * Used instead of JPA inserts for batches at or above the configured threshold.
+ *
+ * The COPY runs on the connection bound to the surrounding Spring transaction, so it commits or
+ * rolls back together with the rest of the transaction (and therefore with the listener's ack).
+ */
+@Repository
+public class BatteryCopyLoader {
+    private static final Logger logger = LoggerFactory.getLogger(BatteryCopyLoader.class);
+
+    private static final String COPY_SQL =
+            "COPY battery (id, name, postcode, watt_capacity) FROM STDIN WITH (FORMAT csv)";
+    private static final String ALLOCATE_IDS_SQL =
+            "SELECT nextval('battery_seq') FROM generate_series(1, ?)";
+    private static final int FLUSH_THRESHOLD_CHARS = 64 * 1024;
+
+    private final DataSource dataSource;
+    private final int copyThreshold;
+    private final SQLExceptionTranslator exceptionTranslator = new SQLExceptionSubclassTranslator();
+
+    public BatteryCopyLoader(DataSource dataSource,
+                             @Value("${battery.persistence.copy-threshold:1000}") int copyThreshold) {
+        this.dataSource = dataSource;
+        this.copyThreshold = copyThreshold;
+    }
+
+    /**
+     * @param batchSize Number of batteries about to be persisted
+     * @return true if the batch is large enough to go through COPY; a threshold of 0 or less disables COPY
+     */
+    public boolean shouldHandle(int batchSize) {
+        return copyThreshold > 0 && batchSize >= copyThreshold;
+    }
+
+    /**
+     * Streams the batteries into the battery table with COPY FROM STDIN.
+     * Ids are reserved from battery_seq in the same blocks Hibernate's pooled-lo optimizer uses,
+     * and are set on the given entities.
+     *
+     * @param batteries Batteries to insert; must not contain null elements
+     * @return The same batteries, with ids assigned
+     */
+    public List<Battery> copy(List<Battery> batteries) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            assignIds(connection, batteries);
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+            try {
+                StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD_CHARS + 512);
+                for (Battery battery : batteries) {
+                    appendCsvRow(buffer, battery);
+                    if (buffer.length() >= FLUSH_THRESHOLD_CHARS) {
+                        writeTo(copyIn, buffer);
+                    }
+                }
+                writeTo(copyIn, buffer);
+                long rows = copyIn.endCopy();
+                logger.debug("Copied {} batteries into the battery table", rows);
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+            return batteries;
+        } catch (SQLException ex) {
+            throw translate(ex);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private void assignIds(Connection connection, List<Battery> batteries) throws SQLException {
+        for (int i = 0; i < batteries.size(); i++) {
+            if (batteries.get(i) == null) {
+                throw new NullPointerException("Battery at index " + i + " is null.");
+            }
+        }
+        int blocks = (batteries.size() + Battery.ID_ALLOCATION_SIZE - 1) / Battery.ID_ALLOCATION_SIZE;
+        try (PreparedStatement statement = connection.prepareStatement(ALLOCATE_IDS_SQL)) {
+            statement.setInt(1, blocks);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                int index = 0;
+                while (resultSet.next()) {
+                    long blockStart = resultSet.getLong(1);
+                    for (int offset = 0; offset < Battery.ID_ALLOCATION_SIZE && index < batteries.size(); offset++) {
+                        batteries.get(index++).setId(blockStart + offset);
+                    }
+                }
+            }
+        }
+    }
+
+    static void appendCsvRow(StringBuilder buffer, Battery battery) {
+        buffer.append(battery.getId()).append(',');
+        appendCsvValue(buffer, battery.getName());
+        buffer.append(',');
+        appendCsvValue(buffer, battery.getPostcode());
+        buffer.append(',').append(battery.getWattCapacity()).append('\n');
+    }
+
+    private static void appendCsvValue(StringBuilder buffer, String value) {
+        if (value == null) {
+            // An unquoted empty field is NULL in CSV COPY; the NOT NULL constraint reports it
+            return;
+        }
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer.append('"');
+            }
+            buffer.append(c);
+        }
+        buffer.append('"');
+    }
+
+    private static void writeTo(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    private RuntimeException translate(SQLException ex) {
+        RuntimeException translated = exceptionTranslator.translate("COPY battery", COPY_SQL, ex);
+        return translated != null ? translated : new DataAccessResourceFailureException("COPY into battery failed", ex);
+    }
+}
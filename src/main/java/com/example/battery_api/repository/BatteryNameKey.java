@@ -0,0 +1,11 @@
+package com.example.battery_api.repository;
+
+/**
+ * Name and id of a battery: the sort key of the paginated /with-range listing.
+ */
+public interface BatteryNameKey {
+
+    String getName();
+
+    long getId();
+}
@@ -0,0 +1,13 @@
+package com.example.battery_api.repository;
+
+/**
+ * Aggregates over the batteries matching a postcode and capacity range, computed by the database.
+ */
+public interface BatteryRangeStatistics {
+
+    long getTotalBatteries();
+
+    long getTotalCapacity();
+
+    double getAverageCapacity();
+}
@@ -1,13 +1,125 @@
 package com.example.battery_api.repository;
 
 import com.example.battery_api.model.Battery;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface BatteryRepository extends JpaRepository<Battery, Long> {
+    /**
+     * Rows fetched per round trip while streaming an export. PostgreSQL only honours it inside a transaction.
+     */
+    String EXPORT_FETCH_SIZE = "1000";
+
     List<Battery> findByPostcodeBetween(String start, String end);
 
     List<Battery> findByPostcodeBetweenAndWattCapacityBetween(
             String startPostcode, String endPostcode, int minCapacity, int maxCapacity);
-}
\ No newline at end of file
+
+    /**
+     * Count, sum and average of the watt capacities in the range, without loading any entities.
+     * Sum and average are 0 when nothing matches.
+     */
+    @Query("""
+            select count(b) as totalBatteries,
+                   coalesce(sum(b.wattCapacity), 0) as totalCapacity,
+                   coalesce(avg(b.wattCapacity), 0.0) as averageCapacity
+            from Battery b
+            where b.postcode between :startPostcode and :endPostcode
+              and b.wattCapacity between :minCapacity and :maxCapacity""")
+    BatteryRangeStatistics findStatisticsByPostcodeAndCapacityRange(
+            @Param("startPostcode") String startPostcode, @Param("endPostcode") String endPostcode,
+            @Param("minCapacity") int minCapacity, @Param("maxCapacity") int maxCapacity);
+
+    /**
+     * Names of the batteries in the range, sorted by the database.
+     * The "C" collation compares by code point, so the order matches the String ordering the endpoint returned
+     * when it sorted in Java, independent of the database locale.
+     */
+    @Query(value = """
+            select b.name
+            from battery b
+            where b.postcode between cast(:startPostcode as smallint) and cast(:endPostcode as smallint)
+              and b.watt_capacity between :minCapacity and :maxCapacity
+            order by b.name collate "C"
+            """, nativeQuery = true)
+    List<String> findNamesByPostcodeAndCapacityRange(
+            @Param("startPostcode") String startPostcode, @Param("endPostcode") String endPostcode,
+            @Param("minCapacity") int minCapacity, @Param("maxCapacity") int maxCapacity);
+
+    /**
+     * First page of the batteries in the range, ordered by name ("C" collation) and then id.
+     */
+    @Query(value = """
+            select b.name, b.id
+            from battery b
+            where b.postcode between cast(:startPostcode as smallint) and cast(:endPostcode as smallint)
+              and b.watt_capacity between :minCapacity and :maxCapacity
+            order by b.name collate "C", b.id
+            limit :limit
+            """, nativeQuery = true)
+    List<BatteryNameKey> findFirstNamePageByPostcodeAndCapacityRange(
+            @Param("startPostcode") String startPostcode, @Param("endPostcode") String endPostcode,
+            @Param("minCapacity") int minCapacity, @Param("maxCapacity") int maxCapacity, @Param("limit") int limit);
+
+    /**
+     * Next page of the batteries in the range: the rows sorting after (afterName, afterId).
+     * The row comparison matches the leading columns of battery_name_id_idx, so PostgreSQL seeks straight to the
+     * cursor instead of skipping the earlier rows the way OFFSET does; every page costs the same however deep it is.
+     */
+    @Query(value = """
+            select b.name, b.id
+            from battery b
+            where b.postcode between cast(:startPostcode as smallint) and cast(:endPostcode as smallint)
+              and b.watt_capacity between :minCapacity and :maxCapacity
+              and (b.name collate "C", b.id) > (cast(:afterName as varchar) collate "C", :afterId)
+            order by b.name collate "C", b.id
+            limit :limit
+            """, nativeQuery = true)
+    List<BatteryNameKey> findNamePageAfterByPostcodeAndCapacityRange(
+            @Param("startPostcode") String startPostcode, @Param("endPostcode") String endPostcode,
+            @Param("minCapacity") int minCapacity, @Param("maxCapacity") int maxCapacity,
+            @Param("afterName") String afterName, @Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * Whether a battery with exactly this name, postcode and capacity is stored.
+     * The name equality in the "C" collation lets PostgreSQL probe battery_name_id_idx, whose included postcode and
+     * capacity columns answer the rest without visiting the table.
+     */
+    @Query(value = """
+            select exists (
+                select 1
+                from battery b
+                where b.name collate "C" = cast(:name as varchar) collate "C"
+                  and b.postcode = cast(:postcode as smallint)
+                  and b.watt_capacity = :wattCapacity)
+            """, nativeQuery = true)
+    boolean existsByNameAndPostcodeAndWattCapacity(
+            @Param("name") String name, @Param("postcode") String postcode, @Param("wattCapacity") int wattCapacity);
+
+    /**
+     * Streams the batteries in the range in id order, for exports too large to hold in a list.
+     * Rows are fetched from a server-side cursor {@link #EXPORT_FETCH_SIZE} at a time and loaded read-only, so the
+     * caller must consume the stream inside a transaction, close it, and detach each battery once it is written.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("""
+            select b
+            from Battery b
+            where b.postcode between :startPostcode and :endPostcode
+              and b.wattCapacity between :minCapacity and :maxCapacity
+            order by b.id""")
+    Stream<Battery> streamByPostcodeAndCapacityRange(
+            @Param("startPostcode") String startPostcode, @Param("endPostcode") String endPostcode,
+            @Param("minCapacity") int minCapacity, @Param("maxCapacity") int maxCapacity);
+}
@@ -0,0 +1,107 @@
+package com.example.battery_api.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint ({@code /actuator/hibernatestats}) that reports Hibernate's session statistics (query counts
+ * and times, sessions, flushes, statement and cache counters) next to the JDBC-level statement statistics and
+ * slow-query log of {@link SqlExecutionRecorder}. A DELETE resets both.
+ *
+ * Hibernate only collects its part with hibernate.generate_statistics=true.
+ */
+@Component
+@Endpoint(id = "hibernatestats")
+public class HibernateStatisticsEndpoint {
+    // Queries and statements listed, by total execution time
+    private static final int TOP_STATEMENTS = 50;
+
+    private final Statistics statistics;
+    private final SqlExecutionRecorder recorder;
+
+    public HibernateStatisticsEndpoint(EntityManagerFactory entityManagerFactory, SqlExecutionRecorder recorder) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.recorder = recorder;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("enabled", statistics.isStatisticsEnabled());
+        report.put("since", statistics.getStart());
+
+        Map<String, Object> sessions = new LinkedHashMap<>();
+        sessions.put("opened", statistics.getSessionOpenCount());
+        sessions.put("closed", statistics.getSessionCloseCount());
+        sessions.put("transactions", statistics.getTransactionCount());
+        sessions.put("successfulTransactions", statistics.getSuccessfulTransactionCount());
+        sessions.put("flushes", statistics.getFlushCount());
+        sessions.put("connections", statistics.getConnectCount());
+        sessions.put("preparedStatements", statistics.getPrepareStatementCount());
+        sessions.put("closedStatements", statistics.getCloseStatementCount());
+        report.put("sessions", sessions);
+
+        Map<String, Object> entities = new LinkedHashMap<>();
+        entities.put("inserts", statistics.getEntityInsertCount());
+        entities.put("updates", statistics.getEntityUpdateCount());
+        entities.put("deletes", statistics.getEntityDeleteCount());
+        entities.put("loads", statistics.getEntityLoadCount());
+        entities.put("fetches", statistics.getEntityFetchCount());
+        report.put("entities", entities);
+
+        Map<String, Object> queries = new LinkedHashMap<>();
+        queries.put("executions", statistics.getQueryExecutionCount());
+        queries.put("maxTimeMs", statistics.getQueryExecutionMaxTime());
+        queries.put("slowestQuery", statistics.getQueryExecutionMaxTimeQueryString());
+        queries.put("planCacheHits", statistics.getQueryPlanCacheHitCount());
+        queries.put("planCacheMisses", statistics.getQueryPlanCacheMissCount());
+        queries.put("top", Arrays.stream(statistics.getQueries())
+                .map(query -> describe(query, statistics.getQueryStatistics(query)))
+                .sorted(Comparator.comparingLong((Map<String, Object> query) -> (long) query.get("totalTimeMs"))
+                        .reversed())
+                .limit(TOP_STATEMENTS)
+                .toList());
+        report.put("queries", queries);
+
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("secondLevelHits", statistics.getSecondLevelCacheHitCount());
+        cache.put("secondLevelMisses", statistics.getSecondLevelCacheMissCount());
+        cache.put("secondLevelPuts", statistics.getSecondLevelCachePutCount());
+        cache.put("queryHits", statistics.getQueryCacheHitCount());
+        cache.put("queryMisses", statistics.getQueryCacheMissCount());
+        cache.put("queryPuts", statistics.getQueryCachePutCount());
+        report.put("cache", cache);
+
+        report.put("jdbc", recorder.snapshot(TOP_STATEMENTS));
+        return report;
+    }
+
+    @DeleteOperation
+    public Map<String, Object> reset() {
+        statistics.clear();
+        recorder.reset();
+        return statistics();
+    }
+
+    private static Map<String, Object> describe(String query, QueryStatistics stats) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("query", query);
+        description.put("executions", stats.getExecutionCount());
+        description.put("rows", stats.getExecutionRowCount());
+        description.put("totalTimeMs", stats.getExecutionTotalTime());
+        description.put("meanTimeMs", stats.getExecutionAvgTimeAsDouble());
+        description.put("maxTimeMs", stats.getExecutionMaxTime());
+        return description;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.battery_api.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-statement execution statistics and a slow-query log for every SQL statement sent through the application
+ * datasource (JPA, Spring Data and JdbcTemplate alike, but not COPY), fed by {@link SqlInstrumentation} when
+ * battery.sql.instrumentation.enabled=true.
+ *
+ * Statements slower than the threshold are logged at WARN by this class's logger and kept in a bounded list of the
+ * most recent ones, with their SQL and bind shape: the JDBC type of each parameter, never its value, and the number
+ * of rows for a batch. That keeps slow statements visible with show_sql and statement logging switched off.
+ */
+@Component
+public class SqlExecutionRecorder {
+    private static final Logger logger = LoggerFactory.getLogger(SqlExecutionRecorder.class);
+    // Statements beyond this many distinct SQL strings are only counted in the totals
+    private static final int MAX_TRACKED_STATEMENTS = 500;
+
+    private final long slowQueryThresholdNanos;
+    private final int slowQueryLogSize;
+    private final LongSupplier currentTimeMillis;
+    private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final ArrayDeque<SlowQuery> slowQueries;
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedRows = new LongAdder();
+    private final LongAdder slowCount = new LongAdder();
+
+    @Autowired
+    public SqlExecutionRecorder(@Value("${battery.sql.slow-query-threshold-ms:200}") long slowQueryThresholdMillis,
+                                @Value("${battery.sql.slow-query-log-size:100}") int slowQueryLogSize) {
+        this(slowQueryThresholdMillis, slowQueryLogSize, System::currentTimeMillis);
+    }
+
+    SqlExecutionRecorder(long slowQueryThresholdMillis, int slowQueryLogSize, LongSupplier currentTimeMillis) {
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+        this.slowQueryLogSize = slowQueryLogSize;
+        this.currentTimeMillis = currentTimeMillis;
+        this.slowQueries = new ArrayDeque<>(slowQueryLogSize);
+    }
+
+    /**
+     * A slow statement: when it finished, how long it took, its SQL and the JDBC types it was bound with.
+     */
+    public record SlowQuery(Instant finishedAt, double durationMillis, String sql, List<String> parameterTypes,
+                            int batchRows) {
+    }
+
+    /**
+     * Records one execution.
+     * @param sql The statement text, with placeholders
+     * @param parameterTypes JDBC setter types per parameter position, e.g. String, Int, Null
+     * @param batchRows Rows in the batch, or 0 for a single execution
+     * @param nanos Execution time
+     */
+    public void record(String sql, List<String> parameterTypes, int batchRows, long nanos) {
+        executions.increment();
+        if (batchRows > 0) {
+            batches.increment();
+            batchedRows.add(batchRows);
+        }
+        StatementStats stats = statements.get(sql);
+        if (stats == null && statements.size() < MAX_TRACKED_STATEMENTS) {
+            stats = statements.computeIfAbsent(sql, key -> new StatementStats());
+        }
+        if (stats != null) {
+            stats.record(batchRows, nanos);
+        }
+
+        if (nanos >= slowQueryThresholdNanos) {
+            slowCount.increment();
+            SlowQuery slowQuery = new SlowQuery(Instant.ofEpochMilli(currentTimeMillis.getAsLong()), nanos / 1e6, sql,
+                    List.copyOf(parameterTypes), batchRows);
+            logger.warn("Slow SQL ({} ms{}): {} {}", String.format("%.1f", slowQuery.durationMillis()),
+                    batchRows > 0 ? ", batch of " + batchRows : "", sql, parameterTypes);
+            if (slowQueryLogSize > 0) {
+                synchronized (slowQueries) {
+                    if (slowQueries.size() == slowQueryLogSize) {
+                        slowQueries.removeFirst();
+                    }
+                    slowQueries.addLast(slowQuery);
+                }
+            }
+        }
+    }
+
+    /**
+     * Totals, the statements with the highest total execution time, and the slow-query log (most recent first).
+     */
+    public Map<String, Object> snapshot(int limit) {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("executions", executions.sum());
+        snapshot.put("batches", batches.sum());
+        snapshot.put("batchedRows", batchedRows.sum());
+        snapshot.put("slowQueryThresholdMs", TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos));
+        snapshot.put("slowQueryCount", slowCount.sum());
+
+        // Described first, so the sort sees consistent totals while executions keep being recorded
+        snapshot.put("statements", statements.entrySet().stream()
+                .map(entry -> entry.getValue().describe(entry.getKey()))
+                .sorted(Comparator.comparingDouble((Map<String, Object> statement) -> (double) statement.get("totalMs"))
+                        .reversed())
+                .limit(limit)
+                .toList());
+
+        List<SlowQuery> recent = new ArrayList<>();
+        synchronized (slowQueries) {
+            slowQueries.descendingIterator().forEachRemaining(recent::add);
+        }
+        snapshot.put("slowQueries", recent);
+        return snapshot;
+    }
+
+    public void reset() {
+        statements.clear();
+        executions.reset();
+        batches.reset();
+        batchedRows.reset();
+        slowCount.reset();
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+
+    private static final class StatementStats {
+        private long count;
+        private long batches;
+        private long rows;
+        private long totalNanos;
+        private long maxNanos;
+
+        synchronized void record(int batchRows, long nanos) {
+            count++;
+            if (batchRows > 0) {
+                batches++;
+                rows += batchRows;
+            }
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        synchronized Map<String, Object> describe(String sql) {
+            Map<String, Object> description = new LinkedHashMap<>();
+            description.put("sql", sql);
+            description.put("executions", count);
+            description.put("batches", batches);
+            description.put("batchedRows", rows);
+            description.put("totalMs", totalNanos / 1e6);
+            description.put("meanMs", count == 0 ? 0.0 : totalNanos / 1e6 / count);
+            description.put("maxMs", maxNanos / 1e6);
+            return description;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.battery_api.repository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wraps a datasource so that every statement executed on its connections is timed and reported to a
+ * {@link SqlExecutionRecorder}, together with its SQL and the JDBC setter used for each parameter.
+ *
+ * The wrappers are plain JDK proxies over the JDBC interfaces; {@code unwrap} and {@code isWrapperFor} fall through
+ * to the pooled objects, so vendor access such as {@code connection.unwrap(PGConnection.class)} for COPY and
+ * {@code dataSource.unwrap(HikariDataSource.class)} keep working. Work done through an unwrapped object is not
+ * recorded, so COPY bulk loads do not appear in the statistics.
+ */
+public final class SqlInstrumentation {
+
+    private SqlInstrumentation() {
+    }
+
+    public static DataSource wrap(DataSource dataSource, SqlExecutionRecorder recorder) {
+        return proxy(DataSource.class, new DataSourceHandler(dataSource, recorder));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(SqlInstrumentation.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private abstract static class DelegatingHandler implements InvocationHandler {
+        protected final Object target;
+
+        DelegatingHandler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Instrumented " + target;
+                case "unwrap":
+                    return ((Class<?>) args[0]).isInstance(proxy) ? proxy : delegate(method, args);
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy) || (boolean) delegate(method, args);
+                default:
+                    return handle(proxy, method, args);
+            }
+        }
+
+        abstract Object handle(Object proxy, Method method, Object[] args) throws Throwable;
+
+        final Object delegate(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+
+    private static final class DataSourceHandler extends DelegatingHandler {
+        private final SqlExecutionRecorder recorder;
+
+        DataSourceHandler(DataSource target, SqlExecutionRecorder recorder) {
+            super(target);
+            this.recorder = recorder;
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = delegate(method, args);
+            return "getConnection".equals(method.getName())
+                    ? proxy(Connection.class, new ConnectionHandler((Connection) result, recorder))
+                    : result;
+        }
+    }
+
+    private static final class ConnectionHandler extends DelegatingHandler {
+        private final SqlExecutionRecorder recorder;
+
+        ConnectionHandler(Connection target, SqlExecutionRecorder recorder) {
+            super(target);
+            this.recorder = recorder;
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = delegate(method, args);
+            return switch (method.getName()) {
+                case "prepareStatement" -> proxy(PreparedStatement.class,
+                        new StatementHandler(result, (String) args[0], recorder));
+                case "prepareCall" -> proxy(CallableStatement.class,
+                        new StatementHandler(result, (String) args[0], recorder));
+                case "createStatement" -> proxy(Statement.class, new StatementHandler(result, null, recorder));
+                default -> result;
+            };
+        }
+    }
+
+    private static final class StatementHandler extends DelegatingHandler {
+        private final SqlExecutionRecorder recorder;
+        // Prepared statements carry their SQL; plain statements get it with each execute or addBatch
+        private String sql;
+        private final List<String> parameterTypes = new ArrayList<>();
+        private int batchRows;
+
+        StatementHandler(Object target, String sql, SqlExecutionRecorder recorder) {
+            super(target);
+            this.sql = sql;
+            this.recorder = recorder;
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "execute", "executeQuery", "executeUpdate", "executeLargeUpdate" -> {
+                    return timed(method, args, args != null && args.length > 0 ? (String) args[0] : sql, 0);
+                }
+                case "executeBatch", "executeLargeBatch" -> {
+                    int rows = batchRows;
+                    batchRows = 0;
+                    return timed(method, args, sql, rows);
+                }
+                case "addBatch" -> {
+                    if (args != null && args.length > 0 && sql == null) {
+                        sql = (String) args[0];
+                    }
+                    batchRows++;
+                }
+                case "clearBatch" -> batchRows = 0;
+                case "clearParameters" -> parameterTypes.clear();
+                default -> {
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                        bind(index, name.substring(3));
+                    }
+                }
+            }
+            return delegate(method, args);
+        }
+
+        private void bind(int index, String type) {
+            while (parameterTypes.size() < index) {
+                parameterTypes.add(null);
+            }
+            parameterTypes.set(index - 1, type);
+        }
+
+        private Object timed(Method method, Object[] args, String executedSql, int rows) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                return delegate(method, args);
+            } finally {
+                recorder.record(executedSql == null ? "<unknown>" : executedSql, parameterTypes, rows,
+                        System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.dto.BatteryRequestDTO;
+import com.example.battery_api.exception.BatteryPublishException;
+import com.example.battery_api.exception.TooManyIngestJobsException;
+import com.example.battery_api.model.Battery;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Accepts uploads for asynchronous ingest: the caller gets a job ID straight away while the entries are validated
+ * and published in the background. Progress is recorded in {@link BatteryIngestJobTracker}, where the queue
+ * consumers add the persisted counts as each chunk commits.
+ *
+ * Jobs run on a dedicated pool of battery.jobs.threads threads with room for battery.jobs.queue-capacity waiting
+ * jobs, each holding its whole upload. An upload beyond that, or beyond the tracker's active-job limit, is refused
+ * with {@link TooManyIngestJobsException} instead of queueing without bound.
+ */
+@Component
+public class AsyncBatteryIngestor {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncBatteryIngestor.class);
+
+    private final BatteryRequestValidator batteryRequestValidator;
+    private final BatteryMapper batteryMapper;
+    private final BatteryService batteryService;
+    private final BatteryIngestJobTracker jobTracker;
+    private final BatteryDuplicateFilter duplicateFilter;
+    private final BatteryIngestMetrics ingestMetrics;
+    private final TaskExecutor taskExecutor;
+
+    @Autowired
+    public AsyncBatteryIngestor(BatteryRequestValidator batteryRequestValidator, BatteryMapper batteryMapper,
+                                BatteryService batteryService, BatteryIngestJobTracker jobTracker,
+                                BatteryDuplicateFilter duplicateFilter, BatteryIngestMetrics ingestMetrics,
+                                @Value("${battery.jobs.threads:2}") int threads,
+                                @Value("${battery.jobs.queue-capacity:50}") int queueCapacity) {
+        this(batteryRequestValidator, batteryMapper, batteryService, jobTracker, duplicateFilter, ingestMetrics,
+                ingestExecutor(threads, queueCapacity));
+    }
+
+    AsyncBatteryIngestor(BatteryRequestValidator batteryRequestValidator, BatteryMapper batteryMapper,
+                         BatteryService batteryService, BatteryIngestJobTracker jobTracker,
+                         BatteryDuplicateFilter duplicateFilter, BatteryIngestMetrics ingestMetrics,
+                         TaskExecutor taskExecutor) {
+        this.batteryRequestValidator = batteryRequestValidator;
+        this.batteryMapper = batteryMapper;
+        this.batteryService = batteryService;
+        this.jobTracker = jobTracker;
+        this.duplicateFilter = duplicateFilter;
+        this.ingestMetrics = ingestMetrics;
+        this.taskExecutor = taskExecutor;
+    }
+
+    // Not a bean: any Executor bean would replace Spring Boot's applicationTaskExecutor
+    private static ThreadPoolTaskExecutor ingestExecutor(int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("battery-ingest-");
+        // Accepted jobs get a chance to finish publishing on shutdown
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Starts a job for the upload and returns its ID; the job ID is also the batch ID of the published messages.
+     * @throws TooManyIngestJobsException if the active-job limit is reached or the job queue is full
+     */
+    public String submit(List<BatteryRequestDTO> requestDTOs) {
+        String jobId = UUID.randomUUID().toString();
+        BatteryIngestJobTracker.Job job = jobTracker.start(jobId, requestDTOs.size());
+        try {
+            taskExecutor.execute(() -> run(jobId, job, requestDTOs));
+        } catch (RejectedExecutionException ex) {
+            jobTracker.abandon(jobId);
+            throw new TooManyIngestJobsException("The ingest job queue is full");
+        }
+        return jobId;
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        if (taskExecutor instanceof DisposableBean executor) {
+            executor.destroy();
+        }
+    }
+
+    private void run(String jobId, BatteryIngestJobTracker.Job job, List<BatteryRequestDTO> requestDTOs) {
+        try {
+            ingest(jobId, job, requestDTOs);
+        } catch (RuntimeException ex) {
+            // Never leave the job holding an active slot
+            logger.error("Job {} failed", jobId, ex);
+            job.failed(0, 0, "Ingest failed: " + ex.getMessage());
+        }
+    }
+
+    void ingest(String jobId, BatteryIngestJobTracker.Job job, List<BatteryRequestDTO> requestDTOs) {
+        List<Battery> validBatteries = new ArrayList<>();
+        BatteryDuplicateFilter.Screen duplicateScreen = duplicateFilter.newScreen();
+        BatteryIngestMetrics.Upload upload = ingestMetrics.startUpload(BatteryIngestMetrics.UPLOAD_ASYNC);
+        for (int i = 0; i < requestDTOs.size(); i++) {
+            long start = ingestMetrics.nanoTime();
+            Map<String, List<String>> errors = batteryRequestValidator.validate(requestDTOs.get(i));
+            start = upload.validated(start, errors.isEmpty());
+            if (errors.isEmpty()) {
+                Battery battery = batteryMapper.toEntity(requestDTOs.get(i));
+                upload.mapped(start);
+                if (duplicateScreen.isDuplicate(battery)) {
+                    upload.duplicate();
+                    job.duplicate();
+                } else {
+                    validBatteries.add(battery);
+                    job.validated();
+                }
+            } else {
+                logger.debug("Validation failed for battery at index {} of job {}: {}", i, jobId, errors);
+                job.invalid();
+            }
+        }
+
+        upload.finish();
+
+        job.publishing();
+        try {
+            batteryService.publishValidBatteries(validBatteries, jobId, BatteryIngestMetrics.UPLOAD_ASYNC);
+            job.published(validBatteries.size());
+            logger.info("Job {} published {} valid batteries", jobId, validBatteries.size());
+        } catch (RuntimeException ex) {
+            // The batteries published before the failure are still persisted and counted
+            int published = ex instanceof BatteryPublishException publishException
+                    ? publishException.getPublishedCount()
+                    : 0;
+            logger.error("Job {} failed to publish {} of {} batteries", jobId, validBatteries.size() - published,
+                    validBatteries.size(), ex);
+            job.failed(published, validBatteries.size() - published,
+                    "Publishing to the message broker failed: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.model.Battery;
+
+import java.util.List;
+
+/**
+ * Published by {@link BatteryService#saveBatteries(List)} for the batteries it wrote.
+ * Listeners that keep derived state should use
+ * {@code @TransactionalEventListener(phase = AFTER_COMMIT)} so rolled-back writes are never applied.
+ * Listeners whose state is derived from another listener's are ordered after it with {@code @Order}.
+ *
+ * @param batteries The saved batteries, with their ids assigned
+ */
+public record BatteriesPersistedEvent(List<Battery> batteries) {
+    // The range index is updated before the range cache drops the summaries that may have been computed from it
+    public static final int RANGE_INDEX_ORDER = 0;
+    public static final int RANGE_CACHE_ORDER = 1;
+}
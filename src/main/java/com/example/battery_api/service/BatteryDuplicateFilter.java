@@ -0,0 +1,244 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.model.Battery;
+import com.example.battery_api.repository.BatteryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Optional duplicate detection for uploads: a battery with the same name, postcode and watt capacity as one
+ * already in the battery table (or earlier in the same upload) is reported as a duplicate instead of being
+ * published and inserted again.
+ *
+ * A {@link ScalableBloomFilter} over every stored (name, postcode, wattCapacity) is seeded from the battery table
+ * when the application is ready and extended after every committed {@link BatteriesPersistedEvent}. Most new
+ * batteries are ruled out by the filter alone; only when it reports a probable duplicate is the battery looked up
+ * in the database (an index-only probe of battery_name_id_idx), so false positives never drop a new battery.
+ *
+ * While the filter is being seeded, and when battery.dedupe.enabled is false, nothing is treated as a duplicate.
+ * Batteries published but not yet committed are not in the filter, so a repeat sent before the first copy commits
+ * is not detected; Idempotency-Key covers client retries.
+ *
+ * Outcomes are published as battery.dedupe.checks{result=filtered|duplicate|false_positive|repeated|unseeded}.
+ */
+@Service
+public class BatteryDuplicateFilter {
+    private static final Logger logger = LoggerFactory.getLogger(BatteryDuplicateFilter.class);
+
+    private static final String SEED_SQL = "SELECT name, postcode, watt_capacity FROM battery";
+    private static final int SEED_FETCH_SIZE = 10_000;
+
+    private final BatteryRepository batteryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate seedTransaction;
+    private final boolean enabled;
+    private final long initialCapacity;
+    private final double falsePositiveRate;
+
+    private final Counter unseeded;
+    private final Counter filtered;
+    private final Counter duplicates;
+    private final Counter falsePositives;
+    private final Counter repeated;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private ScalableBloomFilter filter;
+    // Non-null while seeding: batteries committed meanwhile, added once the seeded filter is published
+    private List<Battery> pending;
+
+    public BatteryDuplicateFilter(BatteryRepository batteryRepository, JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                  @Value("${battery.dedupe.enabled:false}") boolean enabled,
+                                  @Value("${battery.dedupe.initial-capacity:1000000}") long initialCapacity,
+                                  @Value("${battery.dedupe.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.batteryRepository = batteryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.seedTransaction = new TransactionTemplate(transactionManager);
+        this.seedTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        // Fail at startup rather than when seeding
+        new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+
+        unseeded = counter(meterRegistry, "unseeded");
+        filtered = counter(meterRegistry, "filtered");
+        duplicates = counter(meterRegistry, "duplicate");
+        falsePositives = counter(meterRegistry, "false_positive");
+        repeated = counter(meterRegistry, "repeated");
+        Gauge.builder("battery.dedupe.filter.keys", this, BatteryDuplicateFilter::size)
+                .description("Distinct batteries in the duplicate filter").register(meterRegistry);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("battery.dedupe.checks").tag("result", result)
+                .description("Duplicate checks of uploaded batteries by outcome").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            try {
+                seed();
+            } catch (RuntimeException ex) {
+                // Uploads are simply not deduplicated; a failed seed must not stop the application
+                logger.error("Battery duplicate filter seeding failed", ex);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the filter from the battery table. Nothing is reported as a duplicate while this runs.
+     */
+    public synchronized void seed() {
+        lock.writeLock().lock();
+        try {
+            filter = null;
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long start = System.nanoTime();
+        ScalableBloomFilter seeded = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+        try {
+            // A transaction lets the driver fetch the rows in pages through a cursor instead of all at once
+            seedTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SEED_SQL);
+                statement.setFetchSize(SEED_FETCH_SIZE);
+                return statement;
+            }, (RowCallbackHandler) resultSet ->
+                    seeded.add(key(resultSet.getString(1), resultSet.getInt(2), resultSet.getInt(3)))));
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Adding a battery the seed already saw is harmless, so no visibility check is needed
+            for (Battery battery : pending) {
+                seeded.add(key(battery));
+            }
+            pending = null;
+            filter = seeded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Battery duplicate filter seeded with {} batteries ({} KB in {} layer(s)) in {} ms", seeded.size(),
+                seeded.bitCount() / 8 / 1024, seeded.layerCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener
+    public void onBatteriesPersisted(BatteriesPersistedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.addAll(event.batteries());
+            } else if (filter != null) {
+                for (Battery battery : event.batteries()) {
+                    filter.add(key(battery));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Starts checking one upload; the returned screen also catches batteries repeated within the upload.
+     */
+    public Screen newScreen() {
+        return new Screen();
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return filter != null ? filter.size() : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean isStored(Battery battery) {
+        String key = key(battery);
+        lock.readLock().lock();
+        try {
+            if (filter == null) {
+                unseeded.increment();
+                return false;
+            }
+            if (!filter.mightContain(key)) {
+                filtered.increment();
+                return false;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (batteryRepository.existsByNameAndPostcodeAndWattCapacity(
+                battery.getName(), battery.getPostcode(), battery.getWattCapacity())) {
+            duplicates.increment();
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    private static String key(Battery battery) {
+        return key(battery.getName(), Integer.parseInt(battery.getPostcode()), battery.getWattCapacity());
+    }
+
+    // Postcodes are keyed as numbers, the way the table stores them, so "0200" and 200 match
+    static String key(String name, int postcode, int wattCapacity) {
+        return name + '\u0000' + postcode + '\u0000' + wattCapacity;
+    }
+
+    /**
+     * Duplicate check for the valid batteries of one upload, in upload order. Not thread-safe.
+     */
+    public class Screen {
+        private final Set<String> seen = new HashSet<>();
+
+        /**
+         * @return true if the battery is already stored or appeared earlier in this upload
+         */
+        public boolean isDuplicate(Battery battery) {
+            if (!enabled) {
+                return false;
+            }
+            if (!seen.add(key(battery))) {
+                repeated.increment();
+                return true;
+            }
+            return isStored(battery);
+        }
+    }
+}
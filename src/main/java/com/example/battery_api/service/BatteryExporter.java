@@ -0,0 +1,130 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.model.Battery;
+import com.example.battery_api.repository.BatteryRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Exports every battery in a postcode and capacity range as CSV or newline-delimited JSON.
+ *
+ * Batteries are read from a server-side database cursor and written to the output one at a time, then detached
+ * from the persistence context, so memory use does not grow with the number of rows exported.
+ *
+ * CSV has a header line (id,name,postcode,wattCapacity) and quotes names as RFC 4180 requires.
+ * NDJSON writes one {"id":..,"name":..,"postcode":..,"wattCapacity":..} object per line.
+ */
+@Component
+public class BatteryExporter {
+    private static final Logger logger = LoggerFactory.getLogger(BatteryExporter.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BatteryRepository batteryRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public BatteryExporter(BatteryRepository batteryRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.batteryRepository = batteryRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    /**
+     * Writes the batteries in the range to the output, ordered by id.
+     * @return Number of batteries written
+     */
+    @Transactional(readOnly = true)
+    public long export(String startPostcode, String endPostcode, Integer minCapacity, Integer maxCapacity,
+                       Format format, OutputStream output) throws IOException {
+        // If minCapacity or maxCapacity is null, set default bounds
+        int effectiveMinCapacity = (minCapacity != null) ? minCapacity : Integer.MIN_VALUE;
+        int effectiveMaxCapacity = (maxCapacity != null) ? maxCapacity : Integer.MAX_VALUE;
+
+        long start = System.nanoTime();
+        long count;
+        try (Stream<Battery> batteries = batteryRepository.streamByPostcodeAndCapacityRange(
+                startPostcode, endPostcode, effectiveMinCapacity, effectiveMaxCapacity)) {
+            count = format == Format.CSV
+                    ? writeCsv(batteries.iterator(), output)
+                    : writeJsonLines(batteries.iterator(), output);
+        }
+        logger.info("Exported {} batteries in range {}-{} as {} in {} ms", count, startPostcode, endPostcode, format,
+                (System.nanoTime() - start) / 1_000_000);
+        return count;
+    }
+
+    private long writeCsv(Iterator<Battery> batteries, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write("id,name,postcode,wattCapacity\n");
+        long count = 0;
+        while (batteries.hasNext()) {
+            Battery battery = batteries.next();
+            writer.write(String.valueOf(battery.getId()));
+            writer.write(',');
+            writeCsvField(writer, battery.getName());
+            writer.write(',');
+            writer.write(battery.getPostcode());
+            writer.write(',');
+            writer.write(String.valueOf(battery.getWattCapacity()));
+            writer.write('\n');
+            entityManager.detach(battery);
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private long writeJsonLines(Iterator<Battery> batteries, OutputStream output) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            // Leave the response stream open for the container; only the generator's buffer is flushed on close
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            while (batteries.hasNext()) {
+                Battery battery = batteries.next();
+                generator.writeStartObject();
+                generator.writeNumberField("id", battery.getId());
+                generator.writeStringField("name", battery.getName());
+                generator.writeStringField("postcode", battery.getPostcode());
+                generator.writeNumberField("wattCapacity", battery.getWattCapacity());
+                generator.writeEndObject();
+                entityManager.detach(battery);
+                count++;
+            }
+            if (count > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.dto.BatteryRequestDTO;
+import com.example.battery_api.dto.BatterySaveResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Recent Idempotency-Key values of POST /api/batteries and the responses they produced.
+ *
+ * A retry carrying a key that already succeeded gets the stored response back, marked with an
+ * Idempotent-Replayed: true header, without validating or publishing anything again. A retry arriving while the
+ * first request is still running gets 409 Conflict. If the request fails, the key is released so it can be retried.
+ * Each key is stored with a hash of its request, and a request reusing the key with a different body or async flag
+ * gets 422 Unprocessable Entity instead of someone else's response.
+ *
+ * A synchronous upload response listing more than max-replay-entries entries is stored as a summary of its counts,
+ * so the store never holds whole large responses; a retry of such an upload gets the summary back.
+ *
+ * The store is bounded: least-recently-used keys are dropped beyond max-entries and every key expires after
+ * ttl-ms. Keys live in memory on the node that handled the request. Broker redeliveries are covered separately by
+ * the committed-chunk ledger the consumers check.
+ *
+ * Outcomes are published as battery.idempotency.requests{result=new|replayed|conflict|mismatch}.
+ */
+@Service
+public class BatteryIdempotencyStore {
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final int maxReplayEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+
+    private final Counter fresh;
+    private final Counter replayed;
+    private final Counter conflicts;
+    private final Counter mismatches;
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    @Autowired
+    public BatteryIdempotencyStore(MeterRegistry meterRegistry,
+                                   @Value("${battery.idempotency.enabled:true}") boolean enabled,
+                                   @Value("${battery.idempotency.max-entries:1000}") int maxEntries,
+                                   @Value("${battery.idempotency.ttl-ms:3600000}") long ttlMillis,
+                                   @Value("${battery.idempotency.max-replay-entries:100}") int maxReplayEntries) {
+        this(meterRegistry, enabled, maxEntries, ttlMillis, maxReplayEntries, System::nanoTime);
+    }
+
+    BatteryIdempotencyStore(MeterRegistry meterRegistry, boolean enabled, int maxEntries, long ttlMillis,
+                            int maxReplayEntries, LongSupplier nanoTime) {
+        if (maxEntries < 1 || ttlMillis < 1 || maxReplayEntries < 0) {
+            throw new IllegalArgumentException(
+                    "battery.idempotency requires max-entries >= 1, ttl-ms >= 1 and max-replay-entries >= 0");
+        }
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxReplayEntries = maxReplayEntries;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.nanoTime = nanoTime;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > BatteryIdempotencyStore.this.maxEntries;
+            }
+        };
+
+        fresh = Counter.builder("battery.idempotency.requests").tag("result", "new")
+                .description("Uploads carrying an Idempotency-Key by outcome").register(meterRegistry);
+        replayed = Counter.builder("battery.idempotency.requests").tag("result", "replayed")
+                .description("Uploads carrying an Idempotency-Key by outcome").register(meterRegistry);
+        conflicts = Counter.builder("battery.idempotency.requests").tag("result", "conflict")
+                .description("Uploads carrying an Idempotency-Key by outcome").register(meterRegistry);
+        mismatches = Counter.builder("battery.idempotency.requests").tag("result", "mismatch")
+                .description("Uploads carrying an Idempotency-Key by outcome").register(meterRegistry);
+    }
+
+    /**
+     * Hash identifying an upload: SHA-256 over the async flag and the name, postcode and watt capacity of every
+     * entry as deserialized, so formatting differences between retries do not matter.
+     */
+    public static byte[] requestHash(List<BatteryRequestDTO> requests, boolean async) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+        digest.update((byte) (async ? 1 : 0));
+        for (BatteryRequestDTO request : requests) {
+            if (request == null) {
+                digest.update((byte) 0);
+                continue;
+            }
+            digest.update((byte) 1);
+            update(digest, request.getName());
+            update(digest, request.getPostcode());
+            update(digest, request.getWattCapacity() != null ? request.getWattCapacity().toString() : null);
+        }
+        return digest.digest();
+    }
+
+    // Length-prefixed, so values cannot run into each other
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) 1);
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    /**
+     * Runs the request once per key: returns 422 Unprocessable Entity if the key was used for a different request,
+     * the stored response if the key has already succeeded, 409 Conflict if it is still in progress, and otherwise
+     * runs the request and stores its response if it is successful.
+     *
+     * @param key Idempotency-Key header value, or null to run the request unconditionally
+     * @param requestHash Computes the {@link #requestHash} of the request; only called when the store is enabled and
+     *        a key is given
+     */
+    public ResponseEntity<?> execute(String key, Supplier<byte[]> requestHash,
+                                     Supplier<? extends ResponseEntity<?>> request) {
+        if (!enabled || key == null) {
+            return request.get();
+        }
+        return execute(key, requestHash.get(), request);
+    }
+
+    private ResponseEntity<?> execute(String key, byte[] requestHash, Supplier<? extends ResponseEntity<?>> request) {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && nanoTime.getAsLong() - entry.storedAt() < ttlNanos) {
+                if (!MessageDigest.isEqual(entry.requestHash(), requestHash)) {
+                    mismatches.increment();
+                    return ResponseEntity.unprocessableEntity().body(Map.of("message",
+                            "This Idempotency-Key was already used for a different request; use a new key."));
+                }
+                if (entry.response() == null) {
+                    conflicts.increment();
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message",
+                            "A request with this Idempotency-Key is still being processed; retry later."));
+                }
+                replayed.increment();
+                return ResponseEntity.status(entry.response().getStatusCode())
+                        .headers(entry.response().getHeaders())
+                        .header(REPLAYED_HEADER, "true")
+                        .body(entry.response().getBody());
+            }
+            fresh.increment();
+            entries.put(key, new Entry(requestHash, null, nanoTime.getAsLong()));
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = request.get();
+        } catch (RuntimeException ex) {
+            release(key);
+            throw ex;
+        }
+        synchronized (this) {
+            if (response.getStatusCode().is2xxSuccessful()) {
+                entries.put(key, new Entry(requestHash, replayable(response), nanoTime.getAsLong()));
+            } else {
+                entries.remove(key);
+            }
+        }
+        return response;
+    }
+
+    // The response as it is kept for replay: large upload responses are reduced to their counts
+    private ResponseEntity<?> replayable(ResponseEntity<?> response) {
+        if (!(response.getBody() instanceof BatterySaveResponseDTO body) || body.savedBatteries().size()
+                + body.invalidEntries().size() + body.duplicateEntries().size() <= maxReplayEntries) {
+            return response;
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("savedBatteriesCount", body.savedBatteriesCount());
+        summary.put("invalidEntriesCount", body.invalidEntries().size());
+        summary.put("duplicateEntriesCount", body.duplicateEntries().size());
+        summary.put("message", "The upload was already processed; its entries are not repeated in this replay.");
+        return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders()).body(summary);
+    }
+
+    private synchronized void release(String key) {
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // response is null while the first request with the key is still running
+    private record Entry(byte[] requestHash, ResponseEntity<?> response, long storedAt) {
+    }
+}
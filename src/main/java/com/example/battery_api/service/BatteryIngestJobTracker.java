@@ -0,0 +1,220 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.exception.TooManyIngestJobsException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of asynchronous ingest jobs, keyed by job ID (which is also the batch ID of the published messages).
+ *
+ * Counts are {@link LongAdder}s, so the consumers updating them as chunks commit never contend on a lock. Jobs
+ * live in memory on the node that accepted the upload; chunks persisted by consumers on other nodes are not
+ * counted there. Finished jobs are forgotten after battery.jobs.retention-ms.
+ *
+ * At most battery.jobs.max-active jobs may be validating or publishing at once; starting another is refused with
+ * {@link TooManyIngestJobsException}.
+ */
+@Component
+public class BatteryIngestJobTracker {
+
+    public enum State {
+        VALIDATING, PUBLISHING, PERSISTING, COMPLETED, FAILED
+    }
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final long retentionMillis;
+    private final int maxActiveJobs;
+    // Jobs started but not yet done publishing
+    private final AtomicInteger activeJobs = new AtomicInteger();
+
+    @Autowired
+    public BatteryIngestJobTracker(@Value("${battery.jobs.retention-ms:3600000}") long retentionMillis,
+                                   @Value("${battery.jobs.max-active:50}") int maxActiveJobs) {
+        if (maxActiveJobs < 1) {
+            throw new IllegalArgumentException("battery.jobs.max-active must be at least 1");
+        }
+        this.retentionMillis = retentionMillis;
+        this.maxActiveJobs = maxActiveJobs;
+    }
+
+    BatteryIngestJobTracker(long retentionMillis) {
+        this(retentionMillis, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Registers a new job for an upload of the given number of entries.
+     * @throws TooManyIngestJobsException if max-active jobs are already validating or publishing
+     */
+    public Job start(String jobId, int receivedCount) {
+        if (activeJobs.incrementAndGet() > maxActiveJobs) {
+            activeJobs.decrementAndGet();
+            throw new TooManyIngestJobsException(maxActiveJobs + " ingest jobs are already in progress");
+        }
+        Job job = new Job(jobId, receivedCount, activeJobs::decrementAndGet);
+        jobs.put(jobId, job);
+        return job;
+    }
+
+    /**
+     * Forgets a job that was started but never ran, freeing its slot.
+     */
+    public void abandon(String jobId) {
+        Job job = jobs.remove(jobId);
+        if (job != null) {
+            job.finish(State.FAILED);
+        }
+    }
+
+    /**
+     * Counts a chunk of the batch as persisted once the current transaction commits, or as failed if it rolls back.
+     * Does nothing for batches that are not tracked jobs, such as synchronous uploads.
+     */
+    public void recordPersist(String batchId, int count) {
+        Job job = (batchId != null) ? jobs.get(batchId) : null;
+        if (job == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            job.persisted.add(count);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                (status == STATUS_COMMITTED ? job.persisted : job.failed).add(count);
+            }
+        });
+    }
+
+    /**
+     * Current counts and state of the job, or empty if it is unknown or has expired.
+     */
+    public Optional<Map<String, Object>> status(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(Job::status);
+    }
+
+    @Scheduled(fixedDelayString = "${battery.jobs.purge-interval-ms:60000}")
+    public void purgeFinishedJobs() {
+        Instant cutoff = Instant.now().minusMillis(retentionMillis);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    int size() {
+        return jobs.size();
+    }
+
+    int activeJobs() {
+        return activeJobs.get();
+    }
+
+    /**
+     * One upload. Validation and publishing run on a single background task; persisted and failed counts are
+     * added concurrently by the queue consumers.
+     */
+    public static class Job {
+        private final String id;
+        private final int receivedCount;
+        private final Runnable onFinished;
+        private final Instant acceptedAt = Instant.now();
+        private final LongAdder validated = new LongAdder();
+        private final LongAdder invalid = new LongAdder();
+        private final LongAdder duplicates = new LongAdder();
+        private final LongAdder published = new LongAdder();
+        private final LongAdder persisted = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private volatile State phase = State.VALIDATING;
+        private volatile String error;
+        private volatile Instant finishedAt;
+
+        Job(String id, int receivedCount, Runnable onFinished) {
+            this.id = id;
+            this.receivedCount = receivedCount;
+            this.onFinished = onFinished;
+        }
+
+        public void validated() {
+            validated.increment();
+        }
+
+        public void invalid() {
+            invalid.increment();
+        }
+
+        /**
+         * A valid entry that was skipped as a duplicate of a stored battery.
+         */
+        public void duplicate() {
+            duplicates.increment();
+        }
+
+        public void publishing() {
+            phase = State.PUBLISHING;
+        }
+
+        /**
+         * All valid batteries were handed to the broker; the job completes once the consumers have persisted them.
+         */
+        public void published(int count) {
+            published.add(count);
+            finish(State.PERSISTING);
+        }
+
+        /**
+         * Publishing stopped with the error after the first publishedCount valid batteries; the rest were never
+         * handed to the broker and count as failed. A job that published nothing has failed; otherwise it still
+         * completes once the published part has been persisted.
+         */
+        public void failed(int publishedCount, int unpublishedCount, String error) {
+            published.add(publishedCount);
+            failed.add(unpublishedCount);
+            this.error = error;
+            finish(publishedCount > 0 ? State.PERSISTING : State.FAILED);
+        }
+
+        private synchronized void finish(State state) {
+            if (finishedAt != null) {
+                return;
+            }
+            finishedAt = Instant.now();
+            phase = state;
+            onFinished.run();
+        }
+
+        State state() {
+            if (phase == State.PERSISTING && persisted.sum() >= published.sum()) {
+                return State.COMPLETED;
+            }
+            return phase;
+        }
+
+        Map<String, Object> status() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("jobId", id);
+            status.put("state", state());
+            status.put("acceptedAt", acceptedAt.toString());
+            status.put("receivedCount", receivedCount);
+            status.put("validatedCount", validated.sum());
+            status.put("invalidCount", invalid.sum());
+            status.put("duplicateCount", duplicates.sum());
+            status.put("publishedCount", published.sum());
+            status.put("persistedCount", persisted.sum());
+            status.put("failedCount", failed.sum());
+            if (error != null) {
+                status.put("error", error);
+            }
+            return status;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.battery_api.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Timers and distribution summaries for every stage of the ingest pipeline, tagged by the endpoint the batteries
+ * came in through.
+ *
+ * battery.ingest.stage{endpoint, stage} times validate, map, publish, queue-wait, consume and persist. Validation
+ * and mapping are summed over an upload and recorded once when it finishes, so their totals compare directly
+ * with publish; queue-wait runs from the publishedAt header to delivery, consume and persist end when the consumer
+ * transaction commits. battery.ingest.upload.size and battery.ingest.message.size count batteries per upload and
+ * per delivered message, and battery.ingest.upload.ratio{result=valid|invalid|duplicate} is the share of each
+ * upload, in percent. All meters publish histograms, so percentiles can be aggregated on the Prometheus side.
+ * Meters are registered on first use, so endpoint and stage pairs that never occur (validation of mixed
+ * transactions, persist time of an endpoint nobody uses) do not publish empty series.
+ *
+ * Published messages carry the endpoint and publish time as headers, so consumers on other nodes can attribute
+ * queue wait and persist time to the endpoint; messages without them are tagged endpoint=unknown.
+ */
+@Component
+public class BatteryIngestMetrics {
+    public static final String ENDPOINT_HEADER = "ingestEndpoint";
+    public static final String PUBLISHED_AT_HEADER = "publishedAt";
+
+    public static final String UPLOAD = "upload";
+    public static final String UPLOAD_ASYNC = "upload-async";
+    public static final String STREAM = "stream";
+    public static final String NDJSON = "ndjson";
+    // Coalesced consumer transactions holding messages from more than one endpoint
+    static final String MIXED = "mixed";
+    static final String UNKNOWN = "unknown";
+
+    private static final List<String> ENDPOINTS = List.of(UPLOAD, UPLOAD_ASYNC, STREAM, NDJSON, MIXED, UNKNOWN);
+
+    public enum Stage {
+        VALIDATE("validate"),
+        MAP("map"),
+        PUBLISH("publish"),
+        QUEUE_WAIT("queue-wait"),
+        CONSUME("consume"),
+        PERSIST("persist");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    // Per endpoint, indexed by Stage ordinal; slots stay null until the pair is first recorded
+    private final Map<String, AtomicReferenceArray<Timer>> stageTimers = new HashMap<>();
+    private final Map<String, DistributionSummary> uploadSizes = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> messageSizes = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary[]> uploadRatios = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoTime;
+    private final LongSupplier currentTimeMillis;
+
+    @Autowired
+    public BatteryIngestMetrics(MeterRegistry meterRegistry) {
+        this(meterRegistry, System::nanoTime, System::currentTimeMillis);
+    }
+
+    BatteryIngestMetrics(MeterRegistry meterRegistry, LongSupplier nanoTime, LongSupplier currentTimeMillis) {
+        this.meterRegistry = meterRegistry;
+        this.nanoTime = nanoTime;
+        this.currentTimeMillis = currentTimeMillis;
+        for (String endpoint : ENDPOINTS) {
+            stageTimers.put(endpoint, new AtomicReferenceArray<>(Stage.values().length));
+        }
+    }
+
+    private Timer timer(String endpoint, Stage stage) {
+        AtomicReferenceArray<Timer> timers = stageTimers.get(endpoint);
+        Timer timer = timers.get(stage.ordinal());
+        if (timer == null) {
+            // Registering the same name and tags again returns the existing timer, so a race here is harmless
+            timer = Timer.builder("battery.ingest.stage")
+                    .description("Time spent in each stage of the ingest pipeline")
+                    .tag("endpoint", endpoint).tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(10_000))
+                    .maximumExpectedValue(Duration.ofMinutes(1))
+                    .register(meterRegistry);
+            timers.set(stage.ordinal(), timer);
+        }
+        return timer;
+    }
+
+    private static DistributionSummary size(MeterRegistry meterRegistry, String name, String description,
+                                            String endpoint) {
+        return DistributionSummary.builder(name).description(description).baseUnit("batteries")
+                .tag("endpoint", endpoint)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1_000_000.0)
+                .register(meterRegistry);
+    }
+
+    private static DistributionSummary ratio(MeterRegistry meterRegistry, String endpoint, String result) {
+        return DistributionSummary.builder("battery.ingest.upload.ratio")
+                .description("Share of each upload that was valid, invalid or duplicate").baseUnit("percent")
+                .tag("endpoint", endpoint).tag("result", result)
+                .serviceLevelObjectives(1, 5, 10, 25, 50, 75, 90, 95, 99, 100)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts collecting the validation and mapping time and the entry counts of one upload.
+     */
+    public Upload startUpload(String endpoint) {
+        return new Upload(known(endpoint));
+    }
+
+    public long nanoTime() {
+        return nanoTime.getAsLong();
+    }
+
+    /**
+     * Records the time since {@code startNanos} as the given stage.
+     */
+    public void record(String endpoint, Stage stage, long startNanos) {
+        timer(known(endpoint), stage).record(nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stamps the endpoint and the publish time on a message about to be sent.
+     */
+    public void stamp(MessageProperties properties, String endpoint) {
+        properties.setHeader(ENDPOINT_HEADER, known(endpoint));
+        properties.setHeader(PUBLISHED_AT_HEADER, currentTimeMillis.getAsLong());
+    }
+
+    /**
+     * Records the queue wait and size of a delivered message. The wait is measured on wall clocks across nodes, so
+     * a negative difference (clock skew) counts as zero.
+     */
+    public void recordDelivery(String endpoint, Long publishedAt, int batteries) {
+        String tag = known(endpoint);
+        if (publishedAt != null) {
+            timer(tag, Stage.QUEUE_WAIT).record(Math.max(0, currentTimeMillis.getAsLong() - publishedAt), TimeUnit.MILLISECONDS);
+        }
+        messageSizes.computeIfAbsent(tag, endpointTag -> size(meterRegistry, "battery.ingest.message.size",
+                "Batteries per consumed message", endpointTag)).record(batteries);
+    }
+
+    /**
+     * Records consume (since {@code consumeStartNanos}) and persist (since {@code persistStartNanos}) when the
+     * current transaction commits; nothing is recorded for a rollback, the message is redelivered and measured then.
+     */
+    public void recordConsumeOnCommit(String endpoint, long consumeStartNanos, long persistStartNanos) {
+        String tag = known(endpoint);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(tag, Stage.PERSIST, persistStartNanos);
+            record(tag, Stage.CONSUME, consumeStartNanos);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(tag, Stage.PERSIST, persistStartNanos);
+                record(tag, Stage.CONSUME, consumeStartNanos);
+            }
+        });
+    }
+
+    /**
+     * The endpoint tag for messages from several endpoints: the common endpoint, or mixed.
+     */
+    static String combine(String first, String second) {
+        String tag = known(second);
+        return first == null || first.equals(tag) ? tag : MIXED;
+    }
+
+    // Header values are only used as tags when they are known endpoints, so tag cardinality stays bounded
+    private static String known(String endpoint) {
+        return endpoint != null && ENDPOINTS.contains(endpoint) ? endpoint : UNKNOWN;
+    }
+
+    /**
+     * Per-upload accumulator; not thread-safe, one per request or job.
+     */
+    public final class Upload {
+        private final String endpoint;
+        private long validationNanos;
+        private long mappingNanos;
+        private int entries;
+        private int invalid;
+        private int duplicates;
+
+        private Upload(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        /**
+         * Adds the time since {@code startNanos} to validation and counts the entry.
+         * @return The current time, to start timing the next stage from
+         */
+        public long validated(long startNanos, boolean valid) {
+            long now = nanoTime();
+            validationNanos += now - startNanos;
+            entries++;
+            if (!valid) {
+                invalid++;
+            }
+            return now;
+        }
+
+        /**
+         * Adds the time since {@code startNanos} to mapping.
+         * @return The current time, to start timing the next stage from
+         */
+        public long mapped(long startNanos) {
+            long now = nanoTime();
+            mappingNanos += now - startNanos;
+            return now;
+        }
+
+        /**
+         * Counts an entry rejected before validation, e.g. one that could not be parsed.
+         */
+        public void rejected() {
+            entries++;
+            invalid++;
+        }
+
+        public void duplicate() {
+            duplicates++;
+        }
+
+        public void finish() {
+            timer(endpoint, Stage.VALIDATE).record(validationNanos, TimeUnit.NANOSECONDS);
+            timer(endpoint, Stage.MAP).record(mappingNanos, TimeUnit.NANOSECONDS);
+            uploadSizes.computeIfAbsent(endpoint, endpointTag -> size(meterRegistry, "battery.ingest.upload.size",
+                    "Entries per upload", endpointTag)).record(entries);
+            if (entries > 0) {
+                DistributionSummary[] ratios = uploadRatios.computeIfAbsent(endpoint,
+                        endpointTag -> new DistributionSummary[]{
+                                ratio(meterRegistry, endpointTag, "valid"),
+                                ratio(meterRegistry, endpointTag, "invalid"),
+                                ratio(meterRegistry, endpointTag, "duplicate")});
+                ratios[0].record(100.0 * (entries - invalid - duplicates) / entries);
+                ratios[1].record(100.0 * invalid / entries);
+                ratios[2].record(100.0 * duplicates / entries);
+            }
+        }
+    }
+}
@@ -2,9 +2,11 @@ package com.example.battery_api.service;
 
 import com.example.battery_api.dto.BatteryRequestDTO;
 import com.example.battery_api.dto.BatteryResponseDTO;
+import com.example.battery_api.dto.BatterySaveResponseDTO;
 import com.example.battery_api.model.Battery;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -32,4 +34,13 @@ public class BatteryMapper {
     public List<BatteryResponseDTO> toDTOList(List<Battery> batteries) {
         return batteries.stream().map(this::toDTO).collect(Collectors.toList());
     }
+
+    public List<BatterySaveResponseDTO.SavedBattery> toSavedBatteries(List<Battery> batteries) {
+        List<BatterySaveResponseDTO.SavedBattery> saved = new ArrayList<>(batteries.size());
+        for (Battery battery : batteries) {
+            saved.add(new BatterySaveResponseDTO.SavedBattery(
+                    battery.getName(), battery.getPostcode(), battery.getWattCapacity()));
+        }
+        return saved;
+    }
 }
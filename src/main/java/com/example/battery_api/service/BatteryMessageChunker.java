@@ -0,0 +1,77 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.model.Battery;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Splits a list of batteries into broker messages bounded both by record count and by encoded size.
+ *
+ * Every message carries the batch ID of the publish call and its chunk index within the batch, so
+ * consumers on different nodes can persist the chunks of one batch independently. It also carries the
+ * number of batteries it holds, so a publisher can tell how much of a batch went out before a failure.
+ */
+@Component
+public class BatteryMessageChunker {
+    public static final String BATCH_ID_HEADER = "batchId";
+    public static final String CHUNK_INDEX_HEADER = "chunkIndex";
+    public static final String RECORD_COUNT_HEADER = "recordCount";
+
+    private final MessageConverter messageConverter;
+    private final int maxRecordsPerMessage;
+    private final int maxBytesPerMessage;
+
+    public BatteryMessageChunker(MessageConverter messageConverter,
+                                 @Value("${battery.publish.max-records:1000}") int maxRecordsPerMessage,
+                                 @Value("${battery.publish.max-bytes:1048576}") int maxBytesPerMessage) {
+        if (maxRecordsPerMessage < 1) {
+            throw new IllegalArgumentException("battery.publish.max-records must be at least 1");
+        }
+        this.messageConverter = messageConverter;
+        this.maxRecordsPerMessage = maxRecordsPerMessage;
+        this.maxBytesPerMessage = maxBytesPerMessage;
+    }
+
+    /**
+     * Encodes the batteries as one or more messages and hands each to the sink as soon as it is built.
+     * A chunk whose encoded body exceeds the byte limit is halved until it fits; a single battery is
+     * always sent on its own even if it alone exceeds the limit.
+     *
+     * @param batteries Batteries to encode
+     * @param batchId Batch ID stamped on every message (also used as the correlation ID)
+     * @param sink Receives the messages in chunk order
+     * @return Number of messages produced
+     */
+    public int chunk(List<Battery> batteries, String batchId, Consumer<Message> sink) {
+        int chunkIndex = 0;
+        for (int from = 0; from < batteries.size(); from += maxRecordsPerMessage) {
+            int to = Math.min(from + maxRecordsPerMessage, batteries.size());
+            chunkIndex = encode(batteries.subList(from, to), batchId, chunkIndex, sink);
+        }
+        return chunkIndex;
+    }
+
+    private int encode(List<Battery> records, String batchId, int chunkIndex, Consumer<Message> sink) {
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader(BATCH_ID_HEADER, batchId);
+        properties.setHeader(CHUNK_INDEX_HEADER, chunkIndex);
+        properties.setHeader(RECORD_COUNT_HEADER, records.size());
+        properties.setCorrelationId(batchId);
+        Message message = messageConverter.toMessage(new ArrayList<>(records), properties);
+
+        if (message.getBody().length > maxBytesPerMessage && records.size() > 1) {
+            int middle = records.size() / 2;
+            int next = encode(records.subList(0, middle), batchId, chunkIndex, sink);
+            return encode(records.subList(middle, records.size()), batchId, next, sink);
+        }
+        sink.accept(message);
+        return chunkIndex + 1;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in the paginated /with-range listing: the name and id of the last battery on the previous page.
+ *
+ * Clients receive it as an opaque URL-safe Base64 token and send it back unchanged to fetch the next page.
+ */
+public record BatteryPageCursor(String name, long id) {
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((id + ":" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BatteryPageCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The id never contains ':', so the first one separates it from the name
+            int separator = decoded.indexOf(':');
+            return new BatteryPageCursor(decoded.substring(separator + 1), Long.parseLong(decoded.substring(0, separator)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+            throw new InvalidCursorException("Cursor is not a value returned as nextCursor");
+        }
+    }
+}
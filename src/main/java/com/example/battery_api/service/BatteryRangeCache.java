@@ -0,0 +1,217 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.model.Battery;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded read-through cache for /with-range summaries, keyed on the postcode and capacity range.
+ *
+ * Entries are evicted least-recently-used once the cache holds max-entries, or once the summaries together list
+ * more than max-names battery names, and expire after ttl-ms. A summary listing more than max-names names on its
+ * own is never stored. After a
+ * save commits, only the entries whose postcode range contains one of the saved postcodes are dropped, so
+ * dashboards polling other postcode windows keep hitting the cache.
+ *
+ * A summary computed while a save was committing is returned but not stored, so a result read before the
+ * commit can never outlive the invalidation. Concurrent misses on the same key may each compute the summary.
+ * Invalidation runs after {@link BatteryRangeIndexService} has applied the save, so a summary computed from the
+ * index after the invalidation already includes it.
+ *
+ * Hits, misses, evictions and the current size are published as battery.range.cache.* meters.
+ */
+@Service
+public class BatteryRangeCache {
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxNames;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+    private final Counter invalidations;
+    private final Counter nameEvictions;
+
+    private final LinkedHashMap<Key, Entry> entries;
+    // Bumped by every invalidation; a summary is only stored if none happened while it was computed
+    private long generation;
+    // Battery names listed by the cached summaries together
+    private long names;
+
+    @Autowired
+    public BatteryRangeCache(MeterRegistry meterRegistry,
+                             @Value("${battery.range-cache.enabled:true}") boolean enabled,
+                             @Value("${battery.range-cache.max-entries:1000}") int maxEntries,
+                             @Value("${battery.range-cache.ttl-ms:30000}") long ttlMillis,
+                             @Value("${battery.range-cache.max-names:500000}") long maxNames) {
+        this(meterRegistry, enabled, maxEntries, ttlMillis, maxNames, System::nanoTime);
+    }
+
+    BatteryRangeCache(MeterRegistry meterRegistry, boolean enabled, int maxEntries, long ttlMillis, long maxNames,
+                      LongSupplier nanoTime) {
+        if (maxEntries < 1 || ttlMillis < 1 || maxNames < 0) {
+            throw new IllegalArgumentException(
+                    "battery.range-cache requires max-entries >= 1, ttl-ms >= 1 and max-names >= 0");
+        }
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxNames = maxNames;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.nanoTime = nanoTime;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > BatteryRangeCache.this.maxEntries) {
+                    sizeEvictions.increment();
+                    names -= eldest.getValue().names();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        hits = Counter.builder("battery.range.cache.requests").tag("result", "hit")
+                .description("/with-range summary lookups by cache result").register(meterRegistry);
+        misses = Counter.builder("battery.range.cache.requests").tag("result", "miss")
+                .description("/with-range summary lookups by cache result").register(meterRegistry);
+        sizeEvictions = Counter.builder("battery.range.cache.evictions").tag("cause", "size")
+                .description("/with-range summaries dropped from the cache by cause").register(meterRegistry);
+        expiredEvictions = Counter.builder("battery.range.cache.evictions").tag("cause", "expired")
+                .description("/with-range summaries dropped from the cache by cause").register(meterRegistry);
+        invalidations = Counter.builder("battery.range.cache.evictions").tag("cause", "invalidated")
+                .description("/with-range summaries dropped from the cache by cause").register(meterRegistry);
+        nameEvictions = Counter.builder("battery.range.cache.evictions").tag("cause", "names")
+                .description("/with-range summaries dropped from the cache by cause").register(meterRegistry);
+        Gauge.builder("battery.range.cache.size", this, BatteryRangeCache::size)
+                .description("Entries currently cached").register(meterRegistry);
+        Gauge.builder("battery.range.cache.names", this, BatteryRangeCache::names)
+                .description("Battery names listed by the cached summaries").register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached summary for the key, or computes, stores and returns it.
+     */
+    public Map<String, Object> get(Key key, Supplier<Map<String, Object>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        long stamp;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (nanoTime.getAsLong() - entry.storedAt() < ttlNanos) {
+                    hits.increment();
+                    return entry.summary();
+                }
+                remove(key);
+                expiredEvictions.increment();
+            }
+            misses.increment();
+            stamp = generation;
+        }
+
+        Map<String, Object> summary = loader.get();
+
+        synchronized (this) {
+            if (stamp == generation) {
+                store(key, summary);
+            }
+        }
+        return summary;
+    }
+
+    // Stores the summary, then drops least-recently-used entries until the names fit; caller holds the lock
+    private void store(Key key, Map<String, Object> summary) {
+        int summaryNames = summary.get("batteries") instanceof List<?> list ? list.size() : 0;
+        if (summaryNames > maxNames) {
+            nameEvictions.increment();
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(summary, summaryNames, nanoTime.getAsLong()));
+        names += summaryNames;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (names > maxNames) {
+            names -= eldest.next().names();
+            eldest.remove();
+            nameEvictions.increment();
+        }
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            names -= entry.names();
+        }
+    }
+
+    /**
+     * Drops the entries whose postcode range contains one of the committed batteries.
+     */
+    @TransactionalEventListener
+    @Order(BatteriesPersistedEvent.RANGE_CACHE_ORDER)
+    public void onBatteriesPersisted(BatteriesPersistedEvent event) {
+        if (!enabled || event.batteries().isEmpty()) {
+            return;
+        }
+        int[] postcodes = event.batteries().stream()
+                .map(Battery::getPostcode)
+                .mapToInt(Integer::parseInt)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        synchronized (this) {
+            generation++;
+            Iterator<Map.Entry<Key, Entry>> cached = entries.entrySet().iterator();
+            while (cached.hasNext()) {
+                Map.Entry<Key, Entry> entry = cached.next();
+                if (entry.getKey().overlaps(postcodes)) {
+                    names -= entry.getValue().names();
+                    cached.remove();
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long names() {
+        return names;
+    }
+
+    /**
+     * Cache key: the inclusive postcode and capacity range, and whether the summary lists battery names.
+     */
+    public record Key(int startPostcode, int endPostcode, int minCapacity, int maxCapacity, boolean includeNames) {
+
+        boolean overlaps(int[] sortedPostcodes) {
+            int insertion = Arrays.binarySearch(sortedPostcodes, startPostcode);
+            int first = insertion >= 0 ? insertion : -insertion - 1;
+            return first < sortedPostcodes.length && sortedPostcodes[first] <= endPostcode;
+        }
+    }
+
+    private record Entry(Map<String, Object> summary, int names, long storedAt) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.battery_api.service;
+
+/**
+ * Two-dimensional Fenwick (binary indexed) tree over (postcode, watt capacity) holding the battery count and
+ * the capacity sum of every cell.
+ *
+ * The domain is the one accepted by request validation: postcodes 0200-9999 and capacities 1-1000, i.e.
+ * 9,800 x 1,000 cells stored in flat primitive arrays (about 118 MB: an int count and a long sum per cell).
+ * Point updates and rectangle queries both cost O(log P * log C), roughly 140 array reads per prefix.
+ *
+ * Not thread-safe; callers guard updates and queries with a lock.
+ */
+public class BatteryRangeIndex {
+    public static final int MIN_POSTCODE = 200;
+    public static final int MAX_POSTCODE = 9999;
+    public static final int MIN_CAPACITY = 1;
+    public static final int MAX_CAPACITY = 1000;
+
+    private static final int POSTCODES = MAX_POSTCODE - MIN_POSTCODE + 1;
+    private static final int CAPACITIES = MAX_CAPACITY - MIN_CAPACITY + 1;
+    // Rows and columns are 1-based; row 0 and column 0 are unused
+    private static final int STRIDE = CAPACITIES + 1;
+
+    private final int[] counts = new int[(POSTCODES + 1) * STRIDE];
+    private final long[] sums = new long[(POSTCODES + 1) * STRIDE];
+
+    public static boolean inDomain(int postcode, int capacity) {
+        return postcode >= MIN_POSTCODE && postcode <= MAX_POSTCODE
+                && capacity >= MIN_CAPACITY && capacity <= MAX_CAPACITY;
+    }
+
+    /**
+     * Adds (or with a negative delta removes) batteries with the given postcode and capacity.
+     */
+    public void add(int postcode, int capacity, int delta) {
+        checkDomain(postcode, capacity);
+        long capacityDelta = (long) delta * capacity;
+        for (int i = postcode - MIN_POSTCODE + 1; i <= POSTCODES; i += i & -i) {
+            int row = i * STRIDE;
+            for (int j = capacity - MIN_CAPACITY + 1; j <= CAPACITIES; j += j & -j) {
+                counts[row + j] += delta;
+                sums[row + j] += capacityDelta;
+            }
+        }
+    }
+
+    /**
+     * Replaces the whole index with the given per-cell counts in O(P * C), instead of one update per cell.
+     *
+     * @param cellCounts Battery count per cell, indexed by {@link #cell(int, int)}
+     */
+    public void load(int[] cellCounts) {
+        if (cellCounts.length != counts.length) {
+            throw new IllegalArgumentException("Expected " + counts.length + " cells but got " + cellCounts.length);
+        }
+        for (int i = 1; i <= POSTCODES; i++) {
+            for (int j = 1; j <= CAPACITIES; j++) {
+                int cell = i * STRIDE + j;
+                counts[cell] = cellCounts[cell];
+                sums[cell] = (long) cellCounts[cell] * (j + MIN_CAPACITY - 1);
+            }
+        }
+        // Push every node into its Fenwick parent, first along capacities, then along postcodes
+        for (int i = 1; i <= POSTCODES; i++) {
+            int row = i * STRIDE;
+            for (int j = 1; j <= CAPACITIES; j++) {
+                int parent = j + (j & -j);
+                if (parent <= CAPACITIES) {
+                    counts[row + parent] += counts[row + j];
+                    sums[row + parent] += sums[row + j];
+                }
+            }
+        }
+        for (int i = 1; i <= POSTCODES; i++) {
+            int parent = i + (i & -i);
+            if (parent <= POSTCODES) {
+                for (int j = 1; j <= CAPACITIES; j++) {
+                    counts[parent * STRIDE + j] += counts[i * STRIDE + j];
+                    sums[parent * STRIDE + j] += sums[i * STRIDE + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates an empty per-cell count array for {@link #load(int[])}.
+     */
+    public static int[] newCellCounts() {
+        return new int[(POSTCODES + 1) * STRIDE];
+    }
+
+    /**
+     * Position of a (postcode, capacity) cell in a per-cell count array.
+     */
+    public static int cell(int postcode, int capacity) {
+        checkDomain(postcode, capacity);
+        return (postcode - MIN_POSTCODE + 1) * STRIDE + (capacity - MIN_CAPACITY + 1);
+    }
+
+    /**
+     * Count and capacity sum of the batteries in the inclusive postcode and capacity ranges.
+     * Bounds outside the domain are clamped; an empty range yields zeros.
+     */
+    public Totals query(int startPostcode, int endPostcode, int minCapacity, int maxCapacity) {
+        int p1 = Math.max(startPostcode, MIN_POSTCODE) - MIN_POSTCODE + 1;
+        int p2 = Math.min(endPostcode, MAX_POSTCODE) - MIN_POSTCODE + 1;
+        int c1 = Math.max(minCapacity, MIN_CAPACITY) - MIN_CAPACITY + 1;
+        int c2 = Math.min(maxCapacity, MAX_CAPACITY) - MIN_CAPACITY + 1;
+        if (p1 > p2 || c1 > c2) {
+            return new Totals(0, 0);
+        }
+        long count = prefixCount(p2, c2) - prefixCount(p1 - 1, c2) - prefixCount(p2, c1 - 1) + prefixCount(p1 - 1, c1 - 1);
+        long sum = prefixSum(p2, c2) - prefixSum(p1 - 1, c2) - prefixSum(p2, c1 - 1) + prefixSum(p1 - 1, c1 - 1);
+        return new Totals(count, sum);
+    }
+
+    private long prefixCount(int postcodeIndex, int capacityIndex) {
+        long total = 0;
+        for (int i = postcodeIndex; i > 0; i -= i & -i) {
+            int row = i * STRIDE;
+            for (int j = capacityIndex; j > 0; j -= j & -j) {
+                total += counts[row + j];
+            }
+        }
+        return total;
+    }
+
+    private long prefixSum(int postcodeIndex, int capacityIndex) {
+        long total = 0;
+        for (int i = postcodeIndex; i > 0; i -= i & -i) {
+            int row = i * STRIDE;
+            for (int j = capacityIndex; j > 0; j -= j & -j) {
+                total += sums[row + j];
+            }
+        }
+        return total;
+    }
+
+    private static void checkDomain(int postcode, int capacity) {
+        if (!inDomain(postcode, capacity)) {
+            throw new IllegalArgumentException("Battery (" + postcode + ", " + capacity + ") is outside the index domain");
+        }
+    }
+
+    public record Totals(long count, long sum) {
+        public double average() {
+            return count == 0 ? 0.0 : (double) sum / count;
+        }
+    }
+}
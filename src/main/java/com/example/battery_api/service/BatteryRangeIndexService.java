@@ -0,0 +1,215 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.model.Battery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a {@link BatteryRangeIndex} in step with the battery table so /with-range statistics can be answered
+ * without a database round trip.
+ *
+ * The index is rebuilt from the database when the application is ready and then updated after every
+ * committed {@link BatteriesPersistedEvent}. Until the rebuild has finished (or if it is disabled, or the table
+ * holds batteries outside the index domain) {@link #query} returns empty and callers fall back to SQL.
+ *
+ * Only saves committed by this instance publish those events, so batteries persisted by consumers on other
+ * instances are picked up by the next periodic rebuild, every battery.range-index.rebuild-interval-ms; until then
+ * the totals lag the table.
+ *
+ * The rebuild reads a REPEATABLE READ snapshot. Batteries committed while it runs are buffered and applied
+ * afterwards only if the snapshot did not already see them, so no battery is counted twice or missed.
+ */
+@Service
+public class BatteryRangeIndexService {
+    private static final Logger logger = LoggerFactory.getLogger(BatteryRangeIndexService.class);
+
+    private static final String CELL_COUNTS_SQL =
+            "SELECT postcode, watt_capacity, count(*) FROM battery GROUP BY postcode, watt_capacity";
+    private static final String VISIBLE_IDS_SQL = "SELECT id FROM battery WHERE id = ANY (?::bigint[])";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private BatteryRangeIndex index;
+    private boolean ready;
+    // Non-null while a rebuild is running: batteries committed meanwhile
+    private List<Battery> pending;
+
+    public BatteryRangeIndexService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                    @Value("${battery.range-index.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            try {
+                rebuild();
+            } catch (RuntimeException ex) {
+                // The service keeps answering from SQL; a failed rebuild must not stop the application
+                logger.error("Battery range index rebuild failed", ex);
+            }
+        }
+    }
+
+    /**
+     * Periodic rebuild, so the index catches up with batteries saved by other instances.
+     */
+    @Scheduled(initialDelayString = "${battery.range-index.rebuild-interval-ms:60000}",
+            fixedDelayString = "${battery.range-index.rebuild-interval-ms:60000}")
+    public void reconcile() {
+        onApplicationReady();
+    }
+
+    /**
+     * Rebuilds the index from the battery table. Queries fall back to SQL while this runs.
+     */
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long start = System.nanoTime();
+        BatteryRangeIndex rebuilt = null;
+        try {
+            rebuilt = snapshotTransaction.execute(status -> {
+                int[] cellCounts = BatteryRangeIndex.newCellCounts();
+                boolean[] outOfDomain = {false};
+                jdbcTemplate.query(CELL_COUNTS_SQL, resultSet -> {
+                    int postcode = resultSet.getInt(1);
+                    int capacity = resultSet.getInt(2);
+                    if (BatteryRangeIndex.inDomain(postcode, capacity)) {
+                        cellCounts[BatteryRangeIndex.cell(postcode, capacity)] = resultSet.getInt(3);
+                    } else {
+                        outOfDomain[0] = true;
+                    }
+                });
+                if (outOfDomain[0]) {
+                    return null;
+                }
+                BatteryRangeIndex built = new BatteryRangeIndex();
+                built.load(cellCounts);
+
+                // Apply batteries committed during the rebuild that the snapshot did not see; hold the write lock
+                // so nothing else commits into the buffer before the index is published
+                lock.writeLock().lock();
+                try {
+                    Set<Long> visible = visibleIds(pending);
+                    for (Battery battery : pending) {
+                        int postcode = Integer.parseInt(battery.getPostcode());
+                        if (!BatteryRangeIndex.inDomain(postcode, battery.getWattCapacity())) {
+                            return null;
+                        }
+                        if (!visible.contains(battery.getId())) {
+                            built.add(postcode, battery.getWattCapacity(), 1);
+                        }
+                    }
+                    index = built;
+                    ready = true;
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                return built;
+            });
+        } finally {
+            if (rebuilt == null) {
+                // Failed or out of domain: stop buffering and keep falling back to SQL
+                lock.writeLock().lock();
+                try {
+                    index = null;
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+
+        if (rebuilt == null) {
+            logger.warn("Battery range index disabled: the battery table holds postcodes or capacities outside the index domain");
+            return;
+        }
+        logger.info("Battery range index rebuilt in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private Set<Long> visibleIds(List<Battery> batteries) {
+        if (batteries.isEmpty()) {
+            return Set.of();
+        }
+        String ids = batteries.stream().map(battery -> String.valueOf(battery.getId()))
+                .collect(Collectors.joining(",", "{", "}"));
+        return new HashSet<>(jdbcTemplate.queryForList(VISIBLE_IDS_SQL, Long.class, ids));
+    }
+
+    @TransactionalEventListener
+    @Order(BatteriesPersistedEvent.RANGE_INDEX_ORDER)
+    public void onBatteriesPersisted(BatteriesPersistedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.addAll(event.batteries());
+                return;
+            }
+            if (!ready) {
+                return;
+            }
+            for (Battery battery : event.batteries()) {
+                int postcode = Integer.parseInt(battery.getPostcode());
+                if (!BatteryRangeIndex.inDomain(postcode, battery.getWattCapacity())) {
+                    // The index can no longer represent the table; fall back to SQL until the next rebuild
+                    ready = false;
+                    index = null;
+                    logger.warn("Battery range index disabled: battery {} is outside the index domain", battery.getId());
+                    return;
+                }
+                index.add(postcode, battery.getWattCapacity(), 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Count and capacity sum for the range, or empty when the index is not available.
+     */
+    public Optional<BatteryRangeIndex.Totals> query(int startPostcode, int endPostcode, int minCapacity, int maxCapacity) {
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return Optional.empty();
+            }
+            return Optional.of(index.query(startPostcode, endPostcode, minCapacity, maxCapacity));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.dto.BatteryRequestDTO;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Validates incoming battery requests against the {@link BatteryRequestDTO} constraints.
+ *
+ * The Bean Validation engine is built once by Spring and shared across threads. Entries are first run
+ * through a hand-written check of the same constraints; only entries that fail it go through the full
+ * engine, so the reported errors are exactly what Bean Validation produces.
+ */
+@Component
+public class BatteryRequestValidator {
+    static final int MIN_WATT_CAPACITY = 1;
+    static final int MAX_WATT_CAPACITY = 1000;
+
+    private final Validator validator;
+
+    public BatteryRequestValidator(Validator validator) {
+        this.validator = validator;
+    }
+
+    /**
+     * Validates a single battery request.
+     * @param requestDTO The DTO to validate
+     * @return Map of field names to their validation error messages; empty if the request is valid
+     */
+    public Map<String, List<String>> validate(BatteryRequestDTO requestDTO) {
+        if (isValid(requestDTO)) {
+            return Collections.emptyMap();
+        }
+        return extractValidationErrors(validator.validate(requestDTO));
+    }
+
+    /**
+     * Fast-path check mirroring the annotations on {@link BatteryRequestDTO}:
+     * name not blank, postcode matching ^(0[2-9][0-9]{2}|[1-9][0-9]{3})$, watt capacity between 1 and 1000.
+     */
+    static boolean isValid(BatteryRequestDTO requestDTO) {
+        return requestDTO != null
+                && isNotBlank(requestDTO.getName())
+                && isValidPostcode(requestDTO.getPostcode())
+                && isValidWattCapacity(requestDTO.getWattCapacity());
+    }
+
+    private static boolean isNotBlank(String value) {
+        // Same rule as Hibernate Validator's @NotBlank: non-null and not empty after trim()
+        return value != null && !value.trim().isEmpty();
+    }
+
+    private static boolean isValidPostcode(String postcode) {
+        if (postcode == null || postcode.length() != 4) {
+            return false;
+        }
+        for (int i = 0; i < 4; i++) {
+            char c = postcode.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        // 0000-0199 are the only 4-digit values outside the range
+        return postcode.charAt(0) != '0' || postcode.charAt(1) >= '2';
+    }
+
+    private static boolean isValidWattCapacity(Integer wattCapacity) {
+        return wattCapacity != null && wattCapacity >= MIN_WATT_CAPACITY && wattCapacity <= MAX_WATT_CAPACITY;
+    }
+
+    /**
+     * Groups constraint violations by field name
+     * @param violations The violations reported by the validator
+     * @return Map of field names to their validation error messages
+     */
+    private Map<String, List<String>> extractValidationErrors(Set<ConstraintViolation<BatteryRequestDTO>> violations) {
+        return violations.stream()
+                .collect(Collectors.groupingBy(
+                        violation -> violation.getPropertyPath().toString(), // Group by field name
+                        Collectors.mapping(ConstraintViolation::getMessage, Collectors.toList()) // Collect multiple error messages in a list
+                ));
+    }
+}
@@ -1,36 +1,111 @@
 package com.example.battery_api.service;
 
+import com.example.battery_api.exception.BatteryPublishException;
+import com.example.battery_api.messaging.BatteryConsumerScaler;
 import com.example.battery_api.model.Battery;
+import com.example.battery_api.repository.BatteryChunkLedger;
+import com.example.battery_api.repository.BatteryCopyLoader;
+import com.example.battery_api.repository.BatteryNameKey;
+import com.example.battery_api.repository.BatteryRangeStatistics;
 import com.example.battery_api.repository.BatteryRepository;
 import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
 @Service
 public class BatteryService {
+    private static final Logger logger = LoggerFactory.getLogger(BatteryService.class);
+
     private final BatteryRepository batteryRepository;
 
     private final RabbitTemplate rabbitTemplate; // Message broker dependency
 
+    private final BatteryCopyLoader batteryCopyLoader; // COPY-based bulk loader for large batches
+
+    private final BatteryMessageChunker batteryMessageChunker; // Splits published batches into bounded messages
+
     @Autowired
     private EntityManager entityManager; // Inject EntityManager here
 
+    private final BatteryRangeIndexService batteryRangeIndexService; // In-memory range statistics, when enabled
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final BatteryRangeCache batteryRangeCache; // Read-through cache for range summaries
+
+    private final BatteryIngestJobTracker jobTracker; // Progress of asynchronous ingest jobs
+
+    private final BatteryChunkLedger batteryChunkLedger; // Committed message chunks, to skip redeliveries
+
+    private final BatteryIngestMetrics ingestMetrics; // Per-stage ingest timers
+
+    private final TransactionTemplate rangeTransaction; // Read-only, for range totals from SQL
+
+    private final TransactionTemplate rangeNamesTransaction; // Read-only REPEATABLE READ, for totals and names together
+
     @Autowired
-    public BatteryService(BatteryRepository batteryRepository, RabbitTemplate rabbitTemplate, EntityManager entityManager) {
+    public BatteryService(BatteryRepository batteryRepository, RabbitTemplate rabbitTemplate, EntityManager entityManager,
+                          BatteryCopyLoader batteryCopyLoader, BatteryMessageChunker batteryMessageChunker,
+                          BatteryRangeIndexService batteryRangeIndexService, ApplicationEventPublisher eventPublisher,
+                          BatteryRangeCache batteryRangeCache, BatteryIngestJobTracker jobTracker,
+                          BatteryChunkLedger batteryChunkLedger, BatteryIngestMetrics ingestMetrics,
+                          PlatformTransactionManager transactionManager) {
         this.batteryRepository = batteryRepository;
         this.rabbitTemplate = rabbitTemplate;
         this.entityManager = entityManager;
+        this.batteryCopyLoader = batteryCopyLoader;
+        this.batteryMessageChunker = batteryMessageChunker;
+        this.batteryRangeIndexService = batteryRangeIndexService;
+        this.eventPublisher = eventPublisher;
+        this.batteryRangeCache = batteryRangeCache;
+        this.jobTracker = jobTracker;
+        this.batteryChunkLedger = batteryChunkLedger;
+        this.ingestMetrics = ingestMetrics;
+        this.rangeTransaction = new TransactionTemplate(transactionManager);
+        this.rangeTransaction.setReadOnly(true);
+        this.rangeNamesTransaction = new TransactionTemplate(transactionManager);
+        this.rangeNamesTransaction.setReadOnly(true);
+        this.rangeNamesTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
 
     }
 
+    /**
+     * Persists the given batteries in the current transaction.
+     * Large batches are streamed through PostgreSQL COPY, smaller ones go through JPA batched inserts.
+     * A {@link BatteriesPersistedEvent} is published for the saved batteries; listeners see it after commit.
+     */
     @Transactional
     public List<Battery> saveBatteries(List<Battery> batteries) {
+        List<Battery> savedBatteries = persist(batteries);
+        eventPublisher.publishEvent(new BatteriesPersistedEvent(savedBatteries));
+        return savedBatteries;
+    }
+
+    private List<Battery> persist(List<Battery> batteries) {
+        if (batteryCopyLoader.shouldHandle(batteries.size())) {
+            return batteryCopyLoader.copy(batteries);
+        }
+
         List<Battery> savedBatteries = new ArrayList<>();
 
         for (int i = 0; i < batteries.size(); i++) {
@@ -64,33 +139,247 @@ public class BatteryService {
                 startPostcode, endPostcode, effectiveMinCapacity, effectiveMaxCapacity);
     }
 
+    /**
+     * Statistics and sorted names for the batteries in a postcode and capacity range.
+     * Without names, count, sum and average come from the in-memory range index when it is enabled and built,
+     * otherwise from one aggregate query in a read-only transaction. With names, the totals always come from the
+     * aggregate query and the names from a name-only query, both in one read-only REPEATABLE READ transaction, so the
+     * names match the totals returned with them; the index is not consulted, since it may lag batteries saved by
+     * other instances. No battery entities are loaded into the persistence context however wide the range is.
+     * Summaries are served from {@link BatteryRangeCache} until a save touching their postcode range commits.
+     *
+     * @param includeNames Whether to fetch the sorted battery names
+     * @return Map with totalCapacity, averageCapacity, totalBatteries and, if requested, batteries (sorted names)
+     */
+    public Map<String, Object> getBatteryRangeSummary(
+            String startPostcode, String endPostcode, Integer minCapacity, Integer maxCapacity, boolean includeNames) {
+
+        // If minCapacity or maxCapacity is null, set default bounds
+        int effectiveMinCapacity = (minCapacity != null) ? minCapacity : Integer.MIN_VALUE;
+        int effectiveMaxCapacity = (maxCapacity != null) ? maxCapacity : Integer.MAX_VALUE;
+
+        BatteryRangeCache.Key key = new BatteryRangeCache.Key(Integer.parseInt(startPostcode), Integer.parseInt(endPostcode),
+                effectiveMinCapacity, effectiveMaxCapacity, includeNames);
+        return batteryRangeCache.get(key, () -> computeBatteryRangeSummary(
+                startPostcode, endPostcode, effectiveMinCapacity, effectiveMaxCapacity, includeNames));
+    }
+
+    private Map<String, Object> computeBatteryRangeSummary(
+            String startPostcode, String endPostcode, int effectiveMinCapacity, int effectiveMaxCapacity, boolean includeNames) {
+        if (includeNames) {
+            return rangeNamesTransaction.execute(status -> readBatteryRangeSummary(
+                    startPostcode, endPostcode, effectiveMinCapacity, effectiveMaxCapacity, true, Optional.empty()));
+        }
+        Optional<BatteryRangeIndex.Totals> indexed = batteryRangeIndexService.query(
+                Integer.parseInt(startPostcode), Integer.parseInt(endPostcode), effectiveMinCapacity, effectiveMaxCapacity);
+        if (indexed.isPresent()) {
+            // Answered from memory alone, without taking a connection
+            return readBatteryRangeSummary(startPostcode, endPostcode, effectiveMinCapacity, effectiveMaxCapacity,
+                    false, indexed);
+        }
+        return rangeTransaction.execute(status -> readBatteryRangeSummary(
+                startPostcode, endPostcode, effectiveMinCapacity, effectiveMaxCapacity, false, indexed));
+    }
+
+    private Map<String, Object> readBatteryRangeSummary(
+            String startPostcode, String endPostcode, int effectiveMinCapacity, int effectiveMaxCapacity,
+            boolean includeNames, Optional<BatteryRangeIndex.Totals> indexed) {
+        long totalBatteries;
+        long totalCapacity;
+        double averageCapacity;
+        if (indexed.isPresent()) {
+            totalBatteries = indexed.get().count();
+            totalCapacity = indexed.get().sum();
+            averageCapacity = indexed.get().average();
+        } else {
+            BatteryRangeStatistics statistics = batteryRepository.findStatisticsByPostcodeAndCapacityRange(
+                    startPostcode, endPostcode, effectiveMinCapacity, effectiveMaxCapacity);
+            totalBatteries = statistics.getTotalBatteries();
+            totalCapacity = statistics.getTotalCapacity();
+            averageCapacity = statistics.getAverageCapacity();
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        if (includeNames) {
+            summary.put("batteries", Collections.unmodifiableList(batteryRepository.findNamesByPostcodeAndCapacityRange(
+                    startPostcode, endPostcode, effectiveMinCapacity, effectiveMaxCapacity)));
+        }
+        summary.put("totalCapacity", totalCapacity);
+        summary.put("averageCapacity", averageCapacity);
+        summary.put("totalBatteries", totalBatteries);
+        // The same map may be handed to several callers from the cache
+        return Collections.unmodifiableMap(summary);
+    }
+
+    /**
+     * One page of the battery names in a postcode and capacity range, with statistics over the whole range.
+     * Pages are ordered by name and then id and fetched by keyset: each page starts after the battery the cursor
+     * points to, so deep pages cost no more than the first. Statistics come from the cached summary; the page is
+     * always read from the database, so it is never hidden by totals that lag saves on other instances.
+     *
+     * @param pageSize Maximum number of names on the page
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @return Map with batteries (names on this page), nextCursor (null on the last page), totalCapacity,
+     *         averageCapacity and totalBatteries
+     */
+    public Map<String, Object> getBatteryRangePage(String startPostcode, String endPostcode, Integer minCapacity,
+                                                   Integer maxCapacity, int pageSize, String cursor) {
+        BatteryPageCursor after = (cursor != null) ? BatteryPageCursor.decode(cursor) : null;
+        Map<String, Object> totals = getBatteryRangeSummary(startPostcode, endPostcode, minCapacity, maxCapacity, false);
+
+        int effectiveMinCapacity = (minCapacity != null) ? minCapacity : Integer.MIN_VALUE;
+        int effectiveMaxCapacity = (maxCapacity != null) ? maxCapacity : Integer.MAX_VALUE;
+
+        // One extra row tells whether another page follows
+        List<BatteryNameKey> rows = after == null
+                ? batteryRepository.findFirstNamePageByPostcodeAndCapacityRange(
+                        startPostcode, endPostcode, effectiveMinCapacity, effectiveMaxCapacity, pageSize + 1)
+                : batteryRepository.findNamePageAfterByPostcodeAndCapacityRange(
+                        startPostcode, endPostcode, effectiveMinCapacity, effectiveMaxCapacity,
+                        after.name(), after.id(), pageSize + 1);
+        List<BatteryNameKey> page = rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("batteries", page.stream().map(BatteryNameKey::getName).toList());
+        response.put("nextCursor", rows.size() > pageSize
+                ? new BatteryPageCursor(page.get(pageSize - 1).getName(), page.get(pageSize - 1).getId()).encode()
+                : null);
+        response.putAll(totals);
+        return response;
+    }
+
     // Method to publish valid batteries to the message broker
-    public void publishValidBatteries(List<Battery> validBatteries) {
+    public String publishValidBatteries(List<Battery> validBatteries) {
+        return publishValidBatteries(validBatteries, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Publishes valid batteries as one or more size-bounded messages that share the given batch ID.
+     * @return The batch ID stamped on the published messages
+     */
+    public String publishValidBatteries(List<Battery> validBatteries, String batchId) {
+        return publishValidBatteries(validBatteries, batchId, null);
+    }
+
+    /**
+     * Publishes valid batteries received through the given endpoint (one of the {@link BatteryIngestMetrics}
+     * endpoint names). Every message is stamped with the endpoint and its publish time, and the publish is timed.
+     * @return The batch ID stamped on the published messages
+     * @throws BatteryPublishException if the broker rejects a message; it tells how many batteries, from the start of
+     *         the list, had already been published
+     */
+    public String publishValidBatteries(List<Battery> validBatteries, String batchId, String endpoint) {
 
         // Fail fast if the input is null
         if (validBatteries == null) {
             throw new NullPointerException("The batteries list cannot be null.");
         }
-        // Publish all valid batteries as a single message to the queue
-        rabbitTemplate.convertAndSend("batteryQueue", validBatteries);
-        System.out.println("Published " + validBatteries.size() + " valid batteries to the queue.");
+        long start = ingestMetrics.nanoTime();
+        // Publish the valid batteries in chunks so no single message grows with the upload
+        int[] published = new int[1];
+        int chunks;
+        try {
+            chunks = batteryMessageChunker.chunk(validBatteries, batchId, message -> {
+                ingestMetrics.stamp(message.getMessageProperties(), endpoint);
+                rabbitTemplate.send("batteryQueue", message);
+                published[0] += (int) message.getMessageProperties().getHeader(BatteryMessageChunker.RECORD_COUNT_HEADER);
+            });
+        } catch (AmqpException ex) {
+            throw new BatteryPublishException(published[0], ex);
+        }
+        ingestMetrics.record(endpoint, BatteryIngestMetrics.Stage.PUBLISH, start);
+        logger.debug("Published {} valid batteries to the queue in {} message(s), batch {}",
+                validBatteries.size(), chunks, batchId);
+        return batchId;
     }
 
     /**
      * Consumer to process batteries from the message broker.
      * Listens to the queue and processes valid batteries in batches.
+     * Each message is one chunk of a published batch; chunks of the same batch may be processed in parallel.
+     * A chunk that has already been committed (a redelivery after a lost ack) is acknowledged without saving again.
+     * Queue wait, consume and persist times are recorded under the endpoint the batteries were uploaded through.
      */
-    @RabbitListener(queues = "${rabbitmq.queue.batteries}") // Queue name from application properties
+    @RabbitListener(id = BatteryConsumerScaler.LISTENER_ID, queues = "${rabbitmq.queue.batteries}", // Queue name from application properties
+            autoStartup = "#{'${battery.consumer.mode:single}' == 'single'}")
     @Transactional
-    public void processBatteries(List<Battery> batteries) {
+    public void processBatteries(List<Battery> batteries,
+                                 @Header(name = BatteryMessageChunker.BATCH_ID_HEADER, required = false) String batchId,
+                                 @Header(name = BatteryMessageChunker.CHUNK_INDEX_HEADER, required = false) Integer chunkIndex,
+                                 @Header(name = BatteryIngestMetrics.ENDPOINT_HEADER, required = false) String endpoint,
+                                 @Header(name = BatteryIngestMetrics.PUBLISHED_AT_HEADER, required = false) Long publishedAt) {
+        long consumeStart = ingestMetrics.nanoTime();
         // Check if the batteries list is null
         if (batteries == null) {
             throw new NullPointerException("The batteries list cannot be null.");
         }
+        ingestMetrics.recordDelivery(endpoint, publishedAt, batteries.size());
 
-        System.out.println("Processing " + batteries.size() + " batteries from the queue.");
+        logger.debug("Processing {} batteries from the queue (batch {}, chunk {})",
+                batteries.size(), batchId, chunkIndex);
 
+        if (isRedelivery(batchId, chunkIndex)) {
+            logger.info("Chunk {} of batch {} was already persisted; skipping the redelivery", chunkIndex, batchId);
+            return;
+        }
+        jobTracker.recordPersist(batchId, batteries.size()); // Counted when the transaction completes
+        long persistStart = ingestMetrics.nanoTime();
         saveBatteries(batteries); // Process and save batteries in batch
-        System.out.println("Batch processing complete.");
+        ingestMetrics.recordConsumeOnCommit(endpoint, consumeStart, persistStart);
+        logger.debug("Saved {} batteries (batch {}, chunk {})", batteries.size(), batchId, chunkIndex);
+    }
+
+    /**
+     * Coalescing consumer used when battery.consumer.mode=batch.
+     * The container hands over up to battery.consumer.batch.max-messages deliveries at once (or whatever arrived
+     * within the receive timeout). Their batteries are saved in one transaction, and only after it commits does the
+     * container ack the last delivery tag with multiple=true, covering every delivery in the batch. If the
+     * transaction fails, all deliveries are rejected and redelivered, so no message is lost. Deliveries of chunks
+     * that have already been committed are acknowledged with the rest but not saved again.
+     */
+    @RabbitListener(id = BatteryConsumerScaler.BATCH_LISTENER_ID, queues = "${rabbitmq.queue.batteries}",
+            containerFactory = "batteryBatchListenerContainerFactory",
+            autoStartup = "#{'${battery.consumer.mode:single}' == 'batch'}")
+    @Transactional
+    public void processBatteryBatches(List<Message<List<Battery>>> deliveries) {
+        long consumeStart = ingestMetrics.nanoTime();
+        List<Battery> batteries = new ArrayList<>();
+        int skipped = 0;
+        String endpoint = null;
+        for (Message<List<Battery>> delivery : deliveries) {
+            if (delivery.getPayload() == null) {
+                throw new NullPointerException("The batteries list cannot be null.");
+            }
+            String deliveryEndpoint = delivery.getHeaders().get(BatteryIngestMetrics.ENDPOINT_HEADER, String.class);
+            ingestMetrics.recordDelivery(deliveryEndpoint,
+                    delivery.getHeaders().get(BatteryIngestMetrics.PUBLISHED_AT_HEADER, Long.class),
+                    delivery.getPayload().size());
+            endpoint = BatteryIngestMetrics.combine(endpoint, deliveryEndpoint);
+            String batchId = delivery.getHeaders().get(BatteryMessageChunker.BATCH_ID_HEADER, String.class);
+            if (isRedelivery(batchId, delivery.getHeaders().get(BatteryMessageChunker.CHUNK_INDEX_HEADER, Integer.class))) {
+                skipped++;
+                continue;
+            }
+            batteries.addAll(delivery.getPayload());
+            jobTracker.recordPersist(batchId, delivery.getPayload().size());
+        }
+        if (skipped > 0) {
+            logger.info("Skipped {} redelivered chunk(s) that were already persisted", skipped);
+        }
+
+        logger.debug("Processing {} batteries from {} coalesced queue message(s)", batteries.size(), deliveries.size());
+
+        long persistStart = ingestMetrics.nanoTime();
+        saveBatteries(batteries); // One transaction and flush for the whole group of messages
+        ingestMetrics.recordConsumeOnCommit(endpoint, consumeStart, persistStart);
+        logger.debug("Saved {} batteries from {} coalesced queue message(s)", batteries.size(), deliveries.size());
+    }
+
+    /**
+     * Claims the chunk in the current transaction; true if it was already committed by an earlier delivery.
+     * Messages without batch headers (published by older producers) are always processed.
+     */
+    private boolean isRedelivery(String batchId, Integer chunkIndex) {
+        return batchId != null && chunkIndex != null && !batteryChunkLedger.claim(batchId, chunkIndex);
     }
 }
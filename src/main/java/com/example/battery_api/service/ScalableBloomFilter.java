@@ -0,0 +1,150 @@
+package com.example.battery_api.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scalable Bloom filter (Almeida et al.): a chain of plain Bloom filters where each new layer is twice as large as
+ * the previous one and has half its false-positive rate, so the filter can grow without knowing the final number
+ * of keys while the overall false-positive rate stays below the configured target.
+ *
+ * The first layer gets half the target rate; the rates of all layers then sum to at most the target. A lookup
+ * checks every layer, an insertion only goes into the newest one. There are no false negatives.
+ *
+ * Keys are hashed once to 128 bits and the k bit positions per layer are derived by double hashing
+ * (h1 + i * h2). At a 1% target about 10 bits are used per key, i.e. roughly 1.2 MB per million batteries.
+ *
+ * Not thread-safe; callers guard insertions and lookups with a lock.
+ */
+public class ScalableBloomFilter {
+    private static final int GROWTH_FACTOR = 2;
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final List<Layer> layers = new ArrayList<>();
+    private long size;
+
+    /**
+     * @param initialCapacity Keys the first layer holds before a larger layer is added
+     * @param falsePositiveRate Target false-positive rate of the whole filter, between 0 and 1 exclusive
+     */
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        if (initialCapacity < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("A Bloom filter needs a capacity >= 1 and a false-positive rate in (0, 1)");
+        }
+        layers.add(new Layer(initialCapacity, falsePositiveRate * (1 - TIGHTENING_RATIO)));
+    }
+
+    /**
+     * Adds the key. Keys that are already (probably) present are not counted again, so re-adding them does not
+     * make the filter grow.
+     */
+    public void add(CharSequence key) {
+        long[] hash = hash(key);
+        if (mightContain(hash)) {
+            return;
+        }
+        Layer newest = layers.get(layers.size() - 1);
+        if (newest.count >= newest.capacity) {
+            newest = new Layer(newest.capacity * GROWTH_FACTOR, newest.falsePositiveRate * TIGHTENING_RATIO);
+            layers.add(newest);
+        }
+        newest.set(hash[0], hash[1]);
+        size++;
+    }
+
+    /**
+     * @return false if the key was definitely never added, true if it probably was
+     */
+    public boolean mightContain(CharSequence key) {
+        return mightContain(hash(key));
+    }
+
+    private boolean mightContain(long[] hash) {
+        for (Layer layer : layers) {
+            if (layer.get(hash[0], hash[1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Number of distinct keys added (keys that were false positives on insertion are not counted).
+     */
+    public long size() {
+        return size;
+    }
+
+    public int layerCount() {
+        return layers.size();
+    }
+
+    public long bitCount() {
+        return layers.stream().mapToLong(layer -> layer.bits).sum();
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units, finalised twice with the MurmurHash3 mixer to get two
+     * independent-enough 64-bit hashes for double hashing.
+     */
+    static long[] hash(CharSequence key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        long h1 = mix(h);
+        long h2 = mix(h ^ 0x9e3779b97f4a7c15L) | 1; // Odd, so the probe sequence does not collapse
+        return new long[]{h1, h2};
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Layer {
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final long bits;
+        private final int hashFunctions;
+        private final long[] words;
+        private long count;
+
+        Layer(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            // Optimal size and number of hash functions for the capacity and rate
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bits = Math.max(64, (optimalBits + 63) / 64 * 64);
+            this.hashFunctions = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+            this.words = new long[Math.toIntExact(bits / 64)];
+        }
+
+        void set(long h1, long h2) {
+            long combined = h1;
+            for (int i = 0; i < hashFunctions; i++) {
+                long bit = Long.remainderUnsigned(combined, bits);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+                combined += h2;
+            }
+            count++;
+        }
+
+        boolean get(long h1, long h2) {
+            long combined = h1;
+            for (int i = 0; i < hashFunctions; i++) {
+                long bit = Long.remainderUnsigned(combined, bits);
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+                combined += h2;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.dto.BatteryRequestDTO;
+import com.example.battery_api.exception.BatteryPublishException;
+import com.example.battery_api.model.Battery;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Ingests battery uploads without materialising them, either as a JSON array or as
+ * newline-delimited JSON (one battery per line).
+ *
+ * Elements are parsed one at a time, validated as they arrive and published to the message broker in
+ * chunks of {@code battery.ingest.chunk-size}. Results are written to the response as they are known,
+ * so memory use is bounded by the chunk size rather than by the size of the upload.
+ *
+ * Response format:
+ * {
+ *   "entries": [
+ *     {"index": 2, "status": "invalid", "data": {...}, "errors": {"postcode": ["..."]}},
+ *     {"index": 0, "status": "saved", "battery": {"name": "...", "postcode": "...", "wattCapacity": 100}},
+ *     ...
+ *   ],
+ *   "savedBatteriesCount": 1,
+ *   "invalidEntriesCount": 1,
+ *   "duplicateEntriesCount": 0
+ * }
+ * With battery.dedupe.enabled=true, valid entries that duplicate a stored battery (or an earlier entry) are
+ * reported as {"index": 3, "status": "duplicate", "data": {...}} and not published.
+ * Invalid and duplicate entries are written immediately, saved entries once their chunk has been published, so entries
+ * are not necessarily in index order. If the input turns out to be malformed part-way through, the
+ * entries read so far are still reported and an "error" field describes the problem. If the message broker fails,
+ * the batteries of the failed chunk it did not accept are reported with status "unpublished", the rest of the
+ * upload is not read, and the response ends with "unpublishedBatteriesCount" and an "error" field.
+ * For newline-delimited JSON the index is the zero-based line number, and a malformed line (including one with
+ * anything after its JSON value, or one longer than the configured limit) is reported as an invalid entry
+ * without stopping the upload.
+ */
+@Component
+public class StreamingBatteryIngestor {
+    private static final Logger logger = LoggerFactory.getLogger(StreamingBatteryIngestor.class);
+
+    private final BatteryRequestValidator batteryRequestValidator;
+    private final BatteryMapper batteryMapper;
+    private final BatteryService batteryService;
+    private final BatteryDuplicateFilter duplicateFilter;
+    private final BatteryIngestMetrics ingestMetrics;
+    private final ObjectMapper objectMapper;
+    // Reads one NDJSON line; a second value or stray token after the first makes the line malformed
+    private final ObjectReader lineReader;
+    private final int chunkSize;
+    private final int maxLineLength;
+
+    public StreamingBatteryIngestor(BatteryRequestValidator batteryRequestValidator, BatteryMapper batteryMapper,
+                                    BatteryService batteryService, BatteryDuplicateFilter duplicateFilter,
+                                    BatteryIngestMetrics ingestMetrics, ObjectMapper objectMapper, @Value("${battery.ingest.chunk-size:1000}") int chunkSize,
+                                    @Value("${battery.ingest.max-line-length:65536}") int maxLineLength) {
+        this.batteryRequestValidator = batteryRequestValidator;
+        this.batteryMapper = batteryMapper;
+        this.batteryService = batteryService;
+        this.duplicateFilter = duplicateFilter;
+        this.ingestMetrics = ingestMetrics;
+        this.objectMapper = objectMapper;
+        this.lineReader = objectMapper.readerFor(JsonNode.class).with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+        this.chunkSize = chunkSize;
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Ingests a JSON array of battery requests.
+     * @param input Request whose body must be a JSON array
+     * @param output Response body the results are streamed to
+     * @return Summary counts of the upload
+     * @throws HttpMessageNotReadableException if the body does not start with a JSON array
+     */
+    public IngestSummary ingestJsonArray(HttpInputMessage input, OutputStream output) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(input.getBody())) {
+            JsonToken first;
+            try {
+                first = parser.nextToken();
+            } catch (JsonProcessingException ex) {
+                throw new HttpMessageNotReadableException("Malformed JSON: " + ex.getOriginalMessage(), ex, input);
+            }
+            if (first != JsonToken.START_ARRAY) {
+                throw new HttpMessageNotReadableException("Request body must be a JSON array of batteries", input);
+            }
+
+            try (Session session = new Session(objectMapper.createGenerator(output), BatteryIngestMetrics.STREAM)) {
+                int index = 0;
+                try {
+                    while (!session.publishFailed() && parser.nextToken() != JsonToken.END_ARRAY) {
+                        JsonNode element = parser.readValueAsTree();
+                        session.accept(index++, element);
+                    }
+                } catch (JsonProcessingException ex) {
+                    logger.warn("Malformed JSON at element {}: {}", index, ex.getOriginalMessage());
+                    session.fail("Malformed JSON at element " + index + ": " + ex.getOriginalMessage());
+                }
+                return session.finish();
+            }
+        }
+    }
+
+    /**
+     * Ingests newline-delimited JSON, one battery request object per line. Blank lines are skipped. At most
+     * battery.ingest.max-line-length characters of a line are kept; a longer line is rejected and the rest of it
+     * skipped, so a body without line breaks is never buffered whole.
+     * @param input Request whose body is newline-delimited JSON
+     * @param output Response body the results are streamed to
+     * @return Summary counts of the upload
+     */
+    public IngestSummary ingestJsonLines(HttpInputMessage input, OutputStream output) throws IOException {
+        try (Reader body = new InputStreamReader(input.getBody(), StandardCharsets.UTF_8);
+             Session session = new Session(objectMapper.createGenerator(output), BatteryIngestMetrics.NDJSON)) {
+            BoundedLineReader reader = new BoundedLineReader(body, maxLineLength);
+            String line;
+            for (int index = 0; !session.publishFailed() && (line = reader.readLine()) != null; index++) {
+                if (reader.overlong()) {
+                    session.reject(index, null,
+                            Map.of("line", List.of("Line is longer than " + maxLineLength + " characters")));
+                    continue;
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode element;
+                try {
+                    element = lineReader.readTree(line);
+                } catch (JsonProcessingException ex) {
+                    session.reject(index, line, Map.of("line", List.of("Malformed JSON: " + ex.getOriginalMessage())));
+                    continue;
+                }
+                session.accept(index, element);
+            }
+            return session.finish();
+        }
+    }
+
+    /**
+     * Reads lines like {@link java.io.BufferedReader#readLine()} (ending at "\n" or "\r\n"), but keeps at most
+     * maxLength characters of each; the rest of a longer line is read past and dropped.
+     */
+    private static final class BoundedLineReader {
+        private final Reader reader;
+        private final int maxLength;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean overlong;
+
+        BoundedLineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * @return The next line without its terminator, or null at the end of the input
+         */
+        String readLine() throws IOException {
+            line.setLength(0);
+            overlong = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    position = 0;
+                    limit = Math.max(reader.read(buffer), 0);
+                    if (limit == 0) {
+                        return read ? endLine() : null;
+                    }
+                }
+                read = true;
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                append(start, position);
+                if (position < limit) {
+                    position++;
+                    return endLine();
+                }
+            }
+        }
+
+        /**
+         * Whether the line last returned was cut off at the limit.
+         */
+        boolean overlong() {
+            return overlong;
+        }
+
+        private void append(int start, int end) {
+            int room = maxLength - line.length();
+            if (end - start > room) {
+                overlong = true;
+                end = start + room;
+            }
+            line.append(buffer, start, end - start);
+        }
+
+        private String endLine() {
+            int length = line.length();
+            if (!overlong && length > 0 && line.charAt(length - 1) == '\r') {
+                line.setLength(length - 1);
+            }
+            return line.toString();
+        }
+    }
+
+    /**
+     * Counts reported once an upload has been fully processed.
+     */
+    public record IngestSummary(int savedBatteriesCount, int invalidEntriesCount, int duplicateEntriesCount) {
+    }
+
+    /**
+     * Per-upload state: the chunk of valid batteries not yet published and the running counts.
+     */
+    private class Session implements AutoCloseable {
+        private final JsonGenerator generator;
+        private final BatteryDuplicateFilter.Screen duplicateScreen = duplicateFilter.newScreen();
+        private final String endpoint;
+        private final BatteryIngestMetrics.Upload upload;
+        private List<Battery> chunk = new ArrayList<>();
+        private List<Integer> chunkIndexes = new ArrayList<>();
+        private int savedCount;
+        private int invalidCount;
+        private int duplicateCount;
+        private int unpublishedCount;
+        private boolean publishFailed;
+        private String error;
+
+        Session(JsonGenerator generator, String endpoint) throws IOException {
+            this.generator = generator;
+            this.endpoint = endpoint;
+            this.upload = ingestMetrics.startUpload(endpoint);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("entries");
+        }
+
+        void accept(int index, JsonNode element) throws IOException {
+            BatteryRequestDTO requestDTO;
+            try {
+                requestDTO = element.isNull()
+                        ? new BatteryRequestDTO(null, null, null)
+                        : objectMapper.treeToValue(element, BatteryRequestDTO.class);
+            } catch (JsonProcessingException ex) {
+                reject(index, element, Map.of("battery", List.of("Unreadable battery entry: " + ex.getOriginalMessage())));
+                return;
+            }
+
+            long start = ingestMetrics.nanoTime();
+            Map<String, List<String>> errors = batteryRequestValidator.validate(requestDTO);
+            start = upload.validated(start, errors.isEmpty());
+            if (!errors.isEmpty()) {
+                writeInvalid(index, requestDTO, errors);
+                return;
+            }
+
+            Battery battery = batteryMapper.toEntity(requestDTO);
+            upload.mapped(start);
+            if (duplicateScreen.isDuplicate(battery)) {
+                upload.duplicate();
+                writeDuplicate(index, requestDTO);
+                return;
+            }
+            chunk.add(battery);
+            chunkIndexes.add(index);
+            if (chunk.size() >= chunkSize) {
+                publishChunk();
+            }
+        }
+
+        void fail(String error) {
+            this.error = error;
+        }
+
+        /**
+         * Whether the broker failed; nothing more is read or published after that.
+         */
+        boolean publishFailed() {
+            return publishFailed;
+        }
+
+        IngestSummary finish() throws IOException {
+            publishChunk();
+            upload.finish();
+            generator.writeEndArray();
+            generator.writeNumberField("savedBatteriesCount", savedCount);
+            generator.writeNumberField("invalidEntriesCount", invalidCount);
+            generator.writeNumberField("duplicateEntriesCount", duplicateCount);
+            if (publishFailed) {
+                generator.writeNumberField("unpublishedBatteriesCount", unpublishedCount);
+            }
+            if (error != null) {
+                generator.writeStringField("error", error);
+            }
+            generator.writeEndObject();
+            logger.info("Streamed ingest complete. Valid: {}, Invalid: {}, Duplicate: {}",
+                    savedCount, invalidCount, duplicateCount);
+            return new IngestSummary(savedCount, invalidCount, duplicateCount);
+        }
+
+        /**
+         * Reports an entry that could not be read as a battery request, so it never reached validation.
+         */
+        void reject(int index, Object data, Map<String, List<String>> errors) throws IOException {
+            upload.rejected();
+            writeInvalid(index, data, errors);
+        }
+
+        private void writeInvalid(int index, Object data, Map<String, List<String>> errors) throws IOException {
+            logger.warn("Validation failed for battery at index {}: {}", index, errors);
+            invalidCount++;
+            generator.writeStartObject();
+            generator.writeNumberField("index", index);
+            generator.writeStringField("status", "invalid");
+            generator.writeObjectField("data", data);
+            generator.writeObjectField("errors", errors);
+            generator.writeEndObject();
+        }
+
+        private void writeDuplicate(int index, BatteryRequestDTO data) throws IOException {
+            logger.debug("Battery at index {} duplicates a stored battery", index);
+            duplicateCount++;
+            generator.writeStartObject();
+            generator.writeNumberField("index", index);
+            generator.writeStringField("status", "duplicate");
+            generator.writeObjectField("data", data);
+            generator.writeEndObject();
+        }
+
+        private void publishChunk() throws IOException {
+            if (chunk.isEmpty() || publishFailed) {
+                return;
+            }
+            logger.debug("Publishing chunk of {} valid batteries", chunk.size());
+            // The response is already under way, so a broker failure is reported in it rather than thrown
+            int published = chunk.size();
+            try {
+                batteryService.publishValidBatteries(chunk, UUID.randomUUID().toString(), endpoint);
+            } catch (BatteryPublishException ex) {
+                published = ex.getPublishedCount();
+                publishFailed(published, ex);
+            } catch (AmqpException ex) {
+                published = 0;
+                publishFailed(published, ex);
+            }
+
+            for (int i = 0; i < chunk.size(); i++) {
+                Battery battery = chunk.get(i);
+                generator.writeStartObject();
+                generator.writeNumberField("index", chunkIndexes.get(i));
+                generator.writeStringField("status", i < published ? "saved" : "unpublished");
+                generator.writeObjectFieldStart("battery");
+                generator.writeStringField("name", battery.getName());
+                generator.writeStringField("postcode", battery.getPostcode());
+                generator.writeNumberField("wattCapacity", battery.getWattCapacity());
+                generator.writeEndObject();
+                generator.writeEndObject();
+            }
+            savedCount += published;
+            unpublishedCount += chunk.size() - published;
+            chunk = new ArrayList<>();
+            chunkIndexes = new ArrayList<>();
+            generator.flush();
+        }
+
+        private void publishFailed(int published, AmqpException ex) {
+            logger.error("Publishing a chunk of {} batteries failed after {}; stopping the upload",
+                    chunk.size(), published, ex);
+            publishFailed = true;
+            error = "Publishing to the message broker failed; the batteries marked unpublished and the rest of the"
+                    + " upload were not saved: " + ex.getMessage();
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.battery_api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load comparison of the default platform-thread configuration and the virtual-threads profile.
+ *
+ * Starts the application once per configuration against the same database and drives /with-range (names
+ * included, range cache off, so every request blocks on JDBC) from more concurrent clients than Tomcat has
+ * platform worker threads. Prints throughput, p50/p99/max latency and the number of 503 rejections.
+ *
+ * Needs Java 21 and a local PostgreSQL holding batteries, e.g.:
+ * mvn test -Dtest=ThreadingLoadComparisonTest -Dbenchmark.postgres.url=jdbc:postgresql://localhost:5432/battery_db
+ *          -Dbenchmark.postgres.username=batman -Dbenchmark.postgres.password=tangstan
+ *          [-Dbenchmark.clients=400] [-Dbenchmark.seconds=20]
+ */
+@EnabledIfSystemProperty(named = "benchmark.postgres.url", matches = ".+")
+@EnabledForJreRange(min = JRE.JAVA_21)
+class ThreadingLoadComparisonTest {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 400);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 20);
+    private static final int WARMUP_SECONDS = 5;
+    private static final int RANGE_WIDTH = 20;
+
+    @Test
+    void comparePlatformAndVirtualThreads() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        System.out.printf("%d clients, %d s per run, /with-range over %d postcodes%n", CLIENTS, SECONDS, RANGE_WIDTH);
+        System.out.println(platform.describe("Platform threads"));
+        System.out.println(virtual.describe("Virtual threads "));
+
+        assertThat(platform.completed()).isPositive();
+        assertThat(virtual.completed()).isPositive();
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(BatteryApiApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + System.getProperty("benchmark.postgres.url"),
+                        "spring.datasource.username=" + System.getProperty("benchmark.postgres.username", "postgres"),
+                        "spring.datasource.password=" + System.getProperty("benchmark.postgres.password", ""),
+                        // Every request goes to the database, and no SQL is printed while measuring
+                        "battery.range-cache.enabled=false",
+                        "battery.consumer.mode=none",
+                        "spring.jpa.show-sql=false",
+                        "spring.jpa.properties.hibernate.show_sql=false",
+                        "logging.level.root=WARN");
+        if (virtualThreads) {
+            builder.profiles("virtual-threads");
+        }
+        try (ConfigurableApplicationContext context = builder.run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            drive(port, WARMUP_SECONDS);
+            return drive(port, SECONDS);
+        }
+    }
+
+    private Result drive(int port, int seconds) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long start = System.nanoTime();
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                Random random = new Random(i);
+                futures.add(executor.submit(() -> {
+                    // Latencies in microseconds, then the number of rejected and failed requests
+                    List<Long> latencies = new ArrayList<>();
+                    long rejected = 0;
+                    long failed = 0;
+                    while (System.nanoTime() < deadline) {
+                        int from = 200 + random.nextInt(9800 - RANGE_WIDTH);
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(String.format(
+                                "http://localhost:%d/api/batteries/with-range?startPostcode=%04d&endPostcode=%04d",
+                                port, from, from + RANGE_WIDTH))).timeout(Duration.ofSeconds(30)).build();
+                        long begin = System.nanoTime();
+                        try {
+                            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status == 200) {
+                                latencies.add((System.nanoTime() - begin) / 1_000);
+                            } else if (status == 503) {
+                                rejected++;
+                            } else {
+                                failed++;
+                            }
+                        } catch (java.io.IOException ex) {
+                            failed++;
+                        }
+                    }
+                    long[] result = new long[latencies.size() + 2];
+                    for (int j = 0; j < latencies.size(); j++) {
+                        result[j] = latencies.get(j);
+                    }
+                    result[result.length - 2] = rejected;
+                    result[result.length - 1] = failed;
+                    return result;
+                }));
+            }
+
+            List<Long> all = new ArrayList<>();
+            long rejected = 0;
+            long failed = 0;
+            for (Future<long[]> future : futures) {
+                long[] result = future.get();
+                for (int j = 0; j < result.length - 2; j++) {
+                    all.add(result[j]);
+                }
+                rejected += result[result.length - 2];
+                failed += result[result.length - 1];
+            }
+            long[] micros = all.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(micros);
+            return new Result(micros, rejected, failed, (System.nanoTime() - start) / 1e9);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private record Result(long[] micros, long rejected, long failed, double elapsedSeconds) {
+
+        long completed() {
+            return micros.length;
+        }
+
+        String describe(String label) {
+            if (micros.length == 0) {
+                return label + ": no successful requests, " + rejected + " rejected, " + failed + " failed";
+            }
+            return String.format("%s: %,8.0f req/s  p50 %,7.1f ms  p99 %,7.1f ms  max %,7.1f ms  503s %,d  errors %,d",
+                    label, micros.length / elapsedSeconds, percentile(0.50), percentile(0.99),
+                    micros[micros.length - 1] / 1000.0, rejected, failed);
+        }
+
+        private double percentile(double p) {
+            return micros[(int) Math.min(micros.length - 1, Math.floor(p * micros.length))] / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.battery_api.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolConcurrencyFilterTest {
+
+    private static MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/api/batteries/with-range");
+    }
+
+    @Test
+    void testRequestWithinLimitPassesThroughAndReleasesPermit() throws ServletException, IOException {
+        ConnectionPoolConcurrencyFilter filter = new ConnectionPoolConcurrencyFilter(2, 10);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        boolean[] called = {false};
+
+        filter.doFilter(request(), response, (req, res) -> called[0] = true);
+
+        assertTrue(called[0]);
+        assertEquals(200, response.getStatus());
+        assertEquals(2, filter.getAvailablePermits());
+    }
+
+    @Test
+    void testRequestOverLimitRejectedWith503() throws Exception {
+        ConnectionPoolConcurrencyFilter filter = new ConnectionPoolConcurrencyFilter(1, 50);
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> holder = executor.submit(() -> {
+                filter.doFilter(request(), new MockHttpServletResponse(), (req, res) -> {
+                    inside.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                return null;
+            });
+            assertTrue(inside.await(5, TimeUnit.SECONDS));
+
+            MockHttpServletResponse rejected = new MockHttpServletResponse();
+            boolean[] called = {false};
+            filter.doFilter(request(), rejected, (req, res) -> called[0] = true);
+
+            assertFalse(called[0]);
+            assertEquals(503, rejected.getStatus());
+            assertEquals("1", rejected.getHeader("Retry-After"));
+            assertTrue(rejected.getContentAsString().contains("Too many concurrent requests"));
+
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+            assertEquals(1, filter.getAvailablePermits());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testPermitReleasedWhenHandlerThrows() {
+        ConnectionPoolConcurrencyFilter filter = new ConnectionPoolConcurrencyFilter(1, 10);
+        FilterChain failing = (req, res) -> {
+            throw new ServletException("boom");
+        };
+
+        assertThrows(ServletException.class, () -> filter.doFilter(request(), new MockHttpServletResponse(), failing));
+        assertEquals(1, filter.getAvailablePermits());
+    }
+
+    @Test
+    void testLimitMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPoolConcurrencyFilter(0, 10));
+    }
+}
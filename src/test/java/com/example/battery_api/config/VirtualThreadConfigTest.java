@@ -0,0 +1,46 @@
+package com.example.battery_api.config;
+
+import com.example.battery_api.messaging.BatteryConsumerScaler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VirtualThreadConfigTest {
+
+    private BatteryConsumerScaler consumerScaler;
+    private RabbitProperties rabbitProperties;
+
+    @BeforeEach
+    void setUp() {
+        consumerScaler = mock(BatteryConsumerScaler.class);
+        rabbitProperties = new RabbitProperties();
+        rabbitProperties.getListener().getSimple().setConcurrency(4);
+    }
+
+    @Test
+    void testDefaultRequestLimit_leavesTheConnectionsReservedFromTheScaler() {
+        // Pool of 10 with 4 reserved connections: the scaler may run up to 6 consumers
+        when(consumerScaler.consumerLimit()).thenReturn(6);
+
+        assertEquals(4, VirtualThreadConfig.defaultRequestLimit(10, consumerScaler, rabbitProperties));
+    }
+
+    @Test
+    void testDefaultRequestLimit_configuredListenerConcurrencyAboveTheScalerLimit() {
+        when(consumerScaler.consumerLimit()).thenReturn(2);
+        rabbitProperties.getListener().getSimple().setMaxConcurrency(8);
+
+        assertEquals(2, VirtualThreadConfig.defaultRequestLimit(10, consumerScaler, rabbitProperties));
+    }
+
+    @Test
+    void testDefaultRequestLimit_neverBelowOne() {
+        when(consumerScaler.consumerLimit()).thenReturn(10);
+
+        assertEquals(1, VirtualThreadConfig.defaultRequestLimit(10, consumerScaler, rabbitProperties));
+    }
+}
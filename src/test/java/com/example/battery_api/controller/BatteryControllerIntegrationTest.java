@@ -25,7 +25,8 @@ import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// Batteries are written straight through the repository, bypassing the cache invalidation on save
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "battery.range-cache.enabled=false")
 @Testcontainers
 public class BatteryControllerIntegrationTest {
 
@@ -331,6 +332,36 @@ public class BatteryControllerIntegrationTest {
 
     }
 
+    @Test
+    public void testGetBatteriesInRangePaginated() {
+        batteryRepository.saveAll(List.of(
+                createBattery("PowerCell A1", "7002", 200),
+                createBattery("TurboCharge A", "7040", 250),
+                createBattery("PowerCell B", "7100", 150),
+                createBattery("PowerCell B", "7050", 100),
+                createBattery("TurboCharge D", "8000", 50)
+        ));
+        String url = "http://localhost:" + port + "/api/batteries/with-range?startPostcode=7000&endPostcode=7100&pageSize=2";
+
+        // First page, then follow the cursor
+        ResponseEntity<Map> first = restTemplate.getForEntity(url, Map.class);
+        assertThat(first.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(first.getBody()).containsEntry("totalBatteries", 4).containsEntry("totalCapacity", 700);
+        assertThat((List<String>) first.getBody().get("batteries")).containsExactly("PowerCell A1", "PowerCell B");
+        String cursor = (String) first.getBody().get("nextCursor");
+        assertThat(cursor).isNotNull();
+
+        ResponseEntity<Map> second = restTemplate.getForEntity(url + "&cursor=" + cursor, Map.class);
+        assertThat(second.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(second.getBody()).containsEntry("totalBatteries", 4);
+        assertThat((List<String>) second.getBody().get("batteries")).containsExactly("PowerCell B", "TurboCharge A");
+        assertThat(second.getBody().get("nextCursor")).isNull();
+
+        // A cursor that was not issued by the endpoint is rejected
+        ResponseEntity<Map> invalid = restTemplate.getForEntity(url + "&cursor=invalid", Map.class);
+        assertThat(invalid.getStatusCode().is4xxClientError()).isTrue();
+    }
+
     @Test
     public void testGetBatteriesInRangeWithValidationError() {
 
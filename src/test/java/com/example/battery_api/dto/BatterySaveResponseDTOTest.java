@@ -0,0 +1,52 @@
+package com.example.battery_api.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatterySaveResponseDTOTest {
+
+    private static final String EXPECTED_JSON = "{\"savedBatteries\":[{\"name\":\"Battery1\",\"postcode\":\"1234\","
+            + "\"wattCapacity\":500}],\"invalidEntries\":[{\"index\":1,\"data\":{\"name\":\"\",\"postcode\":\"12\","
+            + "\"wattCapacity\":100},\"errors\":{\"name\":[\"Name cannot be blank\"]}}],\"duplicateEntries\":[{\"index\":2,"
+            + "\"data\":{\"name\":\"Battery1\",\"postcode\":\"1234\",\"wattCapacity\":500}}],\"savedBatteriesCount\":1}";
+
+    private static BatterySaveResponseDTO response() {
+        return new BatterySaveResponseDTO(
+                List.of(new BatterySaveResponseDTO.SavedBattery("Battery1", "1234", 500)),
+                List.of(new BatterySaveResponseDTO.InvalidEntry(1, new BatteryRequestDTO("", "12", 100),
+                        Map.of("name", List.of("Name cannot be blank")))),
+                List.of(new BatterySaveResponseDTO.DuplicateEntry(2, new BatteryRequestDTO("Battery1", "1234", 500))),
+                1);
+    }
+
+    @Test
+    void testSerialization_KeepsTheUploadResponseShape() throws JsonProcessingException {
+        assertThat(new ObjectMapper().writeValueAsString(response())).isEqualTo(EXPECTED_JSON);
+    }
+
+    @Test
+    void testSerialization_SameWithBlackbird() throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new BlackbirdModule());
+
+        assertThat(objectMapper.writeValueAsString(response())).isEqualTo(EXPECTED_JSON);
+        assertThat(objectMapper.writeValueAsString(response())).isEqualTo(EXPECTED_JSON);
+    }
+
+    @Test
+    void testLists_AreReadOnly() {
+        List<BatterySaveResponseDTO.SavedBattery> saved = new ArrayList<>();
+        BatterySaveResponseDTO response = new BatterySaveResponseDTO(saved, new ArrayList<>(), new ArrayList<>(), 0);
+
+        assertThatThrownBy(() -> response.savedBatteries().add(new BatterySaveResponseDTO.SavedBattery("B", "1234", 1)))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.battery_api.messaging;
+
+import com.example.battery_api.model.Battery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatteryBatchMessageConverterTest {
+
+    private SimpleMessageConverter javaConverter;
+    private BatteryBatchMessageConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        javaConverter = new SimpleMessageConverter();
+        javaConverter.setAllowedListPatterns(List.of("java.util.ArrayList", "com.example.battery_api.*"));
+        converter = new BatteryBatchMessageConverter(javaConverter, true);
+    }
+
+    private static Battery createBattery(Long id, String name, String postcode, int wattCapacity) {
+        Battery battery = new Battery();
+        battery.setId(id);
+        battery.setName(name);
+        battery.setPostcode(postcode);
+        battery.setWattCapacity(wattCapacity);
+        return battery;
+    }
+
+    private static List<Battery> createBatteries(int count) {
+        List<Battery> batteries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            batteries.add(createBattery(null, "PowerSurge_" + i, String.format("%04d", 200 + i % 9800), 1 + i % 1000));
+        }
+        return batteries;
+    }
+
+    @Test
+    void testRoundTrip_binaryFormat() {
+        List<Battery> batteries = new ArrayList<>(List.of(
+                createBattery(null, "PowerCell A1", "0200", 1),
+                createBattery(123_456_789L, "Zoë \"Volt\"", "9999", 1000),
+                createBattery(7L, null, "12a", -5),
+                createBattery(null, "", null, 0)
+        ));
+
+        Message message = converter.toMessage(batteries, new MessageProperties());
+        @SuppressWarnings("unchecked")
+        List<Battery> decoded = (List<Battery>) converter.fromMessage(message);
+
+        assertEquals(BatteryBatchMessageConverter.CONTENT_TYPE, message.getMessageProperties().getContentType());
+        assertEquals(batteries, decoded);
+    }
+
+    @Test
+    void testToMessage_keepsHeaders() {
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader("batchId", "batch-1");
+
+        Message message = converter.toMessage(new ArrayList<>(createBatteries(3)), properties);
+
+        assertEquals("batch-1", message.getMessageProperties().getHeader("batchId"));
+    }
+
+    @Test
+    void testFromMessage_readsJavaSerializedBatchesFromOldProducers() {
+        List<Battery> batteries = new ArrayList<>(createBatteries(5));
+        Message legacy = javaConverter.toMessage(batteries, new MessageProperties());
+
+        assertEquals(batteries, converter.fromMessage(legacy));
+    }
+
+    @Test
+    void testToMessage_binaryEncodingDisabled_writesJavaSerialization() {
+        BatteryBatchMessageConverter legacyProducer = new BatteryBatchMessageConverter(javaConverter, false);
+
+        Message message = legacyProducer.toMessage(new ArrayList<>(createBatteries(2)), new MessageProperties());
+
+        assertEquals(MessageProperties.CONTENT_TYPE_SERIALIZED_OBJECT, message.getMessageProperties().getContentType());
+    }
+
+    @Test
+    void testToMessage_nonBatteryPayloadGoesToDelegate() {
+        Message message = converter.toMessage("hello", new MessageProperties());
+
+        assertEquals(MessageProperties.CONTENT_TYPE_TEXT_PLAIN, message.getMessageProperties().getContentType());
+    }
+
+    @Test
+    void testBinaryFormatIsSmallerThanJavaSerialization() {
+        List<Battery> batteries = new ArrayList<>(createBatteries(1000));
+
+        int binary = converter.toMessage(batteries, new MessageProperties()).getBody().length;
+        int java = javaConverter.toMessage(batteries, new MessageProperties()).getBody().length;
+
+        assertTrue(binary < java, "binary=" + binary + " java=" + java);
+    }
+
+    @Test
+    void testFromMessage_unsupportedVersion() {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(BatteryBatchMessageConverter.CONTENT_TYPE);
+
+        assertThrows(MessageConversionException.class, () -> converter.fromMessage(new Message(new byte[]{99, 0}, properties)));
+    }
+
+    @Test
+    void testFromMessage_truncatedBody() {
+        byte[] body = converter.toMessage(new ArrayList<>(createBatteries(3)), new MessageProperties()).getBody();
+        byte[] truncated = Arrays.copyOf(body, body.length - 4);
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(BatteryBatchMessageConverter.CONTENT_TYPE);
+
+        assertThrows(MessageConversionException.class, () -> converter.fromMessage(new Message(truncated, properties)));
+    }
+
+    @Test
+    void testFromMessage_corruptCountsAndLengthsRejectedBeforeAllocating() {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(BatteryBatchMessageConverter.CONTENT_TYPE);
+        // Record count of 2^31, which used to become a negative capacity
+        byte[] negativeCount = {1, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08};
+        // Record count of 2^28 - 1 in a six-byte body
+        byte[] hugeCount = {1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F, 0};
+        // One record claiming 100 bytes
+        byte[] overlongRecord = {1, 1, 100, 0, 0, 0, 0};
+
+        for (byte[] body : List.of(negativeCount, hugeCount, overlongRecord)) {
+            assertThrows(MessageConversionException.class, () -> converter.fromMessage(new Message(body, properties)));
+        }
+    }
+
+    @Test
+    void testFromMessage_recordOverrunningItsLength() {
+        byte[] body = converter.toMessage(new ArrayList<>(createBatteries(2)), new MessageProperties()).getBody();
+        // Shorten the first record's length prefix so its fields run into the next record
+        body[2] = 1;
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(BatteryBatchMessageConverter.CONTENT_TYPE);
+
+        assertThrows(MessageConversionException.class, () -> converter.fromMessage(new Message(body, properties)));
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.battery_api.messaging;
+
+import com.example.battery_api.repository.SqlExecutionRecorder;
+import com.example.battery_api.repository.SqlInstrumentation;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BatteryConsumerScalerTest {
+
+    private RabbitListenerEndpointRegistry registry;
+    private AmqpAdmin amqpAdmin;
+    private HikariDataSource dataSource;
+    private SimpleMessageListenerContainer container;
+
+    @BeforeEach
+    void setUp() {
+        registry = mock(RabbitListenerEndpointRegistry.class);
+        amqpAdmin = mock(AmqpAdmin.class);
+        dataSource = mock(HikariDataSource.class);
+        container = mock(SimpleMessageListenerContainer.class);
+        when(registry.getListenerContainer(BatteryConsumerScaler.LISTENER_ID)).thenReturn(container);
+        when(container.isRunning()).thenReturn(true);
+        when(dataSource.getMaximumPoolSize()).thenReturn(20);
+    }
+
+    private BatteryConsumerScaler scaler(boolean adaptive, int min, int max) {
+        return new BatteryConsumerScaler(registry, amqpAdmin, dataSource, "batteryQueue",
+                adaptive, min, max, 500, 4, 4);
+    }
+
+    private void queueDepth(int messages) {
+        when(amqpAdmin.getQueueInfo("batteryQueue")).thenReturn(new QueueInformation("batteryQueue", messages, 1));
+    }
+
+    @Test
+    void testDesiredConsumers_backlogWithHealthyLatencyScalesUp() {
+        assertEquals(5, scaler(true, 1, 16).desiredConsumers(4, 100, 50));
+    }
+
+    @Test
+    void testDesiredConsumers_slowPersistScalesDownEvenWithBacklog() {
+        assertEquals(3, scaler(true, 1, 16).desiredConsumers(4, 100, 900));
+    }
+
+    @Test
+    void testDesiredConsumers_emptyQueueScalesDownToMin() {
+        BatteryConsumerScaler scaler = scaler(true, 2, 16);
+
+        assertEquals(2, scaler.desiredConsumers(3, 0, 50));
+        assertEquals(2, scaler.desiredConsumers(2, 0, 50));
+    }
+
+    @Test
+    void testDesiredConsumers_smallBacklogHolds() {
+        assertEquals(4, scaler(true, 1, 16).desiredConsumers(4, 10, 50));
+    }
+
+    @Test
+    void testDesiredConsumers_cappedByConnectionPool() {
+        when(dataSource.getMaximumPoolSize()).thenReturn(10);
+        BatteryConsumerScaler scaler = scaler(true, 1, 16);
+
+        assertEquals(6, scaler.connectionCap());
+        assertEquals(6, scaler.desiredConsumers(6, 1000, 50));
+    }
+
+    @Test
+    void testConnectionCap_seesThroughInstrumentedDataSource() throws SQLException {
+        when(dataSource.getMaximumPoolSize()).thenReturn(10);
+        when(dataSource.isWrapperFor(HikariDataSource.class)).thenReturn(true);
+        when(dataSource.unwrap(HikariDataSource.class)).thenReturn(dataSource);
+        BatteryConsumerScaler scaler = new BatteryConsumerScaler(registry, amqpAdmin,
+                SqlInstrumentation.wrap(dataSource, mock(SqlExecutionRecorder.class)), "batteryQueue",
+                true, 1, 16, 500, 4, 4);
+
+        assertEquals(6, scaler.connectionCap());
+    }
+
+    @Test
+    void testAdjust_scalesUpContainerAndRecordsChange() {
+        when(container.getActiveConsumerCount()).thenReturn(4);
+        queueDepth(100);
+        BatteryConsumerScaler scaler = scaler(true, 1, 16);
+        scaler.recordLatency(40);
+
+        scaler.adjust();
+
+        InOrder inOrder = inOrder(container);
+        inOrder.verify(container).setMaxConcurrentConsumers(5);
+        inOrder.verify(container).setConcurrentConsumers(5);
+        assertEquals(1, scaler.history().size());
+        assertEquals(5, scaler.history().get(0).get("to"));
+    }
+
+    @Test
+    void testAdjust_scalesDownBeforeLoweringMaximum() {
+        when(container.getActiveConsumerCount()).thenReturn(4);
+        queueDepth(0);
+        BatteryConsumerScaler scaler = scaler(true, 1, 16);
+
+        scaler.adjust();
+
+        InOrder inOrder = inOrder(container);
+        inOrder.verify(container).setConcurrentConsumers(3);
+        inOrder.verify(container).setMaxConcurrentConsumers(3);
+    }
+
+    @Test
+    void testAdjust_disabledDoesNothing() {
+        queueDepth(100);
+
+        scaler(false, 1, 16).adjust();
+
+        verifyNoInteractions(amqpAdmin);
+        verify(container, never()).setConcurrentConsumers(anyInt());
+    }
+
+    @Test
+    void testSetConsumers_clampsToBounds() {
+        when(container.getActiveConsumerCount()).thenReturn(4);
+        BatteryConsumerScaler scaler = scaler(false, 1, 8);
+
+        assertEquals(8, scaler.setConsumers(50));
+        verify(container).setConcurrentConsumers(8);
+    }
+
+    @Test
+    void testRecordLatency_movingAverage() {
+        BatteryConsumerScaler scaler = scaler(true, 1, 16);
+        scaler.recordLatency(100);
+        scaler.recordLatency(200);
+
+        assertEquals(120L, scaler.status().get("averagePersistLatencyMs"));
+    }
+
+    @Test
+    void testConstructor_invalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> scaler(true, 4, 2));
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.battery_api.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostcodeConverterTest {
+
+    private final PostcodeConverter converter = new PostcodeConverter();
+
+    @Test
+    void testConvertToDatabaseColumn() {
+        assertEquals((short) 200, converter.convertToDatabaseColumn("0200"));
+        assertEquals((short) 9999, converter.convertToDatabaseColumn("9999"));
+        assertNull(converter.convertToDatabaseColumn(null));
+    }
+
+    @Test
+    void testConvertToEntityAttribute_ZeroPads() {
+        assertEquals("0200", converter.convertToEntityAttribute((short) 200));
+        assertEquals("0007", converter.convertToEntityAttribute((short) 7));
+        assertEquals("9999", converter.convertToEntityAttribute((short) 9999));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+
+    @Test
+    void testRoundTripKeepsRestContract() {
+        for (int postcode = 200; postcode <= 9999; postcode += 97) {
+            String value = String.format("%04d", postcode);
+            assertEquals(value, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(value)));
+        }
+    }
+
+    @Test
+    void testConvertToDatabaseColumn_RejectsNonNumericAndOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToDatabaseColumn("12a"));
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToDatabaseColumn("-200"));
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToDatabaseColumn("10000"));
+    }
+}
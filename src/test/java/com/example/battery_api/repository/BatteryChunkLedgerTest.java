@@ -0,0 +1,40 @@
+package com.example.battery_api.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BatteryChunkLedgerTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final BatteryChunkLedger ledger = new BatteryChunkLedger(jdbcTemplate, 60_000);
+
+    @Test
+    void testClaim_FirstDeliveryInsertsRow() {
+        when(jdbcTemplate.update(startsWith("INSERT INTO battery_ingested_chunk"), eq("batch-1"), eq(0))).thenReturn(1);
+
+        assertTrue(ledger.claim("batch-1", 0));
+    }
+
+    @Test
+    void testClaim_AlreadyCommittedChunkIsNotClaimedAgain() {
+        when(jdbcTemplate.update(startsWith("INSERT INTO battery_ingested_chunk"), eq("batch-1"), eq(0))).thenReturn(0);
+
+        assertFalse(ledger.claim("batch-1", 0));
+    }
+
+    @Test
+    void testPurgeExpiredClaims_DeletesClaimsOlderThanRetention() {
+        long before = System.currentTimeMillis();
+
+        ledger.purgeExpiredClaims();
+
+        verify(jdbcTemplate).update(startsWith("DELETE FROM battery_ingested_chunk"), argThat((Timestamp cutoff) ->
+                cutoff.getTime() <= before - 60_000 + 1_000 && cutoff.getTime() >= before - 61_000));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.battery_api.repository;
+
+import com.example.battery_api.model.Battery;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class BatteryCopyLoaderTest {
+
+    private static Battery createBattery(Long id, String name, String postcode, int wattCapacity) {
+        Battery battery = new Battery();
+        battery.setId(id);
+        battery.setName(name);
+        battery.setPostcode(postcode);
+        battery.setWattCapacity(wattCapacity);
+        return battery;
+    }
+
+    @Test
+    void testShouldHandle_AtAndAboveThreshold() {
+        BatteryCopyLoader loader = new BatteryCopyLoader(mock(DataSource.class), 100);
+
+        assertFalse(loader.shouldHandle(99));
+        assertTrue(loader.shouldHandle(100));
+        assertTrue(loader.shouldHandle(10_000));
+    }
+
+    @Test
+    void testShouldHandle_DisabledWithZeroThreshold() {
+        BatteryCopyLoader loader = new BatteryCopyLoader(mock(DataSource.class), 0);
+
+        assertFalse(loader.shouldHandle(0));
+        assertFalse(loader.shouldHandle(1_000_000));
+    }
+
+    @Test
+    void testAppendCsvRow() {
+        StringBuilder buffer = new StringBuilder();
+
+        BatteryCopyLoader.appendCsvRow(buffer, createBattery(51L, "PowerCell A1", "0200", 100));
+
+        assertEquals("51,\"PowerCell A1\",\"0200\",100\n", buffer.toString());
+    }
+
+    @Test
+    void testAppendCsvRow_EscapesQuotesAndKeepsSeparatorsInsideQuotes() {
+        StringBuilder buffer = new StringBuilder();
+
+        BatteryCopyLoader.appendCsvRow(buffer, createBattery(7L, "Volt \"Max\", v2\nlong", "9999", 1000));
+
+        assertEquals("7,\"Volt \"\"Max\"\", v2\nlong\",\"9999\",1000\n", buffer.toString());
+    }
+}
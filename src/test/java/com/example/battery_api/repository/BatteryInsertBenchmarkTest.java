@@ -0,0 +1,151 @@
+package com.example.battery_api.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares insert throughput of the old IDENTITY id strategy (one INSERT ... RETURNING per row)
+ * with the pooled sequence strategy (ids reserved 50 at a time, JDBC batches rewritten into
+ * multi-row INSERTs by the driver).
+ *
+ * Runs only against a local PostgreSQL, e.g.:
+ * mvn test -Dtest=BatteryInsertBenchmarkTest -Dbenchmark.postgres.url=jdbc:postgresql://localhost:5432/battery_db
+ *          -Dbenchmark.postgres.username=batman -Dbenchmark.postgres.password=tangstan
+ */
+@EnabledIfSystemProperty(named = "benchmark.postgres.url", matches = ".+")
+class BatteryInsertBenchmarkTest {
+
+    private static final int ROWS = 10_000;
+    private static final int BATCH_SIZE = 50;
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", System.getProperty("benchmark.postgres.username", "postgres"));
+        properties.setProperty("password", System.getProperty("benchmark.postgres.password", ""));
+        properties.setProperty("reWriteBatchedInserts", "true");
+        connection = DriverManager.getConnection(System.getProperty("benchmark.postgres.url"), properties);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS battery_bench_identity");
+            statement.execute("DROP TABLE IF EXISTS battery_bench_sequence");
+            statement.execute("DROP SEQUENCE IF EXISTS battery_bench_seq");
+            statement.execute("CREATE TABLE battery_bench_identity (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "name VARCHAR(255) NOT NULL, postcode VARCHAR(255) NOT NULL, watt_capacity INTEGER NOT NULL)");
+            statement.execute("CREATE SEQUENCE battery_bench_seq START WITH 1 INCREMENT BY " + BATCH_SIZE);
+            statement.execute("CREATE TABLE battery_bench_sequence (id BIGINT PRIMARY KEY, "
+                    + "name VARCHAR(255) NOT NULL, postcode VARCHAR(255) NOT NULL, watt_capacity INTEGER NOT NULL)");
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS battery_bench_identity");
+            statement.execute("DROP TABLE IF EXISTS battery_bench_sequence");
+            statement.execute("DROP SEQUENCE IF EXISTS battery_bench_seq");
+        }
+        connection.close();
+    }
+
+    @Test
+    void compareIdentityAndPooledSequenceInserts() throws SQLException {
+        double identityRowsPerSecond = measure(this::insertWithIdentity);
+        double sequenceRowsPerSecond = measure(this::insertWithPooledSequence);
+
+        System.out.printf("IDENTITY, row by row:        %,.0f rows/sec%n", identityRowsPerSecond);
+        System.out.printf("Pooled sequence, batched:    %,.0f rows/sec%n", sequenceRowsPerSecond);
+        System.out.printf("Speed-up:                    %.1fx%n", sequenceRowsPerSecond / identityRowsPerSecond);
+
+        assertThat(countRows("battery_bench_identity")).isEqualTo(ROWS);
+        assertThat(countRows("battery_bench_sequence")).isEqualTo(ROWS);
+    }
+
+    /**
+     * What Hibernate does for IDENTITY ids: every persist executes immediately to read back the key.
+     */
+    private void insertWithIdentity() throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO battery_bench_identity (name, postcode, watt_capacity) VALUES (?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < ROWS; i++) {
+                bind(insert, i, 1);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                }
+            }
+        }
+    }
+
+    /**
+     * What Hibernate does for pooled-lo sequence ids: one nextval per block of ids, inserts sent as JDBC batches.
+     */
+    private void insertWithPooledSequence() throws SQLException {
+        try (PreparedStatement nextval = connection.prepareStatement("SELECT nextval('battery_bench_seq')");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO battery_bench_sequence (id, name, postcode, watt_capacity) VALUES (?, ?, ?, ?)")) {
+            long nextId = 0;
+            long lastId = -1;
+            for (int i = 0; i < ROWS; i++) {
+                if (nextId > lastId) {
+                    try (ResultSet resultSet = nextval.executeQuery()) {
+                        resultSet.next();
+                        nextId = resultSet.getLong(1);
+                        lastId = nextId + BATCH_SIZE - 1;
+                    }
+                }
+                insert.setLong(1, nextId++);
+                bind(insert, i, 2);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private void bind(PreparedStatement insert, int i, int firstParameter) throws SQLException {
+        insert.setString(firstParameter, "Battery " + i);
+        insert.setString(firstParameter + 1, String.format("%04d", 200 + i % 9800));
+        insert.setInt(firstParameter + 2, 1 + i % 1000);
+    }
+
+    private double measure(SqlAction action) throws SQLException {
+        long start = System.nanoTime();
+        action.run();
+        connection.commit();
+        long elapsed = System.nanoTime() - start;
+        return ROWS / (elapsed / 1_000_000_000.0);
+    }
+
+    private long countRows(String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlAction {
+        void run() throws SQLException;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.battery_api.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares range-scan latency of the old VARCHAR postcode column with the SMALLINT column, each indexed
+ * on (postcode, watt_capacity) INCLUDE (name), on a table of several million batteries.
+ *
+ * Runs only against a local PostgreSQL, e.g.:
+ * mvn test -Dtest=BatteryPostcodeRangeBenchmarkTest -Dbenchmark.postgres.url=jdbc:postgresql://localhost:5432/battery_db
+ *          -Dbenchmark.postgres.username=batman -Dbenchmark.postgres.password=tangstan [-Dbenchmark.rows=5000000]
+ */
+@EnabledIfSystemProperty(named = "benchmark.postgres.url", matches = ".+")
+class BatteryPostcodeRangeBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 2_000_000);
+    private static final int QUERIES = 500;
+    private static final int RANGE_WIDTH = 50;
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", System.getProperty("benchmark.postgres.username", "postgres"));
+        properties.setProperty("password", System.getProperty("benchmark.postgres.password", ""));
+        connection = DriverManager.getConnection(System.getProperty("benchmark.postgres.url"), properties);
+
+        try (Statement statement = connection.createStatement()) {
+            dropTables(statement);
+            statement.execute("CREATE TABLE battery_bench_text (id BIGINT PRIMARY KEY, name VARCHAR(255) NOT NULL, "
+                    + "postcode VARCHAR(255) NOT NULL, watt_capacity INTEGER NOT NULL)");
+            statement.execute("CREATE TABLE battery_bench_smallint (id BIGINT PRIMARY KEY, name VARCHAR(255) NOT NULL, "
+                    + "postcode SMALLINT NOT NULL, watt_capacity INTEGER NOT NULL)");
+            statement.execute("INSERT INTO battery_bench_text SELECT i, 'Battery ' || i, "
+                    + "lpad((200 + (i::bigint * 7919) % 9800)::text, 4, '0'), 1 + (i * 13) % 1000 FROM generate_series(1, " + ROWS + ") AS i");
+            statement.execute("INSERT INTO battery_bench_smallint SELECT id, name, postcode::smallint, watt_capacity "
+                    + "FROM battery_bench_text");
+            statement.execute("CREATE INDEX battery_bench_text_idx ON battery_bench_text (postcode, watt_capacity) INCLUDE (name)");
+            statement.execute("CREATE INDEX battery_bench_smallint_idx ON battery_bench_smallint (postcode, watt_capacity) INCLUDE (name)");
+            statement.execute("VACUUM ANALYZE battery_bench_text");
+            statement.execute("VACUUM ANALYZE battery_bench_smallint");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            dropTables(statement);
+        }
+        connection.close();
+    }
+
+    @Test
+    void compareTextAndSmallintRangeScans() throws SQLException {
+        String aggregate = "SELECT count(*), coalesce(sum(watt_capacity), 0) FROM %s "
+                + "WHERE postcode BETWEEN ? AND ? AND watt_capacity BETWEEN 100 AND 900";
+        String names = "SELECT name FROM %s WHERE postcode BETWEEN ? AND ? AND watt_capacity BETWEEN 100 AND 900";
+
+        long[] textAggregate = measure(String.format(aggregate, "battery_bench_text"), true);
+        long[] smallintAggregate = measure(String.format(aggregate, "battery_bench_smallint"), false);
+        long[] textNames = measure(String.format(names, "battery_bench_text"), true);
+        long[] smallintNames = measure(String.format(names, "battery_bench_smallint"), false);
+
+        System.out.printf("%,d rows, %d random ranges of %d postcodes%n", ROWS, QUERIES, RANGE_WIDTH);
+        System.out.printf("Index size      VARCHAR: %s   SMALLINT: %s%n",
+                indexSize("battery_bench_text_idx"), indexSize("battery_bench_smallint_idx"));
+        report("Aggregate", textAggregate, smallintAggregate);
+        report("Names", textNames, smallintNames);
+
+        assertThat(count("battery_bench_smallint")).isEqualTo(count("battery_bench_text"));
+    }
+
+    private long[] measure(String sql, boolean textPostcode) throws SQLException {
+        Random random = new Random(42);
+        long[] micros = new long[QUERIES];
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            // Warm up caches and the plan before timing
+            for (int i = -50; i < QUERIES; i++) {
+                int start = 200 + random.nextInt(9800 - RANGE_WIDTH);
+                if (textPostcode) {
+                    statement.setString(1, String.format("%04d", start));
+                    statement.setString(2, String.format("%04d", start + RANGE_WIDTH));
+                } else {
+                    statement.setShort(1, (short) start);
+                    statement.setShort(2, (short) (start + RANGE_WIDTH));
+                }
+                long begin = System.nanoTime();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        resultSet.getObject(1);
+                    }
+                }
+                if (i >= 0) {
+                    micros[i] = (System.nanoTime() - begin) / 1_000;
+                }
+            }
+        }
+        Arrays.sort(micros);
+        return micros;
+    }
+
+    private static void report(String query, long[] text, long[] smallint) {
+        System.out.printf("%-10s VARCHAR  p50 %,6d us  p95 %,6d us%n", query, text[QUERIES / 2], text[QUERIES * 95 / 100]);
+        System.out.printf("%-10s SMALLINT p50 %,6d us  p95 %,6d us%n", query, smallint[QUERIES / 2], smallint[QUERIES * 95 / 100]);
+    }
+
+    private String indexSize(String index) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT pg_size_pretty(pg_relation_size('" + index + "'))")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    private long count(String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM " + table)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static void dropTables(Statement statement) throws SQLException {
+        statement.execute("DROP TABLE IF EXISTS battery_bench_text");
+        statement.execute("DROP TABLE IF EXISTS battery_bench_smallint");
+    }
+}
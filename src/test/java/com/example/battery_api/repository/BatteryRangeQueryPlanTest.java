@@ -0,0 +1,115 @@
+package com.example.battery_api.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies with EXPLAIN that the range queries use the covering (postcode, watt_capacity) INCLUDE (name)
+ * index declared in schema.sql instead of scanning the table, and that keyset pages seek on the (name, id) index.
+ *
+ * The schema is created in a throwaway PostgreSQL schema from the real schema.sql and filled with
+ * 200,000 batteries. Runs only against a local PostgreSQL, e.g.:
+ * mvn test -Dtest=BatteryRangeQueryPlanTest -Dbenchmark.postgres.url=jdbc:postgresql://localhost:5432/battery_db
+ *          -Dbenchmark.postgres.username=batman -Dbenchmark.postgres.password=tangstan
+ */
+@EnabledIfSystemProperty(named = "benchmark.postgres.url", matches = ".+")
+class BatteryRangeQueryPlanTest {
+
+    private static final String SCHEMA = "battery_plan_test";
+    private static final String INDEX = "battery_postcode_capacity_idx";
+    private static final String NAME_INDEX = "battery_name_id_idx";
+    private static final int ROWS = 200_000;
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", System.getProperty("benchmark.postgres.username", "postgres"));
+        properties.setProperty("password", System.getProperty("benchmark.postgres.password", ""));
+        connection = DriverManager.getConnection(System.getProperty("benchmark.postgres.url"), properties);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            statement.execute("CREATE SCHEMA " + SCHEMA);
+            statement.execute("SET search_path TO " + SCHEMA);
+        }
+        ScriptUtils.executeSqlScript(connection, new EncodedResource(new ClassPathResource("schema.sql")), false, false,
+                ScriptUtils.DEFAULT_COMMENT_PREFIX, ScriptUtils.EOF_STATEMENT_SEPARATOR,
+                ScriptUtils.DEFAULT_BLOCK_COMMENT_START_DELIMITER, ScriptUtils.DEFAULT_BLOCK_COMMENT_END_DELIMITER);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO battery (id, name, postcode, watt_capacity) "
+                    + "SELECT i, 'Battery ' || i, 200 + i % 9800, 1 + (i * 7) % 1000 "
+                    + "FROM generate_series(1, " + ROWS + ") AS i");
+            // Sets the visibility map so the planner can choose index-only scans
+            statement.execute("VACUUM ANALYZE battery");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        }
+        connection.close();
+    }
+
+    @Test
+    void aggregateQueryIsIndexOnlyScan() throws SQLException {
+        String plan = explain("SELECT count(*), coalesce(sum(watt_capacity), 0), coalesce(avg(watt_capacity), 0.0) "
+                + "FROM battery WHERE postcode BETWEEN 2000 AND 2100 AND watt_capacity BETWEEN 100 AND 500");
+
+        assertThat(plan).contains("Index Only Scan using " + INDEX).doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void nameQueryIsIndexOnlyScan() throws SQLException {
+        String plan = explain("SELECT name FROM battery WHERE postcode BETWEEN 2000 AND 2100 "
+                + "AND watt_capacity BETWEEN 100 AND 500 ORDER BY name COLLATE \"C\"");
+
+        assertThat(plan).contains("Index Only Scan using " + INDEX).doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void entityRangeQueryUsesIndex() throws SQLException {
+        String plan = explain("SELECT id, name, postcode, watt_capacity FROM battery "
+                + "WHERE postcode BETWEEN 2000 AND 2100 AND watt_capacity BETWEEN 100 AND 500");
+
+        assertThat(plan).contains(INDEX).doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void keysetPageSeeksNameIndexWithoutSorting() throws SQLException {
+        String plan = explain("SELECT name, id FROM battery WHERE postcode BETWEEN 200 AND 9999 "
+                + "AND watt_capacity BETWEEN 1 AND 1000 AND (name COLLATE \"C\", id) > ('Battery 150000' COLLATE \"C\", 0) "
+                + "ORDER BY name COLLATE \"C\", id LIMIT 101");
+
+        assertThat(plan).contains("Index Only Scan using " + NAME_INDEX).doesNotContain("Sort").doesNotContain("Seq Scan");
+    }
+
+    private String explain(String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+            while (resultSet.next()) {
+                plan.append(resultSet.getString(1)).append('\n');
+            }
+        }
+        System.out.print(plan);
+        return plan.toString();
+    }
+}
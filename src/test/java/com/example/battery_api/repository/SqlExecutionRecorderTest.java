@@ -0,0 +1,94 @@
+package com.example.battery_api.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlExecutionRecorderTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final SqlExecutionRecorder recorder = new SqlExecutionRecorder(100, 2, () -> 5_000L);
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> statements(Map<String, Object> snapshot) {
+        return (List<Map<String, Object>>) snapshot.get("statements");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<SqlExecutionRecorder.SlowQuery> slowQueries(Map<String, Object> snapshot) {
+        return (List<SqlExecutionRecorder.SlowQuery>) snapshot.get("slowQueries");
+    }
+
+    @Test
+    void testRecord_AggregatesPerStatementAndOrdersByTotalTime() {
+        recorder.record("select 1", List.of(), 0, 10 * MILLI);
+        recorder.record("insert into battery", List.of("String", "Int"), 50, 30 * MILLI);
+        recorder.record("insert into battery", List.of("String", "Int"), 20, 40 * MILLI);
+
+        Map<String, Object> snapshot = recorder.snapshot(10);
+
+        assertEquals(3L, snapshot.get("executions"));
+        assertEquals(2L, snapshot.get("batches"));
+        assertEquals(70L, snapshot.get("batchedRows"));
+        List<Map<String, Object>> statements = statements(snapshot);
+        assertEquals("insert into battery", statements.get(0).get("sql"));
+        assertEquals(2L, statements.get(0).get("executions"));
+        assertEquals(70.0, statements.get(0).get("totalMs"));
+        assertEquals(35.0, statements.get(0).get("meanMs"));
+        assertEquals(40.0, statements.get(0).get("maxMs"));
+        assertEquals("select 1", statements.get(1).get("sql"));
+        assertEquals(1, statements(recorder.snapshot(1)).size());
+    }
+
+    @Test
+    void testRecord_KeepsOnlyTheMostRecentSlowQueriesNewestFirst() {
+        recorder.record("fast", List.of(), 0, 99 * MILLI);
+        recorder.record("slow 1", List.of("Long"), 0, 100 * MILLI);
+        recorder.record("slow 2", List.of(), 5, 150 * MILLI);
+        recorder.record("slow 3", List.of("String", "Null"), 0, 300 * MILLI);
+
+        Map<String, Object> snapshot = recorder.snapshot(10);
+
+        assertEquals(3L, snapshot.get("slowQueryCount"));
+        List<SqlExecutionRecorder.SlowQuery> slowQueries = slowQueries(snapshot);
+        assertEquals(2, slowQueries.size());
+        SqlExecutionRecorder.SlowQuery newest = slowQueries.get(0);
+        assertEquals("slow 3", newest.sql());
+        assertEquals(List.of("String", "Null"), newest.parameterTypes());
+        assertEquals(300.0, newest.durationMillis());
+        assertEquals(Instant.ofEpochMilli(5_000), newest.finishedAt());
+        assertEquals("slow 2", slowQueries.get(1).sql());
+        assertEquals(5, slowQueries.get(1).batchRows());
+    }
+
+    @Test
+    void testRecord_EmptySlowQueryLogStillCounts() {
+        SqlExecutionRecorder noLog = new SqlExecutionRecorder(0, 0, () -> 0L);
+        noLog.record("select 1", List.of(), 0, 1);
+
+        Map<String, Object> snapshot = noLog.snapshot(10);
+
+        assertEquals(1L, snapshot.get("slowQueryCount"));
+        assertTrue(slowQueries(snapshot).isEmpty());
+    }
+
+    @Test
+    void testReset_ClearsEverything() {
+        recorder.record("select 1", List.of(), 3, 500 * MILLI);
+
+        recorder.reset();
+
+        Map<String, Object> snapshot = recorder.snapshot(10);
+        assertEquals(0L, snapshot.get("executions"));
+        assertEquals(0L, snapshot.get("batches"));
+        assertEquals(0L, snapshot.get("slowQueryCount"));
+        assertTrue(statements(snapshot).isEmpty());
+        assertTrue(slowQueries(snapshot).isEmpty());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.battery_api.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SqlInstrumentationTest {
+
+    private HikariDataSource pool;
+    private Connection connection;
+    private PreparedStatement preparedStatement;
+    private SqlExecutionRecorder recorder;
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = mock(HikariDataSource.class);
+        connection = mock(Connection.class);
+        preparedStatement = mock(PreparedStatement.class);
+        recorder = mock(SqlExecutionRecorder.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        dataSource = SqlInstrumentation.wrap(pool, recorder);
+    }
+
+    @Test
+    void testPreparedStatement_RecordsSqlParameterTypesAndBatchRows() throws SQLException {
+        when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1});
+
+        try (Connection wrapped = dataSource.getConnection();
+             PreparedStatement statement = wrapped.prepareStatement("insert into battery values (?, ?)")) {
+            statement.setString(1, "Cannington");
+            statement.setInt(2, 13500);
+            statement.addBatch();
+            statement.setString(1, "Midland");
+            statement.setNull(2, java.sql.Types.INTEGER);
+            statement.addBatch();
+            assertArrayEquals(new int[]{1, 1}, statement.executeBatch());
+        }
+
+        verify(recorder).record(eq("insert into battery values (?, ?)"), eq(List.of("String", "Null")), eq(2),
+                anyLong());
+        verify(preparedStatement, times(2)).addBatch();
+        verify(preparedStatement).close();
+    }
+
+    @Test
+    void testStatement_RecordsExecutedSqlAndResetsBatchAfterExecution() throws SQLException {
+        Statement plain = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(plain);
+
+        try (Connection wrapped = dataSource.getConnection(); Statement statement = wrapped.createStatement()) {
+            statement.execute("analyze battery");
+            statement.addBatch("delete from battery");
+            statement.executeBatch();
+            statement.executeUpdate("vacuum");
+        }
+
+        verify(recorder).record(eq("analyze battery"), eq(List.of()), eq(0), anyLong());
+        verify(recorder).record(eq("delete from battery"), eq(List.of()), eq(1), anyLong());
+        verify(recorder).record(eq("vacuum"), eq(List.of()), eq(0), anyLong());
+    }
+
+    @Test
+    void testExecute_FailuresAreRecordedAndRethrownUnwrapped() throws SQLException {
+        SQLException failure = new SQLException("deadlock detected");
+        when(preparedStatement.executeUpdate()).thenThrow(failure);
+
+        PreparedStatement statement = dataSource.getConnection().prepareStatement("update battery set name = ?");
+
+        assertSame(failure, assertThrows(SQLException.class, statement::executeUpdate));
+        verify(recorder).record(eq("update battery set name = ?"), anyList(), eq(0), anyLong());
+    }
+
+    @Test
+    void testUnwrap_ReachesTheUnderlyingPoolAndDriver() throws SQLException {
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(pool.isWrapperFor(HikariDataSource.class)).thenReturn(true);
+        when(pool.unwrap(HikariDataSource.class)).thenReturn(pool);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+
+        assertTrue(dataSource.isWrapperFor(HikariDataSource.class));
+        assertSame(pool, dataSource.unwrap(HikariDataSource.class));
+        assertSame(dataSource, dataSource.unwrap(DataSource.class));
+        assertSame(pgConnection, dataSource.getConnection().unwrap(PGConnection.class));
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.dto.BatteryRequestDTO;
+import com.example.battery_api.exception.BatteryPublishException;
+import com.example.battery_api.exception.TooManyIngestJobsException;
+import com.example.battery_api.model.Battery;
+import com.example.battery_api.repository.BatteryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.net.ConnectException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AsyncBatteryIngestorTest {
+
+    private BatteryService batteryService;
+    private BatteryIngestJobTracker jobTracker;
+    private AsyncBatteryIngestor ingestor;
+
+    @BeforeEach
+    void setUp() {
+        batteryService = mock(BatteryService.class);
+        jobTracker = new BatteryIngestJobTracker(60_000);
+        BatteryRequestValidator validator = new BatteryRequestValidator(
+                Validation.buildDefaultValidatorFactory().getValidator());
+        // Runs the job on the calling thread so its outcome can be asserted directly
+        // Deduplication is enabled but unseeded, so only batteries repeated within an upload are duplicates
+        BatteryDuplicateFilter duplicateFilter = new BatteryDuplicateFilter(mock(BatteryRepository.class),
+                mock(JdbcTemplate.class), mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), true, 1000, 0.01);
+        ingestor = new AsyncBatteryIngestor(validator, new BatteryMapper(), batteryService, jobTracker,
+                duplicateFilter, new BatteryIngestMetrics(new SimpleMeterRegistry()), new SyncTaskExecutor());
+    }
+
+    @Test
+    void testSubmit_ValidatesAndPublishesUnderJobId() {
+        List<BatteryRequestDTO> requests = List.of(
+                new BatteryRequestDTO("PowerCell A1", "9002", 100),
+                new BatteryRequestDTO("", "1200", 200),
+                new BatteryRequestDTO("TurboCharge X", "1200", 200));
+
+        String jobId = ingestor.submit(requests);
+
+        verify(batteryService).publishValidBatteries(argThat((List<Battery> batteries) -> batteries.size() == 2), eq(jobId),
+                eq(BatteryIngestMetrics.UPLOAD_ASYNC));
+        Map<String, Object> status = jobTracker.status(jobId).orElseThrow();
+        assertEquals(BatteryIngestJobTracker.State.PERSISTING, status.get("state"));
+        assertEquals(3, status.get("receivedCount"));
+        assertEquals(2L, status.get("validatedCount"));
+        assertEquals(1L, status.get("invalidCount"));
+        assertEquals(2L, status.get("publishedCount"));
+    }
+
+    @Test
+    void testSubmit_PublishFailureMarksJobFailed() {
+        when(batteryService.publishValidBatteries(anyList(), anyString(), anyString()))
+                .thenThrow(new AmqpConnectException(new ConnectException("Connection refused")));
+
+        String jobId = ingestor.submit(List.of(new BatteryRequestDTO("PowerCell A1", "9002", 100)));
+
+        Map<String, Object> status = jobTracker.status(jobId).orElseThrow();
+        assertEquals(BatteryIngestJobTracker.State.FAILED, status.get("state"));
+        assertEquals(0L, status.get("publishedCount"));
+        assertEquals(1L, status.get("failedCount"));
+        assertTrue(((String) status.get("error")).startsWith("Publishing to the message broker failed"));
+    }
+
+    @Test
+    void testSubmit_CountsDuplicatesSeparately() {
+        String jobId = ingestor.submit(List.of(
+                new BatteryRequestDTO("PowerCell A1", "9002", 100),
+                new BatteryRequestDTO("PowerCell A1", "9002", 100)));
+
+        verify(batteryService).publishValidBatteries(argThat((List<Battery> batteries) -> batteries.size() == 1), eq(jobId),
+                eq(BatteryIngestMetrics.UPLOAD_ASYNC));
+        Map<String, Object> status = jobTracker.status(jobId).orElseThrow();
+        assertEquals(1L, status.get("validatedCount"));
+        assertEquals(1L, status.get("duplicateCount"));
+        assertEquals(1L, status.get("publishedCount"));
+    }
+
+    @Test
+    void testSubmit_PartialPublishFailureCountsOnlyTheUnpublishedBatteries() {
+        when(batteryService.publishValidBatteries(anyList(), anyString(), anyString()))
+                .thenThrow(new BatteryPublishException(2, new AmqpConnectException(new ConnectException("Connection refused"))));
+
+        String jobId = ingestor.submit(List.of(
+                new BatteryRequestDTO("PowerCell A1", "9002", 100),
+                new BatteryRequestDTO("PowerCell B", "9002", 100),
+                new BatteryRequestDTO("TurboCharge X", "1200", 200)));
+
+        Map<String, Object> status = jobTracker.status(jobId).orElseThrow();
+        assertEquals(BatteryIngestJobTracker.State.PERSISTING, status.get("state"));
+        assertEquals(2L, status.get("publishedCount"));
+        assertEquals(1L, status.get("failedCount"));
+        assertTrue(status.containsKey("error"));
+    }
+
+    @Test
+    void testSubmit_RefusedWhenTheJobQueueIsFull() {
+        ingestor = new AsyncBatteryIngestor(new BatteryRequestValidator(
+                Validation.buildDefaultValidatorFactory().getValidator()), new BatteryMapper(), batteryService,
+                jobTracker, mock(BatteryDuplicateFilter.class), new BatteryIngestMetrics(new SimpleMeterRegistry()),
+                task -> {
+                    throw new TaskRejectedException("Queue full");
+                });
+
+        assertThrows(TooManyIngestJobsException.class,
+                () -> ingestor.submit(List.of(new BatteryRequestDTO("PowerCell A1", "9002", 100))));
+        // The refused job neither lingers in the tracker nor holds an active slot
+        assertEquals(0, jobTracker.size());
+        assertEquals(0, jobTracker.activeJobs());
+    }
+}
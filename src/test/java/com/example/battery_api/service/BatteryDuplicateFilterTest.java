@@ -0,0 +1,148 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.model.Battery;
+import com.example.battery_api.repository.BatteryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BatteryDuplicateFilterTest {
+
+    private BatteryRepository batteryRepository;
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        batteryRepository = mock(BatteryRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private static Battery createBattery(String name, String postcode, int wattCapacity) {
+        Battery battery = new Battery();
+        battery.setName(name);
+        battery.setPostcode(postcode);
+        battery.setWattCapacity(wattCapacity);
+        return battery;
+    }
+
+    private BatteryDuplicateFilter filter(boolean enabled) {
+        return new BatteryDuplicateFilter(batteryRepository, jdbcTemplate, mock(PlatformTransactionManager.class),
+                meterRegistry, enabled, 1000, 0.01);
+    }
+
+    /**
+     * Seeds the filter as if the battery table held the given batteries.
+     */
+    private void seed(BatteryDuplicateFilter filter, Battery... stored) throws Exception {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Battery battery : stored) {
+                ResultSet row = mock(ResultSet.class);
+                when(row.getString(1)).thenReturn(battery.getName());
+                when(row.getInt(2)).thenReturn(Integer.parseInt(battery.getPostcode()));
+                when(row.getInt(3)).thenReturn(battery.getWattCapacity());
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        filter.seed();
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("battery.dedupe.checks").tag("result", result).counter().count();
+    }
+
+    @Test
+    void testIsDuplicate_StoredBatteryConfirmedByLookup() throws Exception {
+        BatteryDuplicateFilter filter = filter(true);
+        seed(filter, createBattery("PowerCell A1", "0200", 100));
+        when(batteryRepository.existsByNameAndPostcodeAndWattCapacity("PowerCell A1", "0200", 100)).thenReturn(true);
+
+        assertTrue(filter.newScreen().isDuplicate(createBattery("PowerCell A1", "0200", 100)));
+        assertEquals(1.0, count("duplicate"));
+        assertEquals(1, filter.size());
+    }
+
+    @Test
+    void testIsDuplicate_NewBatteryRuledOutWithoutLookup() throws Exception {
+        BatteryDuplicateFilter filter = filter(true);
+        seed(filter, createBattery("PowerCell A1", "0200", 100));
+
+        assertFalse(filter.newScreen().isDuplicate(createBattery("PowerCell A1", "0200", 101)));
+        verifyNoInteractions(batteryRepository);
+        assertEquals(1.0, count("filtered"));
+    }
+
+    @Test
+    void testIsDuplicate_FalsePositiveIsNotADuplicate() throws Exception {
+        BatteryDuplicateFilter filter = filter(true);
+        seed(filter, createBattery("PowerCell A1", "0200", 100));
+        // The filter says probably present, but the table no longer has it
+        when(batteryRepository.existsByNameAndPostcodeAndWattCapacity(anyString(), anyString(), anyInt())).thenReturn(false);
+
+        assertFalse(filter.newScreen().isDuplicate(createBattery("PowerCell A1", "0200", 100)));
+        assertEquals(1.0, count("false_positive"));
+    }
+
+    @Test
+    void testIsDuplicate_RepeatWithinUpload() throws Exception {
+        BatteryDuplicateFilter filter = filter(true);
+        seed(filter);
+        BatteryDuplicateFilter.Screen screen = filter.newScreen();
+
+        assertFalse(screen.isDuplicate(createBattery("PowerCell A1", "0200", 100)));
+        assertTrue(screen.isDuplicate(createBattery("PowerCell A1", "0200", 100)));
+        assertFalse(filter.newScreen().isDuplicate(createBattery("PowerCell A1", "0200", 100)));
+        assertEquals(1.0, count("repeated"));
+    }
+
+    @Test
+    void testOnBatteriesPersisted_CommittedBatteryBecomesDuplicate() throws Exception {
+        BatteryDuplicateFilter filter = filter(true);
+        seed(filter);
+        when(batteryRepository.existsByNameAndPostcodeAndWattCapacity("PowerCell A1", "9002", 100)).thenReturn(true);
+
+        filter.onBatteriesPersisted(new BatteriesPersistedEvent(List.of(createBattery("PowerCell A1", "9002", 100))));
+
+        assertTrue(filter.newScreen().isDuplicate(createBattery("PowerCell A1", "9002", 100)));
+    }
+
+    @Test
+    void testIsDuplicate_NothingIsDuplicateBeforeSeeding() {
+        BatteryDuplicateFilter filter = filter(true);
+
+        assertFalse(filter.newScreen().isDuplicate(createBattery("PowerCell A1", "0200", 100)));
+        verifyNoInteractions(batteryRepository);
+        assertEquals(1.0, count("unseeded"));
+    }
+
+    @Test
+    void testIsDuplicate_DisabledFilterNeverReportsDuplicates() {
+        BatteryDuplicateFilter filter = filter(false);
+        BatteryDuplicateFilter.Screen screen = filter.newScreen();
+
+        filter.onApplicationReady();
+        assertFalse(screen.isDuplicate(createBattery("PowerCell A1", "0200", 100)));
+        assertFalse(screen.isDuplicate(createBattery("PowerCell A1", "0200", 100)));
+        verifyNoInteractions(jdbcTemplate, batteryRepository);
+    }
+
+    @Test
+    void testKey_PostcodeIsNumeric() {
+        assertEquals(BatteryDuplicateFilter.key("PowerCell A1", 200, 100),
+                BatteryDuplicateFilter.key("PowerCell A1", Integer.parseInt("0200"), 100));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.model.Battery;
+import com.example.battery_api.repository.BatteryRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BatteryExporterTest {
+
+    private BatteryRepository batteryRepository;
+    private EntityManager entityManager;
+    private ObjectMapper objectMapper;
+    private BatteryExporter batteryExporter;
+
+    @BeforeEach
+    void setUp() {
+        batteryRepository = mock(BatteryRepository.class);
+        entityManager = mock(EntityManager.class);
+        objectMapper = new ObjectMapper();
+        batteryExporter = new BatteryExporter(batteryRepository, entityManager, objectMapper);
+    }
+
+    private static Battery createBattery(long id, String name, String postcode, int wattCapacity) {
+        Battery battery = new Battery();
+        battery.setId(id);
+        battery.setName(name);
+        battery.setPostcode(postcode);
+        battery.setWattCapacity(wattCapacity);
+        return battery;
+    }
+
+    @Test
+    void testExport_CsvQuotesNamesThatNeedIt() throws IOException {
+        Battery plain = createBattery(1, "PowerCell A1", "0400", 100);
+        Battery quoted = createBattery(2, "Cell \"X\", rev 2", "1200", 200);
+        when(batteryRepository.streamByPostcodeAndCapacityRange("0200", "9999", 1, 1000))
+                .thenReturn(Stream.of(plain, quoted));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long count = batteryExporter.export("0200", "9999", 1, 1000, BatteryExporter.Format.CSV, output);
+
+        assertEquals(2, count);
+        assertEquals("""
+                id,name,postcode,wattCapacity
+                1,PowerCell A1,0400,100
+                2,"Cell ""X"", rev 2",1200,200
+                """, output.toString(StandardCharsets.UTF_8));
+        verify(entityManager).detach(plain);
+        verify(entityManager).detach(quoted);
+    }
+
+    @Test
+    void testExport_NdjsonOneObjectPerLine() throws IOException {
+        when(batteryRepository.streamByPostcodeAndCapacityRange("0200", "9999", Integer.MIN_VALUE, Integer.MAX_VALUE))
+                .thenReturn(Stream.of(createBattery(1, "PowerCell A1", "0400", 100),
+                        createBattery(2, "Line\nbreak", "1200", 200)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long count = batteryExporter.export("0200", "9999", null, null, BatteryExporter.Format.NDJSON, output);
+
+        assertEquals(2, count);
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertEquals(3, lines.length);
+        assertEquals("", lines[2]);
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertEquals(2, second.get("id").asLong());
+        assertEquals("Line\nbreak", second.get("name").asText());
+        assertEquals("1200", second.get("postcode").asText());
+        assertEquals(200, second.get("wattCapacity").asInt());
+    }
+
+    @Test
+    void testExport_EmptyRange() throws IOException {
+        when(batteryRepository.streamByPostcodeAndCapacityRange(anyString(), anyString(), anyInt(), anyInt()))
+                .thenAnswer(invocation -> Stream.empty());
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+
+        assertEquals(0, batteryExporter.export("1000", "2000", null, null, BatteryExporter.Format.CSV, csv));
+        assertEquals(0, batteryExporter.export("1000", "2000", null, null, BatteryExporter.Format.NDJSON, ndjson));
+
+        assertEquals("id,name,postcode,wattCapacity\n", csv.toString(StandardCharsets.UTF_8));
+        assertEquals(0, ndjson.size());
+    }
+
+    @Test
+    void testExport_ClosesCursorStream() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(batteryRepository.streamByPostcodeAndCapacityRange(anyString(), anyString(), anyInt(), anyInt()))
+                .thenReturn(Stream.of(createBattery(1, "PowerCell A1", "0400", 100)).onClose(() -> closed.set(true)));
+
+        batteryExporter.export("0200", "9999", null, null, BatteryExporter.Format.CSV, new ByteArrayOutputStream());
+
+        assertTrue(closed.get());
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.dto.BatteryRequestDTO;
+import com.example.battery_api.dto.BatterySaveResponseDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatteryIdempotencyStoreTest {
+    private static final byte[] HASH =
+            BatteryIdempotencyStore.requestHash(List.of(request("Battery1", "6000", 500)), false);
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicLong now;
+    private AtomicInteger runs;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        now = new AtomicLong();
+        runs = new AtomicInteger();
+    }
+
+    private BatteryIdempotencyStore store(int maxEntries, long ttlMillis) {
+        return new BatteryIdempotencyStore(meterRegistry, true, maxEntries, ttlMillis, 2, now::get);
+    }
+
+    private ResponseEntity<?> upload(BatteryIdempotencyStore store, String key) {
+        return store.execute(key, () -> HASH,
+                () -> ResponseEntity.ok(Map.of("savedBatteriesCount", runs.incrementAndGet())));
+    }
+
+    private static BatteryRequestDTO request(String name, String postcode, Integer wattCapacity) {
+        return new BatteryRequestDTO(name, postcode, wattCapacity);
+    }
+
+    private static BatterySaveResponseDTO response(int savedBatteries) {
+        List<BatterySaveResponseDTO.SavedBattery> saved = new ArrayList<>();
+        for (int i = 0; i < savedBatteries; i++) {
+            saved.add(new BatterySaveResponseDTO.SavedBattery("Battery" + i, "6000", 500));
+        }
+        return new BatterySaveResponseDTO(saved, List.of(), List.of(), savedBatteries);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("battery.idempotency.requests").tag("result", result).counter().count();
+    }
+
+    @Test
+    void testExecute_RetryWithSameKeyReplaysStoredResponse() {
+        BatteryIdempotencyStore store = store(10, 1000);
+
+        ResponseEntity<?> first = upload(store, "key-1");
+        ResponseEntity<?> retry = upload(store, "key-1");
+
+        assertEquals(1, runs.get());
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertEquals(first.getBody(), retry.getBody());
+        assertNull(first.getHeaders().getFirst(BatteryIdempotencyStore.REPLAYED_HEADER));
+        assertEquals("true", retry.getHeaders().getFirst(BatteryIdempotencyStore.REPLAYED_HEADER));
+        assertEquals(1.0, count("new"));
+        assertEquals(1.0, count("replayed"));
+    }
+
+    @Test
+    void testExecute_ReplayKeepsStatusAndLocation() {
+        BatteryIdempotencyStore store = store(10, 1000);
+        store.execute("key-1", () -> HASH, () -> ResponseEntity.accepted()
+                .location(java.net.URI.create("/api/batteries/jobs/job-1"))
+                .body(Map.of("jobId", "job-1")));
+
+        ResponseEntity<?> retry = store.execute("key-1", () -> HASH, () -> fail("request ran twice"));
+
+        assertEquals(HttpStatus.ACCEPTED, retry.getStatusCode());
+        assertEquals("/api/batteries/jobs/job-1", retry.getHeaders().getLocation().toString());
+        assertEquals(Map.of("jobId", "job-1"), retry.getBody());
+    }
+
+    @Test
+    void testExecute_WithoutKeyAlwaysRuns() {
+        BatteryIdempotencyStore store = store(10, 1000);
+
+        upload(store, null);
+        upload(store, null);
+
+        assertEquals(2, runs.get());
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void testExecute_DifferentKeysRunSeparately() {
+        BatteryIdempotencyStore store = store(10, 1000);
+
+        upload(store, "key-1");
+        upload(store, "key-2");
+
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void testExecute_KeyExpiresAfterTtl() {
+        BatteryIdempotencyStore store = store(10, 1000);
+        upload(store, "key-1");
+
+        now.addAndGet(1_000_000_000L);
+        upload(store, "key-1");
+
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void testExecute_LeastRecentlyUsedKeyIsDroppedBeyondMaxEntries() {
+        BatteryIdempotencyStore store = store(2, 1000);
+        upload(store, "key-1");
+        upload(store, "key-2");
+        upload(store, "key-1"); // key-2 is now the least recently used
+        upload(store, "key-3");
+
+        upload(store, "key-1");
+        assertEquals(3, runs.get());
+        upload(store, "key-2");
+        assertEquals(4, runs.get());
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void testExecute_RetryWhileInProgressIsConflict() {
+        BatteryIdempotencyStore store = store(10, 1000);
+        AtomicReference<ResponseEntity<?>> concurrent = new AtomicReference<>();
+
+        store.execute("key-1", () -> HASH, () -> {
+            concurrent.set(upload(store, "key-1"));
+            return ResponseEntity.ok(Map.of());
+        });
+
+        assertEquals(HttpStatus.CONFLICT, concurrent.get().getStatusCode());
+        assertEquals(0, runs.get());
+        assertEquals(1.0, count("conflict"));
+    }
+
+    @Test
+    void testExecute_FailedRequestReleasesKey() {
+        BatteryIdempotencyStore store = store(10, 1000);
+
+        assertThrows(IllegalStateException.class, () -> store.execute("key-1", () -> HASH, () -> {
+            throw new IllegalStateException("broker down");
+        }));
+        upload(store, "key-1");
+
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testExecute_UnsuccessfulResponseIsNotStored() {
+        BatteryIdempotencyStore store = store(10, 1000);
+        store.execute("key-1", () -> HASH,
+                () -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of()));
+
+        upload(store, "key-1");
+
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testExecute_RequestHashOnlyComputedWhenKeyIsUsed() {
+        BatteryIdempotencyStore disabled = new BatteryIdempotencyStore(meterRegistry, false, 10, 1000, 2, now::get);
+        Supplier<byte[]> unused = () -> fail("request hashed although the key is not used");
+
+        store(10, 1000).execute(null, unused, () -> ResponseEntity.ok(Map.of()));
+        disabled.execute("key-1", unused, () -> ResponseEntity.ok(Map.of()));
+    }
+
+    @Test
+    void testExecute_DisabledStoreAlwaysRuns() {
+        BatteryIdempotencyStore store = new BatteryIdempotencyStore(meterRegistry, false, 10, 1000, 2, now::get);
+
+        upload(store, "key-1");
+        upload(store, "key-1");
+
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void testExecute_SameKeyWithDifferentRequestIsUnprocessable() {
+        BatteryIdempotencyStore store = store(10, 1000);
+        upload(store, "key-1");
+        byte[] otherRequest = BatteryIdempotencyStore.requestHash(List.of(request("Battery2", "6000", 500)), false);
+
+        ResponseEntity<?> reused = store.execute("key-1", () -> otherRequest,
+                () -> fail("request ran for a reused key"));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, reused.getStatusCode());
+        assertEquals(1.0, count("mismatch"));
+        // The original request can still be retried
+        assertEquals(HttpStatus.OK, upload(store, "key-1").getStatusCode());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testRequestHash_CoversEntriesAndAsyncFlag() {
+        List<BatteryRequestDTO> requests = List.of(request("Battery1", "6000", 500));
+
+        assertArrayEquals(HASH, BatteryIdempotencyStore.requestHash(List.of(request("Battery1", "6000", 500)), false));
+        assertFalse(Arrays.equals(HASH, BatteryIdempotencyStore.requestHash(requests, true)));
+        assertFalse(Arrays.equals(HASH,
+                BatteryIdempotencyStore.requestHash(List.of(request("Battery1", "6000", 501)), false)));
+        assertFalse(Arrays.equals(HASH,
+                BatteryIdempotencyStore.requestHash(List.of(request("Battery1", "6000", null)), false)));
+        // Field boundaries are part of the hash
+        assertFalse(Arrays.equals(BatteryIdempotencyStore.requestHash(List.of(request("ab", "c", 1)), false),
+                BatteryIdempotencyStore.requestHash(List.of(request("a", "bc", 1)), false)));
+    }
+
+    @Test
+    void testExecute_LargeResponseIsReplayedAsCounts() {
+        BatteryIdempotencyStore store = store(10, 1000);
+        BatterySaveResponseDTO full = response(3);
+
+        ResponseEntity<?> first = store.execute("key-1", () -> HASH, () -> ResponseEntity.ok(full));
+        ResponseEntity<?> retry = store.execute("key-1", () -> HASH, () -> fail("request ran twice"));
+
+        assertSame(full, first.getBody());
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        Map<?, ?> summary = assertInstanceOf(Map.class, retry.getBody());
+        assertEquals(3, summary.get("savedBatteriesCount"));
+        assertEquals(0, summary.get("invalidEntriesCount"));
+        assertEquals(0, summary.get("duplicateEntriesCount"));
+    }
+
+    @Test
+    void testExecute_SmallResponseIsReplayedInFull() {
+        BatteryIdempotencyStore store = store(10, 1000);
+        BatterySaveResponseDTO full = response(2);
+
+        store.execute("key-1", () -> HASH, () -> ResponseEntity.ok(full));
+
+        assertSame(full, store.execute("key-1", () -> HASH, () -> fail("request ran twice")).getBody());
+    }
+
+    @Test
+    void testConstructor_RejectsNonPositiveLimits() {
+        assertThrows(IllegalArgumentException.class, () -> store(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> store(10, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BatteryIdempotencyStore(meterRegistry, true, 10, 1000, -1, now::get));
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.exception.TooManyIngestJobsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatteryIngestJobTrackerTest {
+
+    private final BatteryIngestJobTracker tracker = new BatteryIngestJobTracker(60_000);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void completeTransaction(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void testStatus_UnknownJobIsEmpty() {
+        assertTrue(tracker.status("missing").isEmpty());
+    }
+
+    @Test
+    void testStatus_ProgressesToCompletedOncePublishedBatteriesArePersisted() {
+        BatteryIngestJobTracker.Job job = tracker.start("job-1", 3);
+        job.validated();
+        job.validated();
+        job.invalid();
+        assertEquals(BatteryIngestJobTracker.State.VALIDATING, tracker.status("job-1").orElseThrow().get("state"));
+
+        job.publishing();
+        job.published(2);
+        assertEquals(BatteryIngestJobTracker.State.PERSISTING, tracker.status("job-1").orElseThrow().get("state"));
+
+        tracker.recordPersist("job-1", 2);
+        Map<String, Object> status = tracker.status("job-1").orElseThrow();
+
+        assertEquals(BatteryIngestJobTracker.State.COMPLETED, status.get("state"));
+        assertEquals(3, status.get("receivedCount"));
+        assertEquals(2L, status.get("validatedCount"));
+        assertEquals(1L, status.get("invalidCount"));
+        assertEquals(2L, status.get("publishedCount"));
+        assertEquals(2L, status.get("persistedCount"));
+        assertEquals(0L, status.get("failedCount"));
+    }
+
+    @Test
+    void testRecordPersist_CountedOnlyAfterCommit() {
+        tracker.start("job-1", 10).published(10);
+        TransactionSynchronizationManager.initSynchronization();
+
+        tracker.recordPersist("job-1", 4);
+        assertEquals(0L, tracker.status("job-1").orElseThrow().get("persistedCount"));
+
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(4L, tracker.status("job-1").orElseThrow().get("persistedCount"));
+    }
+
+    @Test
+    void testRecordPersist_RollbackCountedAsFailed() {
+        tracker.start("job-1", 10).published(10);
+        TransactionSynchronizationManager.initSynchronization();
+
+        tracker.recordPersist("job-1", 4);
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        Map<String, Object> status = tracker.status("job-1").orElseThrow();
+        assertEquals(0L, status.get("persistedCount"));
+        assertEquals(4L, status.get("failedCount"));
+        assertEquals(BatteryIngestJobTracker.State.PERSISTING, status.get("state"));
+    }
+
+    @Test
+    void testRecordPersist_UntrackedBatchIgnored() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        tracker.recordPersist("sync-upload", 4);
+        tracker.recordPersist(null, 4);
+
+        assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+    }
+
+    @Test
+    void testRecordPersist_ConcurrentConsumers() throws InterruptedException {
+        tracker.start("job-1", 80_000).published(80_000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 80; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    tracker.recordPersist("job-1", 1);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Map<String, Object> status = tracker.status("job-1").orElseThrow();
+        assertEquals(80_000L, status.get("persistedCount"));
+        assertEquals(BatteryIngestJobTracker.State.COMPLETED, status.get("state"));
+    }
+
+    @Test
+    void testFailedJobReportsError() {
+        BatteryIngestJobTracker.Job job = tracker.start("job-1", 2);
+        job.failed(0, 2, "Publishing to the message broker failed: connection refused");
+
+        Map<String, Object> status = tracker.status("job-1").orElseThrow();
+        assertEquals(BatteryIngestJobTracker.State.FAILED, status.get("state"));
+        assertEquals(2L, status.get("failedCount"));
+        assertEquals("Publishing to the message broker failed: connection refused", status.get("error"));
+    }
+
+    @Test
+    void testPartlyPublishedJobCompletesForThePublishedPart() {
+        BatteryIngestJobTracker.Job job = tracker.start("job-1", 5);
+        job.failed(3, 2, "Publishing to the message broker failed: connection refused");
+
+        assertEquals(BatteryIngestJobTracker.State.PERSISTING, tracker.status("job-1").orElseThrow().get("state"));
+        tracker.recordPersist("job-1", 3);
+
+        Map<String, Object> status = tracker.status("job-1").orElseThrow();
+        assertEquals(BatteryIngestJobTracker.State.COMPLETED, status.get("state"));
+        assertEquals(3L, status.get("publishedCount"));
+        assertEquals(2L, status.get("failedCount"));
+        assertEquals("Publishing to the message broker failed: connection refused", status.get("error"));
+    }
+
+    @Test
+    void testStart_RefusedBeyondMaxActiveJobsUntilOneFinishes() {
+        BatteryIngestJobTracker limited = new BatteryIngestJobTracker(60_000, 2);
+        BatteryIngestJobTracker.Job first = limited.start("job-1", 1);
+        limited.start("job-2", 1);
+
+        assertThrows(TooManyIngestJobsException.class, () -> limited.start("job-3", 1));
+        first.published(1);
+        first.published(0); // Finishing twice frees only one slot
+        limited.start("job-3", 1);
+        assertEquals(2, limited.activeJobs());
+        assertThrows(TooManyIngestJobsException.class, () -> limited.start("job-4", 1));
+    }
+
+    @Test
+    void testAbandon_ForgetsTheJobAndFreesItsSlot() {
+        BatteryIngestJobTracker limited = new BatteryIngestJobTracker(60_000, 1);
+        limited.start("job-1", 1);
+
+        limited.abandon("job-1");
+
+        assertTrue(limited.status("job-1").isEmpty());
+        assertEquals(0, limited.activeJobs());
+        limited.start("job-2", 1);
+    }
+
+    @Test
+    void testPurgeFinishedJobs_KeepsRunningAndRecentJobs() {
+        BatteryIngestJobTracker expiring = new BatteryIngestJobTracker(0);
+        expiring.start("running", 1);
+        expiring.start("finished", 1).published(1);
+
+        expiring.purgeFinishedJobs();
+
+        assertTrue(expiring.status("running").isPresent());
+        assertTrue(expiring.status("finished").isEmpty());
+        tracker.start("recent", 1).published(1);
+        tracker.purgeFinishedJobs();
+        assertEquals(1, tracker.size());
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.battery_api.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatteryIngestMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicLong nanos;
+    private AtomicLong millis;
+    private BatteryIngestMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        nanos = new AtomicLong();
+        millis = new AtomicLong(1_000_000);
+        metrics = new BatteryIngestMetrics(meterRegistry, nanos::get, millis::get);
+    }
+
+    private Timer stage(String endpoint, String stage) {
+        return meterRegistry.get("battery.ingest.stage").tags("endpoint", endpoint, "stage", stage).timer();
+    }
+
+    private DistributionSummary ratio(String endpoint, String result) {
+        return meterRegistry.get("battery.ingest.upload.ratio").tags("endpoint", endpoint, "result", result).summary();
+    }
+
+    @Test
+    void testUpload_SumsValidationAndMappingAndRecordsOncePerUpload() {
+        BatteryIngestMetrics.Upload upload = metrics.startUpload(BatteryIngestMetrics.UPLOAD);
+        for (int i = 0; i < 4; i++) {
+            long start = metrics.nanoTime();
+            nanos.addAndGet(1_000);
+            start = upload.validated(start, i != 3);
+            if (i != 3) {
+                nanos.addAndGet(500);
+                upload.mapped(start);
+            }
+        }
+        upload.duplicate();
+        upload.finish();
+
+        assertEquals(1, stage("upload", "validate").count());
+        assertEquals(4_000, stage("upload", "validate").totalTime(TimeUnit.NANOSECONDS));
+        assertEquals(1_500, stage("upload", "map").totalTime(TimeUnit.NANOSECONDS));
+        assertEquals(4.0, meterRegistry.get("battery.ingest.upload.size").tag("endpoint", "upload").summary().totalAmount());
+        assertEquals(50.0, ratio("upload", "valid").totalAmount());
+        assertEquals(25.0, ratio("upload", "invalid").totalAmount());
+        assertEquals(25.0, ratio("upload", "duplicate").totalAmount());
+    }
+
+    @Test
+    void testUpload_EmptyUploadRecordsNoRatio() {
+        metrics.startUpload(BatteryIngestMetrics.STREAM).finish();
+
+        assertEquals(1, meterRegistry.get("battery.ingest.upload.size").tag("endpoint", "stream").summary().count());
+        assertTrue(meterRegistry.find("battery.ingest.upload.ratio").tag("endpoint", "stream").meters().isEmpty());
+    }
+
+    @Test
+    void testMeters_OnlyRecordedPairsAreRegistered() {
+        assertTrue(meterRegistry.getMeters().isEmpty());
+
+        metrics.record(BatteryIngestMetrics.UPLOAD, BatteryIngestMetrics.Stage.PUBLISH, 0);
+
+        assertEquals(1, meterRegistry.find("battery.ingest.stage").meters().size());
+        assertEquals(1, stage("upload", "publish").count());
+    }
+
+    @Test
+    void testUpload_RejectedEntriesCountAsInvalid() {
+        BatteryIngestMetrics.Upload upload = metrics.startUpload(BatteryIngestMetrics.NDJSON);
+        upload.rejected();
+        upload.validated(metrics.nanoTime(), true);
+        upload.finish();
+
+        assertEquals(50.0, ratio("ndjson", "invalid").totalAmount());
+    }
+
+    @Test
+    void testStampAndRecordDelivery_MeasureQueueWait() {
+        MessageProperties properties = new MessageProperties();
+        metrics.stamp(properties, BatteryIngestMetrics.UPLOAD_ASYNC);
+        millis.addAndGet(250);
+
+        metrics.recordDelivery(properties.getHeader(BatteryIngestMetrics.ENDPOINT_HEADER),
+                properties.getHeader(BatteryIngestMetrics.PUBLISHED_AT_HEADER), 1000);
+
+        assertEquals(250, stage("upload-async", "queue-wait").totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1000.0, meterRegistry.get("battery.ingest.message.size").tag("endpoint", "upload-async")
+                .summary().totalAmount());
+    }
+
+    @Test
+    void testRecordDelivery_ClockSkewCountsAsZeroAndUnknownEndpointIsBounded() {
+        metrics.recordDelivery("something-else", millis.get() + 5_000, 1);
+        metrics.recordDelivery(null, null, 1);
+
+        assertEquals(1, stage("unknown", "queue-wait").count());
+        assertEquals(0, stage("unknown", "queue-wait").totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(2, meterRegistry.get("battery.ingest.message.size").tag("endpoint", "unknown").summary().count());
+        assertTrue(meterRegistry.find("battery.ingest.stage").tag("endpoint", "something-else").meters().isEmpty());
+    }
+
+    @Test
+    void testRecordConsumeOnCommit_WaitsForCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            nanos.set(100);
+            metrics.recordConsumeOnCommit(BatteryIngestMetrics.STREAM, 0, 40);
+            assertTrue(meterRegistry.find("battery.ingest.stage").tag("stage", "consume").meters().isEmpty());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            assertEquals(100, stage("stream", "consume").totalTime(TimeUnit.NANOSECONDS));
+            assertEquals(60, stage("stream", "persist").totalTime(TimeUnit.NANOSECONDS));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testCombine_TagsDifferentEndpointsAsMixed() {
+        assertEquals("upload", BatteryIngestMetrics.combine(null, "upload"));
+        assertEquals("upload", BatteryIngestMetrics.combine("upload", "upload"));
+        assertEquals("mixed", BatteryIngestMetrics.combine("upload", "stream"));
+        assertEquals("unknown", BatteryIngestMetrics.combine(null, null));
+    }
+}
@@ -2,6 +2,7 @@ package com.example.battery_api.service;
 
 import com.example.battery_api.dto.BatteryRequestDTO;
 import com.example.battery_api.dto.BatteryResponseDTO;
+import com.example.battery_api.dto.BatterySaveResponseDTO;
 import com.example.battery_api.model.Battery;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -128,4 +129,24 @@ class BatteryMapperTest {
         verify(mockBattery2, times(1)).getPostcode();
         verify(mockBattery2, times(1)).getWattCapacity();
     }
+
+    /**
+     * Test the toSavedBatteries method, which builds the POST /api/batteries response entries without an id.
+     */
+    @Test
+    void testToSavedBatteries_keepsOrderAndFields() {
+        Battery first = new Battery();
+        first.setName("Battery One");
+        first.setPostcode("6000");
+        first.setWattCapacity(100);
+        Battery second = new Battery();
+        second.setName("Battery Two");
+        second.setPostcode("0200");
+        second.setWattCapacity(200);
+
+        List<BatterySaveResponseDTO.SavedBattery> saved = batteryMapper.toSavedBatteries(List.of(first, second));
+
+        assertEquals(List.of(new BatterySaveResponseDTO.SavedBattery("Battery One", "6000", 100),
+                new BatterySaveResponseDTO.SavedBattery("Battery Two", "0200", 200)), saved);
+    }
 }
@@ -0,0 +1,103 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.model.Battery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatteryMessageChunkerTest {
+
+    private final SimpleMessageConverter converter = new SimpleMessageConverter();
+
+    @BeforeEach
+    void setUp() {
+        converter.setAllowedListPatterns(List.of("java.util.ArrayList", "com.example.battery_api.*"));
+    }
+
+    private static List<Battery> createBatteries(int count) {
+        List<Battery> batteries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Battery battery = new Battery();
+            battery.setName("Battery " + i);
+            battery.setPostcode(String.valueOf(1000 + i));
+            battery.setWattCapacity(100 + i);
+            batteries.add(battery);
+        }
+        return batteries;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Battery> payload(Message message) {
+        return (List<Battery>) converter.fromMessage(message);
+    }
+
+    @Test
+    void testChunk_splitsByRecordCount() {
+        BatteryMessageChunker chunker = new BatteryMessageChunker(converter, 4, Integer.MAX_VALUE);
+        List<Message> messages = new ArrayList<>();
+
+        int chunks = chunker.chunk(createBatteries(10), "batch-1", messages::add);
+
+        assertEquals(3, chunks);
+        assertEquals(List.of(4, 4, 2), messages.stream().map(message -> payload(message).size()).toList());
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            assertEquals("batch-1", message.getMessageProperties().getHeader(BatteryMessageChunker.BATCH_ID_HEADER));
+            assertEquals(i, (int) message.getMessageProperties().getHeader(BatteryMessageChunker.CHUNK_INDEX_HEADER));
+            assertEquals(payload(message).size(),
+                    (int) message.getMessageProperties().getHeader(BatteryMessageChunker.RECORD_COUNT_HEADER));
+            assertEquals("batch-1", message.getMessageProperties().getCorrelationId());
+        }
+        assertEquals("Battery 8", payload(messages.get(2)).get(0).getName());
+    }
+
+    @Test
+    void testChunk_splitsOversizedChunksByEncodedSize() {
+        List<Battery> batteries = createBatteries(16);
+        int singleMessageSize = converter.toMessage(new ArrayList<>(batteries), null).getBody().length;
+        BatteryMessageChunker chunker = new BatteryMessageChunker(converter, 1000, singleMessageSize / 3);
+        List<Message> messages = new ArrayList<>();
+
+        int chunks = chunker.chunk(batteries, "batch-2", messages::add);
+
+        assertTrue(chunks > 1);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            assertTrue(messages.get(i).getBody().length <= singleMessageSize / 3);
+            assertEquals(i, (int) messages.get(i).getMessageProperties().getHeader(BatteryMessageChunker.CHUNK_INDEX_HEADER));
+            payload(messages.get(i)).forEach(battery -> names.add(battery.getName()));
+        }
+        assertEquals(batteries.stream().map(Battery::getName).toList(), names);
+    }
+
+    @Test
+    void testChunk_singleOversizedBatteryIsStillSent() {
+        BatteryMessageChunker chunker = new BatteryMessageChunker(converter, 1000, 1);
+        List<Message> messages = new ArrayList<>();
+
+        int chunks = chunker.chunk(createBatteries(3), "batch-3", messages::add);
+
+        assertEquals(3, chunks);
+        messages.forEach(message -> assertEquals(1, payload(message).size()));
+    }
+
+    @Test
+    void testChunk_emptyListProducesNoMessages() {
+        BatteryMessageChunker chunker = new BatteryMessageChunker(converter, 10, 1024);
+        List<Message> messages = new ArrayList<>();
+
+        assertEquals(0, chunker.chunk(List.of(), "batch-4", messages::add));
+        assertTrue(messages.isEmpty());
+    }
+
+    @Test
+    void testConstructor_rejectsNonPositiveRecordLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new BatteryMessageChunker(converter, 0, 1024));
+    }
+}
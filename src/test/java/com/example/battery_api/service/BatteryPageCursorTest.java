@@ -0,0 +1,34 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatteryPageCursorTest {
+
+    @Test
+    void testEncodeDecode_RoundTrip() {
+        BatteryPageCursor cursor = new BatteryPageCursor("PowerCell: A1 / Ümlaut", 4711L);
+
+        String token = cursor.encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), "Token should be URL safe: " + token);
+        assertEquals(cursor, BatteryPageCursor.decode(token));
+    }
+
+    @Test
+    void testEncodeDecode_EmptyName() {
+        BatteryPageCursor cursor = new BatteryPageCursor("", 1L);
+
+        assertEquals(cursor, BatteryPageCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void testDecode_InvalidTokens() {
+        assertThrows(InvalidCursorException.class, () -> BatteryPageCursor.decode("not base64!"));
+        // Valid Base64 without the id separator, and with a non-numeric id
+        assertThrows(InvalidCursorException.class, () -> BatteryPageCursor.decode("UG93ZXJDZWxs"));
+        assertThrows(InvalidCursorException.class, () -> BatteryPageCursor.decode("YWJjOlBvd2VyQ2VsbA"));
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.model.Battery;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.event.TransactionalApplicationListenerMethodAdapter;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatteryRangeCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicLong now;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        now = new AtomicLong();
+        loads = new AtomicInteger();
+    }
+
+    private BatteryRangeCache cache(int maxEntries, long ttlMillis) {
+        return new BatteryRangeCache(meterRegistry, true, maxEntries, ttlMillis, 1000, now::get);
+    }
+
+    private static BatteryRangeCache.Key key(int startPostcode, int endPostcode) {
+        return new BatteryRangeCache.Key(startPostcode, endPostcode, 1, 1000, true);
+    }
+
+    private Map<String, Object> load(BatteryRangeCache cache, BatteryRangeCache.Key key) {
+        return cache.get(key, () -> Map.of("totalBatteries", (long) loads.incrementAndGet()));
+    }
+
+    private static BatteriesPersistedEvent persisted(String... postcodes) {
+        return new BatteriesPersistedEvent(Arrays.stream(postcodes).map(postcode -> {
+            Battery battery = new Battery();
+            battery.setName("Battery " + postcode);
+            battery.setPostcode(postcode);
+            battery.setWattCapacity(100);
+            return battery;
+        }).toList());
+    }
+
+    private double count(String name, String tag, String value) {
+        return meterRegistry.get(name).tag(tag, value).counter().count();
+    }
+
+    @Test
+    void testGet_SecondRequestIsHit() {
+        BatteryRangeCache cache = cache(10, 1000);
+
+        load(cache, key(1000, 2000));
+        load(cache, key(1000, 2000));
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, count("battery.range.cache.requests", "result", "hit"));
+        assertEquals(1.0, count("battery.range.cache.requests", "result", "miss"));
+        assertEquals(1.0, meterRegistry.get("battery.range.cache.size").gauge().value());
+    }
+
+    @Test
+    void testGet_IncludeNamesIsPartOfKey() {
+        BatteryRangeCache cache = cache(10, 1000);
+
+        load(cache, new BatteryRangeCache.Key(1000, 2000, 1, 1000, true));
+        load(cache, new BatteryRangeCache.Key(1000, 2000, 1, 1000, false));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testGet_EntryExpiresAfterTtl() {
+        BatteryRangeCache cache = cache(10, 1000);
+        load(cache, key(1000, 2000));
+
+        now.addAndGet(999_000_000L);
+        load(cache, key(1000, 2000));
+        now.addAndGet(2_000_000L);
+        load(cache, key(1000, 2000));
+
+        assertEquals(2, loads.get());
+        assertEquals(1.0, count("battery.range.cache.evictions", "cause", "expired"));
+    }
+
+    @Test
+    void testGet_LeastRecentlyUsedEvictedAtMaxEntries() {
+        BatteryRangeCache cache = cache(2, 1000);
+        load(cache, key(1000, 1100));
+        load(cache, key(2000, 2100));
+        load(cache, key(1000, 1100)); // Touch, so 2000-2100 becomes the eldest
+
+        load(cache, key(3000, 3100));
+
+        assertEquals(2, cache.size());
+        assertEquals(1.0, count("battery.range.cache.evictions", "cause", "size"));
+        load(cache, key(1000, 1100));
+        assertEquals(3, loads.get());
+        load(cache, key(2000, 2100));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void testOnBatteriesPersisted_InvalidatesOnlyOverlappingRanges() {
+        BatteryRangeCache cache = cache(10, 1000);
+        load(cache, key(1000, 1100));
+        load(cache, key(1100, 1200));
+        load(cache, key(2000, 2100));
+        load(cache, key(5000, 6000));
+
+        cache.onBatteriesPersisted(persisted("1100", "4999", "6001"));
+
+        assertEquals(2, cache.size());
+        assertEquals(2.0, count("battery.range.cache.evictions", "cause", "invalidated"));
+        load(cache, key(2000, 2100));
+        load(cache, key(5000, 6000));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void testGet_SummaryLoadedDuringInvalidationIsNotStored() {
+        BatteryRangeCache cache = cache(10, 1000);
+
+        Map<String, Object> stale = cache.get(key(1000, 2000), () -> {
+            // A save commits while the summary is being read
+            cache.onBatteriesPersisted(persisted("9000"));
+            return Map.of("totalBatteries", 1L);
+        });
+
+        assertEquals(1L, stale.get("totalBatteries"));
+        assertEquals(0, cache.size());
+    }
+
+    private Map<String, Object> loadNames(BatteryRangeCache cache, BatteryRangeCache.Key key, int names) {
+        return cache.get(key, () -> {
+            loads.incrementAndGet();
+            return Map.of("batteries", Collections.nCopies(names, "Battery"), "totalBatteries", (long) names);
+        });
+    }
+
+    @Test
+    void testGet_EvictsLeastRecentlyUsedBeyondNameLimit() {
+        BatteryRangeCache cache = new BatteryRangeCache(meterRegistry, true, 10, 1000, 100, now::get);
+
+        loadNames(cache, key(1000, 2000), 60);
+        loadNames(cache, key(3000, 4000), 30);
+        loadNames(cache, key(1000, 2000), 60); // Hit; the 3000-4000 entry is now the eldest
+        loadNames(cache, key(5000, 6000), 30);
+
+        assertEquals(2, cache.size());
+        assertEquals(90, cache.names());
+        assertEquals(1, count("battery.range.cache.evictions", "cause", "names"));
+        loadNames(cache, key(3000, 4000), 30);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void testGet_SummaryListingMoreNamesThanTheLimitIsNotStored() {
+        BatteryRangeCache cache = new BatteryRangeCache(meterRegistry, true, 10, 1000, 100, now::get);
+        loadNames(cache, key(3000, 4000), 30);
+
+        loadNames(cache, key(1000, 2000), 101);
+        loadNames(cache, key(1000, 2000), 101);
+
+        assertEquals(1, cache.size());
+        assertEquals(30, cache.names());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testOnBatteriesPersisted_ReleasesNamesOfInvalidatedEntries() {
+        BatteryRangeCache cache = new BatteryRangeCache(meterRegistry, true, 10, 1000, 100, now::get);
+        loadNames(cache, key(1000, 2000), 60);
+        loadNames(cache, key(3000, 4000), 30);
+
+        cache.onBatteriesPersisted(persisted("1500"));
+
+        assertEquals(30, cache.names());
+    }
+
+    @Test
+    void testOnBatteriesPersisted_RunsAfterRangeIndexUpdate() throws NoSuchMethodException {
+        // Otherwise a miss between the two listeners could store totals computed from the index before the save
+        Method index = BatteryRangeIndexService.class.getMethod("onBatteriesPersisted", BatteriesPersistedEvent.class);
+        Method cache = BatteryRangeCache.class.getMethod("onBatteriesPersisted", BatteriesPersistedEvent.class);
+
+        assertTrue(new TransactionalApplicationListenerMethodAdapter("index", BatteryRangeIndexService.class, index).getOrder()
+                < new TransactionalApplicationListenerMethodAdapter("cache", BatteryRangeCache.class, cache).getOrder());
+    }
+
+    @Test
+    void testGet_DisabledCacheAlwaysLoads() {
+        BatteryRangeCache cache = new BatteryRangeCache(meterRegistry, false, 10, 1000, 1000, now::get);
+
+        load(cache, key(1000, 2000));
+        load(cache, key(1000, 2000));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testKeyOverlaps() {
+        int[] postcodes = {200, 1500, 9999};
+
+        assertTrue(key(200, 200).overlaps(postcodes));
+        assertTrue(key(1400, 1600).overlaps(postcodes));
+        assertTrue(key(9000, 9999).overlaps(postcodes));
+        assertFalse(key(201, 1499).overlaps(postcodes));
+        assertFalse(key(1501, 9998).overlaps(postcodes));
+    }
+}
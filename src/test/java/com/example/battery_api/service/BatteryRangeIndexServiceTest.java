@@ -0,0 +1,144 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.model.Battery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BatteryRangeIndexServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private BatteryRangeIndexService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        service = new BatteryRangeIndexService(jdbcTemplate, transactionManager, true);
+    }
+
+    private static Battery createBattery(long id, String postcode, int wattCapacity) {
+        Battery battery = new Battery();
+        battery.setId(id);
+        battery.setName("Battery " + id);
+        battery.setPostcode(postcode);
+        battery.setWattCapacity(wattCapacity);
+        return battery;
+    }
+
+    // Stubs the cell count query with rows of (postcode, capacity, count)
+    private void cellCounts(int[]... rows) {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int[] row : rows) {
+                ResultSet resultSet = mock(ResultSet.class);
+                when(resultSet.getInt(1)).thenReturn(row[0]);
+                when(resultSet.getInt(2)).thenReturn(row[1]);
+                when(resultSet.getInt(3)).thenReturn(row[2]);
+                handler.processRow(resultSet);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void testQuery_EmptyUntilRebuilt() {
+        assertEquals(Optional.empty(), service.query(200, 9999, 1, 1000));
+    }
+
+    @Test
+    void testRebuild_LoadsCellCounts() {
+        cellCounts(new int[]{2000, 100, 3}, new int[]{3000, 200, 1});
+
+        service.rebuild();
+
+        assertEquals(Optional.of(new BatteryRangeIndex.Totals(4, 500)), service.query(200, 9999, 1, 1000));
+        assertEquals(Optional.of(new BatteryRangeIndex.Totals(3, 300)), service.query(2000, 2000, 100, 100));
+    }
+
+    @Test
+    void testOnBatteriesPersisted_UpdatesIndexAfterRebuild() {
+        cellCounts();
+        service.rebuild();
+
+        service.onBatteriesPersisted(new BatteriesPersistedEvent(List.of(
+                createBattery(1, "0200", 10), createBattery(2, "0300", 20))));
+
+        assertEquals(Optional.of(new BatteryRangeIndex.Totals(2, 30)), service.query(200, 300, 1, 1000));
+    }
+
+    @Test
+    void testReconcile_PicksUpBatteriesSavedByOtherInstances() {
+        cellCounts(new int[]{2000, 100, 3});
+        service.rebuild();
+
+        // Another instance committed a battery; no event reaches this one
+        cellCounts(new int[]{2000, 100, 4});
+        service.reconcile();
+
+        assertEquals(Optional.of(new BatteryRangeIndex.Totals(4, 400)), service.query(2000, 2000, 100, 100));
+    }
+
+    @Test
+    void testReconcile_DisabledIndexIsNotBuilt() {
+        BatteryRangeIndexService disabled = new BatteryRangeIndexService(jdbcTemplate,
+                mock(PlatformTransactionManager.class), false);
+
+        disabled.reconcile();
+
+        assertEquals(Optional.empty(), disabled.query(200, 9999, 1, 1000));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testRebuild_BatteriesCommittedDuringRebuildAreCountedOnce() {
+        // Battery 1 commits while the snapshot is read and is visible to it; battery 2 commits too late to be seen
+        doAnswer(invocation -> {
+            service.onBatteriesPersisted(new BatteriesPersistedEvent(List.of(
+                    createBattery(1, "2000", 100), createBattery(2, "2000", 50))));
+            RowCallbackHandler handler = invocation.getArgument(1);
+            ResultSet resultSet = mock(ResultSet.class);
+            when(resultSet.getInt(1)).thenReturn(2000);
+            when(resultSet.getInt(2)).thenReturn(100);
+            when(resultSet.getInt(3)).thenReturn(1);
+            handler.processRow(resultSet);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq("{1,2}"))).thenReturn(List.of(1L));
+
+        service.rebuild();
+
+        assertEquals(Optional.of(new BatteryRangeIndex.Totals(2, 150)), service.query(2000, 2000, 1, 1000));
+    }
+
+    @Test
+    void testRebuild_OutOfDomainRowsDisableIndex() {
+        cellCounts(new int[]{2000, 100, 3}, new int[]{2000, 5000, 1});
+
+        service.rebuild();
+
+        assertEquals(Optional.empty(), service.query(200, 9999, 1, 1000));
+    }
+
+    @Test
+    void testOnBatteriesPersisted_OutOfDomainBatteryDisablesIndex() {
+        cellCounts();
+        service.rebuild();
+
+        service.onBatteriesPersisted(new BatteriesPersistedEvent(List.of(createBattery(1, "0100", 10))));
+
+        assertEquals(Optional.empty(), service.query(200, 9999, 1, 1000));
+    }
+}
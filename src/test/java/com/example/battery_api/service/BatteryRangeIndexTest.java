@@ -0,0 +1,95 @@
+package com.example.battery_api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatteryRangeIndexTest {
+
+    private static final int BATTERIES = 20_000;
+
+    private static int[][] randomBatteries(Random random) {
+        int[][] batteries = new int[BATTERIES][];
+        for (int i = 0; i < BATTERIES; i++) {
+            batteries[i] = new int[]{200 + random.nextInt(9800), 1 + random.nextInt(1000)};
+        }
+        return batteries;
+    }
+
+    private static long[] bruteForce(int[][] batteries, int startPostcode, int endPostcode, int minCapacity, int maxCapacity) {
+        long count = 0;
+        long sum = 0;
+        for (int[] battery : batteries) {
+            if (battery[0] >= startPostcode && battery[0] <= endPostcode && battery[1] >= minCapacity && battery[1] <= maxCapacity) {
+                count++;
+                sum += battery[1];
+            }
+        }
+        return new long[]{count, sum};
+    }
+
+    private static void assertMatchesBruteForce(BatteryRangeIndex index, int[][] batteries, Random random) {
+        for (int q = 0; q < 300; q++) {
+            int p1 = 200 + random.nextInt(9800);
+            int p2 = p1 + random.nextInt(10000 - p1);
+            int c1 = 1 + random.nextInt(1000);
+            int c2 = c1 + random.nextInt(1001 - c1);
+            long[] expected = bruteForce(batteries, p1, p2, c1, c2);
+
+            BatteryRangeIndex.Totals totals = index.query(p1, p2, c1, c2);
+
+            assertEquals(expected[0], totals.count(), "count for " + p1 + "-" + p2 + ", " + c1 + "-" + c2);
+            assertEquals(expected[1], totals.sum(), "sum for " + p1 + "-" + p2 + ", " + c1 + "-" + c2);
+        }
+    }
+
+    @Test
+    void testIncrementalUpdates_MatchBruteForce() {
+        Random random = new Random(7);
+        int[][] batteries = randomBatteries(random);
+        BatteryRangeIndex index = new BatteryRangeIndex();
+        for (int[] battery : batteries) {
+            index.add(battery[0], battery[1], 1);
+        }
+
+        assertMatchesBruteForce(index, batteries, random);
+    }
+
+    @Test
+    void testLoad_MatchesIncrementalUpdates() {
+        Random random = new Random(11);
+        int[][] batteries = randomBatteries(random);
+        int[] cellCounts = BatteryRangeIndex.newCellCounts();
+        for (int[] battery : batteries) {
+            cellCounts[BatteryRangeIndex.cell(battery[0], battery[1])]++;
+        }
+        BatteryRangeIndex index = new BatteryRangeIndex();
+        index.load(cellCounts);
+
+        assertMatchesBruteForce(index, batteries, random);
+    }
+
+    @Test
+    void testQuery_FullDomainCornersAndClamping() {
+        BatteryRangeIndex index = new BatteryRangeIndex();
+        index.add(200, 1, 1);
+        index.add(9999, 1000, 2);
+
+        assertEquals(new BatteryRangeIndex.Totals(3, 2001), index.query(Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(new BatteryRangeIndex.Totals(1, 1), index.query(200, 200, 1, 1));
+        assertEquals(new BatteryRangeIndex.Totals(0, 0), index.query(300, 200, 1, 1000));
+        assertEquals(667.0, index.query(0, 10000, 0, 2000).average());
+        assertEquals(0.0, index.query(300, 9000, 1, 1000).average());
+    }
+
+    @Test
+    void testAdd_RejectsOutOfDomain() {
+        BatteryRangeIndex index = new BatteryRangeIndex();
+
+        assertThrows(IllegalArgumentException.class, () -> index.add(199, 10, 1));
+        assertThrows(IllegalArgumentException.class, () -> index.add(2000, 1001, 1));
+        assertThrows(IllegalArgumentException.class, () -> index.add(2000, 0, 1));
+    }
+}
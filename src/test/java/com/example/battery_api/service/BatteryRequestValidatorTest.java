@@ -0,0 +1,89 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.dto.BatteryRequestDTO;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BatteryRequestValidatorTest {
+
+    private Validator beanValidator;
+    private BatteryRequestValidator batteryRequestValidator;
+
+    @BeforeEach
+    void setUp() {
+        beanValidator = spy(Validation.buildDefaultValidatorFactory().getValidator());
+        batteryRequestValidator = new BatteryRequestValidator(beanValidator);
+    }
+
+    /**
+     * Groups violations the way the full Bean Validation engine reports them, for comparison.
+     */
+    private Map<String, List<String>> fullEngineErrors(BatteryRequestDTO requestDTO) {
+        return Validation.buildDefaultValidatorFactory().getValidator().validate(requestDTO).stream()
+                .collect(Collectors.groupingBy(
+                        violation -> violation.getPropertyPath().toString(),
+                        Collectors.mapping(violation -> violation.getMessage(), Collectors.toList())
+                ));
+    }
+
+    @Test
+    void testValidate_validRequest_skipsBeanValidation() {
+        Map<String, List<String>> errors = batteryRequestValidator.validate(new BatteryRequestDTO("PowerSurge_1001", "3451", 760));
+
+        assertTrue(errors.isEmpty());
+        verify(beanValidator, never()).validate(any());
+    }
+
+    @Test
+    void testValidate_boundaryValuesAreValid() {
+        assertTrue(batteryRequestValidator.validate(new BatteryRequestDTO("A", "0200", 1)).isEmpty());
+        assertTrue(batteryRequestValidator.validate(new BatteryRequestDTO("B", "9999", 1000)).isEmpty());
+        assertTrue(batteryRequestValidator.validate(new BatteryRequestDTO("C", "1000", 500)).isEmpty());
+        verify(beanValidator, never()).validate(any());
+    }
+
+    @Test
+    void testValidate_invalidRequests_matchFullEngine() {
+        List<BatteryRequestDTO> invalidRequests = List.of(
+                new BatteryRequestDTO("", "4222", 678),
+                new BatteryRequestDTO("   ", "4222", 678),
+                new BatteryRequestDTO(null, null, null),
+                new BatteryRequestDTO("VoltMaster Z", "", 50),
+                new BatteryRequestDTO("VoltMaster Z", "0199", 50),
+                new BatteryRequestDTO("VoltMaster Z", "0020", 50),
+                new BatteryRequestDTO("VoltMaster Z", "12345", 50),
+                new BatteryRequestDTO("VoltMaster Z", "12a4", 50),
+                new BatteryRequestDTO("VoltMaster Z", "1234", 0),
+                new BatteryRequestDTO("VoltMaster Z", "1234", 1001),
+                new BatteryRequestDTO("VoltMaster Z", "1234", null)
+        );
+
+        for (BatteryRequestDTO requestDTO : invalidRequests) {
+            Map<String, List<String>> errors = batteryRequestValidator.validate(requestDTO);
+
+            assertFalse(errors.isEmpty(), "Expected errors for " + requestDTO);
+            assertEquals(sorted(fullEngineErrors(requestDTO)), sorted(errors), "Errors differ for " + requestDTO);
+        }
+        verify(beanValidator, times(invalidRequests.size())).validate(any());
+    }
+
+    @Test
+    void testIsValid_nullRequest() {
+        assertFalse(BatteryRequestValidator.isValid(null));
+    }
+
+    private static Map<String, List<String>> sorted(Map<String, List<String>> errors) {
+        return errors.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().stream().sorted().toList()));
+    }
+}
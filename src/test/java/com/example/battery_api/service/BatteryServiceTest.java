@@ -2,18 +2,35 @@ package com.example.battery_api.service;
 
 import com.example.battery_api.dto.BatteryRequestDTO;
 import com.example.battery_api.model.Battery;
+import com.example.battery_api.exception.BatteryPublishException;
+import com.example.battery_api.exception.InvalidCursorException;
+import com.example.battery_api.repository.BatteryChunkLedger;
+import com.example.battery_api.repository.BatteryCopyLoader;
+import com.example.battery_api.repository.BatteryNameKey;
+import com.example.battery_api.repository.BatteryRangeStatistics;
 import com.example.battery_api.repository.BatteryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.ArrayList;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,12 +46,48 @@ class BatteryServiceTest {
     @Mock
     private EntityManager entityManager;
 
+    @Mock
+    private BatteryCopyLoader batteryCopyLoader;
+
+    @Mock
+    private BatteryMessageChunker batteryMessageChunker;
+
+    @Mock
+    private BatteryRangeIndexService batteryRangeIndexService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private BatteryChunkLedger batteryChunkLedger;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private BatteryIngestJobTracker jobTracker = new BatteryIngestJobTracker(60_000);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private BatteryIngestMetrics ingestMetrics = new BatteryIngestMetrics(meterRegistry);
+
+    @Spy
+    private BatteryRangeCache batteryRangeCache = new BatteryRangeCache(new SimpleMeterRegistry(), true, 100, 60_000, 10_000);
+
     @InjectMocks
     private BatteryService batteryService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this); // Initialize mocks
+        when(batteryChunkLedger.claim(anyString(), anyInt())).thenReturn(true); // Every chunk is a first delivery
+    }
+
+    private static Message chunkMessage(int records) {
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader(BatteryMessageChunker.RECORD_COUNT_HEADER, records);
+        return new Message(new byte[]{(byte) records}, properties);
     }
 
     private static Battery createBattery(String name, String postcode, int wattCapacity) {
@@ -91,6 +144,196 @@ class BatteryServiceTest {
         verify(batteryRepository, times(1)).findByPostcodeBetween(startPostcode, endPostcode);
     }
 
+    private static BatteryRangeStatistics statistics(long count, long total, double average) {
+        BatteryRangeStatistics statistics = mock(BatteryRangeStatistics.class);
+        when(statistics.getTotalBatteries()).thenReturn(count);
+        when(statistics.getTotalCapacity()).thenReturn(total);
+        when(statistics.getAverageCapacity()).thenReturn(average);
+        return statistics;
+    }
+
+    @Test
+    void testGetBatteryRangeSummary_UsesDatabaseAggregates() {
+        BatteryRangeStatistics statistics = statistics(3, 600, 200.0);
+        when(batteryRepository.findStatisticsByPostcodeAndCapacityRange("9000", "9940", 150, 250)).thenReturn(statistics);
+        when(batteryRepository.findNamesByPostcodeAndCapacityRange("9000", "9940", 150, 250))
+                .thenReturn(List.of("PowerCell A1", "PowerCell B", "TurboCharge A"));
+
+        Map<String, Object> summary = batteryService.getBatteryRangeSummary("9000", "9940", 150, 250, true);
+
+        assertEquals(List.of("PowerCell A1", "PowerCell B", "TurboCharge A"), summary.get("batteries"));
+        assertEquals(600L, summary.get("totalCapacity"));
+        assertEquals(200.0, summary.get("averageCapacity"));
+        assertEquals(3L, summary.get("totalBatteries"));
+        verify(batteryRepository, never()).findByPostcodeBetweenAndWattCapacityBetween(anyString(), anyString(), anyInt(), anyInt());
+        // Totals and names are read from one read-only snapshot
+        verify(transactionManager).getTransaction(argThat(definition -> definition.isReadOnly()
+                && definition.getIsolationLevel() == TransactionDefinition.ISOLATION_REPEATABLE_READ));
+    }
+
+    @Test
+    void testGetBatteryRangeSummary_WithoutNames_ReadOnlyTransaction() {
+        BatteryRangeStatistics statistics = statistics(3, 600, 200.0);
+        when(batteryRepository.findStatisticsByPostcodeAndCapacityRange("9000", "9940", 150, 250)).thenReturn(statistics);
+
+        batteryService.getBatteryRangeSummary("9000", "9940", 150, 250, false);
+
+        verify(transactionManager).getTransaction(argThat(definition -> definition.isReadOnly()
+                && definition.getIsolationLevel() == TransactionDefinition.ISOLATION_DEFAULT));
+    }
+
+    @Test
+    void testGetBatteryRangeSummary_NoMatches_ReturnsEmptyNames() {
+        BatteryRangeStatistics statistics = statistics(0, 0, 0.0);
+        when(batteryRepository.findStatisticsByPostcodeAndCapacityRange("1000", "2000", Integer.MIN_VALUE, Integer.MAX_VALUE))
+                .thenReturn(statistics);
+        when(batteryRepository.findNamesByPostcodeAndCapacityRange("1000", "2000", Integer.MIN_VALUE, Integer.MAX_VALUE))
+                .thenReturn(List.of());
+
+        Map<String, Object> summary = batteryService.getBatteryRangeSummary("1000", "2000", null, null, true);
+
+        assertEquals(List.of(), summary.get("batteries"));
+        assertEquals(0.0, summary.get("averageCapacity"));
+    }
+
+    @Test
+    void testGetBatteryRangeSummary_WithNames_TotalsFromSnapshotNotIndex() {
+        BatteryRangeStatistics statistics = statistics(3, 600, 200.0);
+        when(batteryRepository.findStatisticsByPostcodeAndCapacityRange("9000", "9940", 150, 250)).thenReturn(statistics);
+        when(batteryRepository.findNamesByPostcodeAndCapacityRange("9000", "9940", 150, 250))
+                .thenReturn(List.of("PowerCell A1", "PowerCell B", "TurboCharge A"));
+
+        Map<String, Object> summary = batteryService.getBatteryRangeSummary("9000", "9940", 150, 250, true);
+
+        assertEquals(3L, summary.get("totalBatteries"));
+        assertEquals(600L, summary.get("totalCapacity"));
+        assertEquals(3, ((List<?>) summary.get("batteries")).size());
+        // The index may lag saves on other instances, so it never decides totals returned next to names
+        verifyNoInteractions(batteryRangeIndexService);
+    }
+
+    @Test
+    void testGetBatteryRangeSummary_AnsweredByRangeIndex() {
+        when(batteryRangeIndexService.query(9000, 9940, 150, 250))
+                .thenReturn(Optional.of(new BatteryRangeIndex.Totals(3, 600)));
+
+        Map<String, Object> summary = batteryService.getBatteryRangeSummary("9000", "9940", 150, 250, false);
+
+        assertEquals(3L, summary.get("totalBatteries"));
+        assertEquals(600L, summary.get("totalCapacity"));
+        assertEquals(200.0, summary.get("averageCapacity"));
+        verify(batteryRepository, never()).findStatisticsByPostcodeAndCapacityRange(anyString(), anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testGetBatteryRangeSummary_WithoutNames_NeverQueriesNames() {
+        when(batteryRangeIndexService.query(9000, 9940, 150, 250))
+                .thenReturn(Optional.of(new BatteryRangeIndex.Totals(3, 600)));
+
+        Map<String, Object> summary = batteryService.getBatteryRangeSummary("9000", "9940", 150, 250, false);
+
+        assertFalse(summary.containsKey("batteries"));
+        assertEquals(3L, summary.get("totalBatteries"));
+        verifyNoInteractions(batteryRepository);
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void testGetBatteryRangeSummary_RepeatedRangeServedFromCache() {
+        when(batteryRangeIndexService.query(9000, 9940, 150, 250))
+                .thenReturn(Optional.of(new BatteryRangeIndex.Totals(3, 600)));
+
+        Map<String, Object> first = batteryService.getBatteryRangeSummary("9000", "9940", 150, 250, false);
+        Map<String, Object> second = batteryService.getBatteryRangeSummary("9000", "9940", 150, 250, false);
+
+        assertSame(first, second);
+        verify(batteryRangeIndexService, times(1)).query(9000, 9940, 150, 250);
+    }
+
+    @Test
+    void testGetBatteryRangeSummary_RecomputedAfterOverlappingSave() {
+        when(batteryRangeIndexService.query(9000, 9940, 150, 250))
+                .thenReturn(Optional.of(new BatteryRangeIndex.Totals(3, 600)))
+                .thenReturn(Optional.of(new BatteryRangeIndex.Totals(4, 800)));
+        batteryService.getBatteryRangeSummary("9000", "9940", 150, 250, false);
+
+        batteryRangeCache.onBatteriesPersisted(new BatteriesPersistedEvent(List.of(createBattery("PowerCell Z", "9500", 200))));
+        Map<String, Object> summary = batteryService.getBatteryRangeSummary("9000", "9940", 150, 250, false);
+
+        assertEquals(4L, summary.get("totalBatteries"));
+    }
+
+    private static BatteryNameKey nameKey(String name, long id) {
+        BatteryNameKey key = mock(BatteryNameKey.class);
+        when(key.getName()).thenReturn(name);
+        when(key.getId()).thenReturn(id);
+        return key;
+    }
+
+    @Test
+    void testGetBatteryRangePage_FirstPageWithNextCursor() {
+        when(batteryRangeIndexService.query(9000, 9940, 150, 250))
+                .thenReturn(Optional.of(new BatteryRangeIndex.Totals(3, 600)));
+        List<BatteryNameKey> rows = List.of(nameKey("PowerCell A1", 7), nameKey("PowerCell B", 3), nameKey("TurboCharge A", 5));
+        when(batteryRepository.findFirstNamePageByPostcodeAndCapacityRange("9000", "9940", 150, 250, 3)).thenReturn(rows);
+
+        Map<String, Object> page = batteryService.getBatteryRangePage("9000", "9940", 150, 250, 2, null);
+
+        assertEquals(List.of("PowerCell A1", "PowerCell B"), page.get("batteries"));
+        assertEquals(new BatteryPageCursor("PowerCell B", 3), BatteryPageCursor.decode((String) page.get("nextCursor")));
+        assertEquals(3L, page.get("totalBatteries"));
+        assertEquals(600L, page.get("totalCapacity"));
+        verify(batteryRepository, never()).findNamesByPostcodeAndCapacityRange(anyString(), anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testGetBatteryRangePage_LastPageSeeksAfterCursor() {
+        when(batteryRangeIndexService.query(9000, 9940, 150, 250))
+                .thenReturn(Optional.of(new BatteryRangeIndex.Totals(3, 600)));
+        List<BatteryNameKey> rows = List.of(nameKey("TurboCharge A", 5));
+        when(batteryRepository.findNamePageAfterByPostcodeAndCapacityRange("9000", "9940", 150, 250, "PowerCell B", 3L, 3))
+                .thenReturn(rows);
+
+        Map<String, Object> page = batteryService.getBatteryRangePage("9000", "9940", 150, 250, 2,
+                new BatteryPageCursor("PowerCell B", 3).encode());
+
+        assertEquals(List.of("TurboCharge A"), page.get("batteries"));
+        assertTrue(page.containsKey("nextCursor"));
+        assertNull(page.get("nextCursor"));
+    }
+
+    @Test
+    void testGetBatteryRangePage_StaleEmptyTotalsDoNotHideNames() {
+        // The index has not seen batteries saved by another instance yet
+        when(batteryRangeIndexService.query(1000, 2000, Integer.MIN_VALUE, Integer.MAX_VALUE))
+                .thenReturn(Optional.of(new BatteryRangeIndex.Totals(0, 0)));
+        List<BatteryNameKey> rows = List.of(nameKey("PowerCell A1", 7));
+        when(batteryRepository.findFirstNamePageByPostcodeAndCapacityRange("1000", "2000", Integer.MIN_VALUE,
+                Integer.MAX_VALUE, 101)).thenReturn(rows);
+
+        Map<String, Object> page = batteryService.getBatteryRangePage("1000", "2000", null, null, 100, null);
+
+        assertEquals(List.of("PowerCell A1"), page.get("batteries"));
+        assertNull(page.get("nextCursor"));
+    }
+
+    @Test
+    void testGetBatteryRangePage_InvalidCursorRejectedBeforeQuerying() {
+        assertThrows(InvalidCursorException.class,
+                () -> batteryService.getBatteryRangePage("9000", "9940", 150, 250, 2, "not-a-cursor"));
+        verifyNoInteractions(batteryRepository, batteryRangeIndexService);
+    }
+
+    @Test
+    void testSaveBatteries_PublishesPersistedEvent() {
+        Battery battery = createBattery("PowerCell A1", "2000", 100);
+        when(batteryRepository.save(battery)).thenReturn(battery);
+
+        batteryService.saveBatteries(List.of(battery));
+
+        verify(eventPublisher).publishEvent(new BatteriesPersistedEvent(List.of(battery)));
+    }
+
     @Test
     void testSaveBatteriesWithEmptyList() {
         // Prepare an empty list of batteries
@@ -193,6 +436,25 @@ class BatteryServiceTest {
     }
 
 
+    @Test
+    void testSaveBatteries_AboveCopyThreshold_UsesCopyLoader() {
+        List<Battery> batteries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batteries.add(createBattery("Battery " + i, "100" + i, 100 + i));
+        }
+
+        when(batteryCopyLoader.shouldHandle(batteries.size())).thenReturn(true);
+        when(batteryCopyLoader.copy(batteries)).thenReturn(batteries);
+
+        List<Battery> result = batteryService.saveBatteries(batteries);
+
+        assertEquals(batteries, result);
+        verify(batteryCopyLoader, times(1)).copy(batteries);
+        verify(batteryRepository, never()).save(any(Battery.class));
+        verify(entityManager, never()).flush();
+    }
+
+
     @Test
     void testPublishValidBatteries() {
         // Arrange: Create a list of batteries
@@ -200,12 +462,75 @@ class BatteryServiceTest {
         for (int i = 0; i < 10; i++) { // 105 batteries (2 flush/clear calls)
             batteries.add(createBattery("Battery " + i, "100" + i, 100 + i));
         }
+        Message first = chunkMessage(6);
+        Message second = chunkMessage(4);
+        when(batteryMessageChunker.chunk(eq(batteries), eq("batch-1"), any())).thenAnswer(invocation -> {
+            Consumer<Message> sink = invocation.getArgument(2);
+            sink.accept(first);
+            sink.accept(second);
+            return 2;
+        });
 
         // Act: Call the method
-        batteryService.publishValidBatteries(batteries);
+        String batchId = batteryService.publishValidBatteries(batteries, "batch-1");
 
-        // Assert: Verify RabbitTemplate was called with the correct arguments
-        verify(rabbitTemplate, times(1)).convertAndSend("batteryQueue", batteries);
+        // Assert: Verify every chunk produced by the chunker was sent to the queue
+        assertEquals("batch-1", batchId);
+        verify(rabbitTemplate, times(1)).send("batteryQueue", first);
+        verify(rabbitTemplate, times(1)).send("batteryQueue", second);
+    }
+
+    @Test
+    void testPublishValidBatteries_StampsEndpointAndPublishTime() {
+        List<Battery> batteries = List.of(createBattery("Battery1", "1001", 100));
+        Message message = chunkMessage(1);
+        when(batteryMessageChunker.chunk(eq(batteries), eq("batch-1"), any())).thenAnswer(invocation -> {
+            Consumer<Message> sink = invocation.getArgument(2);
+            sink.accept(message);
+            return 1;
+        });
+
+        batteryService.publishValidBatteries(batteries, "batch-1", BatteryIngestMetrics.STREAM);
+
+        assertEquals(BatteryIngestMetrics.STREAM, message.getMessageProperties().getHeader(BatteryIngestMetrics.ENDPOINT_HEADER));
+        assertNotNull(message.getMessageProperties().getHeader(BatteryIngestMetrics.PUBLISHED_AT_HEADER));
+        assertEquals(1, meterRegistry.get("battery.ingest.stage")
+                .tags("endpoint", "stream", "stage", "publish").timer().count());
+    }
+
+    @Test
+    void testPublishValidBatteries_BrokerFailureReportsPublishedCount() {
+        List<Battery> batteries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batteries.add(createBattery("Battery " + i, "100" + i, 100 + i));
+        }
+        Message first = chunkMessage(6);
+        Message second = chunkMessage(4);
+        when(batteryMessageChunker.chunk(eq(batteries), eq("batch-1"), any())).thenAnswer(invocation -> {
+            Consumer<Message> sink = invocation.getArgument(2);
+            sink.accept(first);
+            sink.accept(second);
+            return 2;
+        });
+        doThrow(new AmqpConnectException(new java.net.ConnectException("refused")))
+                .when(rabbitTemplate).send("batteryQueue", second);
+
+        BatteryPublishException ex = assertThrows(BatteryPublishException.class,
+                () -> batteryService.publishValidBatteries(batteries, "batch-1"));
+
+        // Only the first chunk reached the broker
+        assertEquals(6, ex.getPublishedCount());
+        assertInstanceOf(AmqpConnectException.class, ex.getCause());
+    }
+
+    @Test
+    void testPublishValidBatteries_GeneratesBatchId() {
+        List<Battery> batteries = List.of(createBattery("Battery1", "1001", 100));
+
+        String batchId = batteryService.publishValidBatteries(batteries);
+
+        assertNotNull(batchId);
+        verify(batteryMessageChunker, times(1)).chunk(eq(batteries), eq(batchId), any());
     }
 
     @Test
@@ -216,8 +541,9 @@ class BatteryServiceTest {
         // Act: Call the method
         batteryService.publishValidBatteries(validBatteries);
 
-        // Assert: Verify RabbitTemplate was called with an empty list
-        verify(rabbitTemplate, times(1)).convertAndSend("batteryQueue", validBatteries);
+        // Assert: An empty list produces no chunks, so nothing is sent
+        verify(batteryMessageChunker, times(1)).chunk(eq(validBatteries), anyString(), any());
+        verify(rabbitTemplate, never()).send(anyString(), any(Message.class));
     }
 
 
@@ -232,8 +558,8 @@ class BatteryServiceTest {
     @Test
     void testProcessBatteries_ValidList() {
 
-        // Arrange: Create a mock BatteryService
-        BatteryService batteryServiceSpy = spy(new BatteryService(mock(BatteryRepository.class), mock(RabbitTemplate.class), mock(EntityManager.class)));
+        // Arrange: Spy on the service under test
+        BatteryService batteryServiceSpy = spy(batteryService);
 
         // Arrange: Create a list of batteries
         List<Battery> batteries = new ArrayList<>();
@@ -245,7 +571,7 @@ class BatteryServiceTest {
         doReturn(batteries).when(batteryServiceSpy).saveBatteries(batteries);
 
         // Act: Call processBatteries
-        batteryServiceSpy.processBatteries(batteries);
+        batteryServiceSpy.processBatteries(batteries, "batch-1", 0, null, null);
 
         // Assert: Verify saveBatteries was called
         verify(batteryServiceSpy, times(1)).saveBatteries(batteries);
@@ -253,18 +579,145 @@ class BatteryServiceTest {
 
     @Test
     void testProcessBatteries_NullBatteries_ThrowsException() {
-        // Arrange: Create a mock BatteryService
-        BatteryService batteryServiceSpy = spy(new BatteryService(
-                mock(BatteryRepository.class),
-                mock(RabbitTemplate.class),
-                mock(EntityManager.class))
-        );
+        // Arrange: Spy on the service under test
+        BatteryService batteryServiceSpy = spy(batteryService);
 
         // Act & Assert: Calling processBatteries(null) should throw NullPointerException
-        Assertions.assertThrows(NullPointerException.class, () -> batteryServiceSpy.processBatteries(null));
+        Assertions.assertThrows(NullPointerException.class, () -> batteryServiceSpy.processBatteries(null, null, null, null, null));
+    }
+
+    @Test
+    void testProcessBatteryBatches_SavesAllDeliveriesInOneCall() {
+        BatteryService batteryServiceSpy = spy(batteryService);
+        List<org.springframework.messaging.Message<List<Battery>>> deliveries = new ArrayList<>();
+        List<Battery> expected = new ArrayList<>();
+        for (int m = 0; m < 10; m++) {
+            List<Battery> batteries = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                batteries.add(createBattery("Battery " + m + "-" + i, "2000", 100 + i));
+            }
+            expected.addAll(batteries);
+            deliveries.add(MessageBuilder.withPayload(batteries).build());
+        }
+        doReturn(expected).when(batteryServiceSpy).saveBatteries(anyList());
+
+        batteryServiceSpy.processBatteryBatches(deliveries);
+
+        verify(batteryServiceSpy, times(1)).saveBatteries(expected);
+    }
+
+    @Test
+    void testProcessBatteryBatches_NullPayload_ThrowsException() {
+        org.springframework.messaging.Message<List<Battery>> delivery = mock(org.springframework.messaging.Message.class);
+
+        Assertions.assertThrows(NullPointerException.class, () -> batteryService.processBatteryBatches(List.of(delivery)));
+        verifyNoInteractions(batteryRepository, batteryCopyLoader);
+    }
+
+    @Test
+    void testProcessBatteries_RecordsPersistedCountForTrackedJob() {
+        BatteryService batteryServiceSpy = spy(batteryService);
+        List<Battery> batteries = List.of(createBattery("PowerCell A1", "2000", 100), createBattery("PowerCell B", "2000", 200));
+        doReturn(batteries).when(batteryServiceSpy).saveBatteries(batteries);
+        jobTracker.start("job-1", 2).published(2);
+
+        batteryServiceSpy.processBatteries(batteries, "job-1", 0, null, null);
+
+        Map<String, Object> status = jobTracker.status("job-1").orElseThrow();
+        assertEquals(2L, status.get("persistedCount"));
+        assertEquals(BatteryIngestJobTracker.State.COMPLETED, status.get("state"));
     }
 
+    @Test
+    void testProcessBatteryBatches_RecordsPersistedCountPerDeliveryBatch() {
+        BatteryService batteryServiceSpy = spy(batteryService);
+        doAnswer(invocation -> invocation.getArgument(0)).when(batteryServiceSpy).saveBatteries(anyList());
+        jobTracker.start("job-1", 3).published(3);
+        List<org.springframework.messaging.Message<List<Battery>>> deliveries = List.of(
+                MessageBuilder.withPayload(List.of(createBattery("A", "2000", 100), createBattery("B", "2000", 100)))
+                        .setHeader(BatteryMessageChunker.BATCH_ID_HEADER, "job-1").build(),
+                MessageBuilder.withPayload(List.of(createBattery("C", "2000", 100)))
+                        .setHeader(BatteryMessageChunker.BATCH_ID_HEADER, "other-batch").build());
+
+        batteryServiceSpy.processBatteryBatches(deliveries);
+
+        assertEquals(2L, jobTracker.status("job-1").orElseThrow().get("persistedCount"));
+    }
 
+    @Test
+    void testProcessBatteries_SkipsChunkAlreadyCommitted() {
+        BatteryService batteryServiceSpy = spy(batteryService);
+        List<Battery> batteries = List.of(createBattery("PowerCell A1", "2000", 100));
+        when(batteryChunkLedger.claim("batch-1", 3)).thenReturn(false);
+        jobTracker.start("batch-1", 1).published(1);
+
+        batteryServiceSpy.processBatteries(batteries, "batch-1", 3, null, null);
+
+        verify(batteryServiceSpy, never()).saveBatteries(anyList());
+        assertEquals(0L, jobTracker.status("batch-1").orElseThrow().get("persistedCount"));
+    }
 
-    // Test methods go here
+    @Test
+    void testProcessBatteries_WithoutBatchHeadersIsNotCheckedAgainstLedger() {
+        BatteryService batteryServiceSpy = spy(batteryService);
+        List<Battery> batteries = List.of(createBattery("PowerCell A1", "2000", 100));
+        doReturn(batteries).when(batteryServiceSpy).saveBatteries(batteries);
+
+        batteryServiceSpy.processBatteries(batteries, null, null, null, null);
+
+        verify(batteryServiceSpy).saveBatteries(batteries);
+        verifyNoInteractions(batteryChunkLedger);
+    }
+
+    @Test
+    void testProcessBatteryBatches_SkipsDeliveriesOfCommittedChunks() {
+        BatteryService batteryServiceSpy = spy(batteryService);
+        doAnswer(invocation -> invocation.getArgument(0)).when(batteryServiceSpy).saveBatteries(anyList());
+        when(batteryChunkLedger.claim("batch-1", 0)).thenReturn(false);
+        Battery fresh = createBattery("B", "2000", 100);
+        List<org.springframework.messaging.Message<List<Battery>>> deliveries = List.of(
+                MessageBuilder.withPayload(List.of(createBattery("A", "2000", 100)))
+                        .setHeader(BatteryMessageChunker.BATCH_ID_HEADER, "batch-1")
+                        .setHeader(BatteryMessageChunker.CHUNK_INDEX_HEADER, 0).build(),
+                MessageBuilder.withPayload(List.of(fresh))
+                        .setHeader(BatteryMessageChunker.BATCH_ID_HEADER, "batch-1")
+                        .setHeader(BatteryMessageChunker.CHUNK_INDEX_HEADER, 1).build());
+
+        batteryServiceSpy.processBatteryBatches(deliveries);
+
+        verify(batteryServiceSpy).saveBatteries(List.of(fresh));
+    }
+
+    @Test
+    void testProcessBatteries_RecordsQueueWaitAndStageTimesForEndpoint() {
+        BatteryService batteryServiceSpy = spy(batteryService);
+        List<Battery> batteries = List.of(createBattery("A", "2000", 100), createBattery("B", "2000", 100));
+        doReturn(batteries).when(batteryServiceSpy).saveBatteries(batteries);
+
+        batteryServiceSpy.processBatteries(batteries, "batch-1", 0, BatteryIngestMetrics.NDJSON,
+                System.currentTimeMillis() - 50);
+
+        assertTrue(meterRegistry.get("battery.ingest.stage").tags("endpoint", "ndjson", "stage", "queue-wait").timer()
+                .totalTime(TimeUnit.MILLISECONDS) >= 50);
+        assertEquals(1, meterRegistry.get("battery.ingest.stage").tags("endpoint", "ndjson", "stage", "consume").timer().count());
+        assertEquals(1, meterRegistry.get("battery.ingest.stage").tags("endpoint", "ndjson", "stage", "persist").timer().count());
+        assertEquals(2.0, meterRegistry.get("battery.ingest.message.size").tag("endpoint", "ndjson").summary().totalAmount());
+    }
+
+    @Test
+    void testProcessBatteryBatches_TagsDeliveriesFromSeveralEndpointsAsMixed() {
+        BatteryService batteryServiceSpy = spy(batteryService);
+        doAnswer(invocation -> invocation.getArgument(0)).when(batteryServiceSpy).saveBatteries(anyList());
+        List<org.springframework.messaging.Message<List<Battery>>> deliveries = List.of(
+                MessageBuilder.withPayload(List.of(createBattery("A", "2000", 100)))
+                        .setHeader(BatteryIngestMetrics.ENDPOINT_HEADER, BatteryIngestMetrics.UPLOAD).build(),
+                MessageBuilder.withPayload(List.of(createBattery("B", "2000", 100)))
+                        .setHeader(BatteryIngestMetrics.ENDPOINT_HEADER, BatteryIngestMetrics.STREAM).build());
+
+        batteryServiceSpy.processBatteryBatches(deliveries);
+
+        assertEquals(1, meterRegistry.get("battery.ingest.message.size").tag("endpoint", "upload").summary().count());
+        assertEquals(1, meterRegistry.get("battery.ingest.message.size").tag("endpoint", "stream").summary().count());
+        assertEquals(1, meterRegistry.get("battery.ingest.stage").tags("endpoint", "mixed", "stage", "persist").timer().count());
+    }
 }
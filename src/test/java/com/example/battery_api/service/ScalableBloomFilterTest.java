@@ -0,0 +1,79 @@
+package com.example.battery_api.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScalableBloomFilterTest {
+
+    @Test
+    void testMightContain_NoFalseNegatives() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.add("Battery " + i);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("Battery " + i), "Battery " + i);
+        }
+        assertEquals(1, filter.layerCount());
+    }
+
+    @Test
+    void testMightContain_EmptyFilterContainsNothing() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+
+        assertFalse(filter.mightContain("Battery 1"));
+        assertEquals(0, filter.size());
+    }
+
+    @Test
+    void testAdd_GrowsBeyondInitialCapacityWithoutFalseNegatives() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("Battery " + i);
+        }
+
+        assertTrue(filter.layerCount() > 1);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("Battery " + i), "Battery " + i);
+        }
+    }
+
+    @Test
+    void testMightContain_FalsePositiveRateStaysNearTargetAfterGrowth() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+        for (int i = 0; i < 50_000; i++) {
+            filter.add("Battery " + i);
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("Other " + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < probes * 0.015, "False positives: " + falsePositives);
+    }
+
+    @Test
+    void testAdd_ReAddingKeysDoesNotGrowFilter() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 100; i++) {
+                filter.add("Battery " + i);
+            }
+        }
+
+        assertEquals(1, filter.layerCount());
+        assertTrue(filter.size() <= 100);
+    }
+
+    @Test
+    void testConstructor_RejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(100, 1));
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.battery_api.service;
+
+import com.example.battery_api.exception.BatteryPublishException;
+import com.example.battery_api.model.Battery;
+import com.example.battery_api.repository.BatteryRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class StreamingBatteryIngestorTest {
+
+    private BatteryService batteryService;
+    private ObjectMapper objectMapper;
+    private BatteryRequestValidator validator;
+    private StreamingBatteryIngestor ingestor;
+    private List<Integer> publishedChunkSizes;
+
+    @BeforeEach
+    void setUp() {
+        batteryService = mock(BatteryService.class);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        validator = new BatteryRequestValidator(Validation.buildDefaultValidatorFactory().getValidator());
+        ingestor = new StreamingBatteryIngestor(validator, new BatteryMapper(), batteryService,
+                duplicateFilter(false), new BatteryIngestMetrics(new SimpleMeterRegistry()), objectMapper, 2, 200);
+
+        // Record chunk sizes at call time; the ingestor hands each chunk over and starts a new one
+        publishedChunkSizes = new ArrayList<>();
+        doAnswer(invocation -> {
+            publishedChunkSizes.add(((List<?>) invocation.getArgument(0)).size());
+            return "batch";
+        }).when(batteryService).publishValidBatteries(anyList(), anyString(), anyString());
+    }
+
+    private static BatteryDuplicateFilter duplicateFilter(boolean enabled) {
+        return new BatteryDuplicateFilter(mock(BatteryRepository.class), mock(JdbcTemplate.class),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), enabled, 1000, 0.01);
+    }
+
+    private JsonNode ingestLines(String body) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ingestor.ingestJsonLines(new MockHttpInputMessage(body.getBytes(StandardCharsets.UTF_8)), output);
+        return objectMapper.readTree(output.toByteArray());
+    }
+
+    private JsonNode ingest(String body) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ingestor.ingestJsonArray(new MockHttpInputMessage(body.getBytes(StandardCharsets.UTF_8)), output);
+        return objectMapper.readTree(output.toByteArray());
+    }
+
+    @Test
+    void testIngestJsonArray_publishesValidBatteriesInChunks() throws Exception {
+        JsonNode response = ingest("""
+                [
+                  {"name": "PowerSurge_1001", "postcode": "3451", "wattCapacity": 760},
+                  {"name": "", "postcode": "4222", "wattCapacity": 678},
+                  {"name": "EnergyBlast_404", "postcode": "6012", "wattCapacity": 875},
+                  {"name": "ChargePulse_328", "postcode": "7723", "wattCapacity": 250},
+                  null,
+                  {"name": "ThunderGrid_920", "postcode": "4952", "wattCapacity": "lots"}
+                ]
+                """);
+
+        assertEquals(3, response.get("savedBatteriesCount").asInt());
+        assertEquals(3, response.get("invalidEntriesCount").asInt());
+        assertFalse(response.has("error"));
+        assertEquals(List.of(2, 1), publishedChunkSizes);
+
+        List<Integer> savedIndexes = new ArrayList<>();
+        List<Integer> invalidIndexes = new ArrayList<>();
+        for (JsonNode entry : response.get("entries")) {
+            if ("saved".equals(entry.get("status").asText())) {
+                savedIndexes.add(entry.get("index").asInt());
+            } else {
+                invalidIndexes.add(entry.get("index").asInt());
+                assertFalse(entry.get("errors").isEmpty());
+            }
+        }
+        assertEquals(List.of(0, 2, 3), savedIndexes);
+        assertEquals(List.of(1, 4, 5), invalidIndexes);
+    }
+
+    @Test
+    void testIngestJsonArray_reportsSavedBatteryFields() throws Exception {
+        JsonNode response = ingest("[{\"name\": \"PowerCell A1\", \"postcode\": \"9002\", \"wattCapacity\": 100}]");
+
+        JsonNode battery = response.get("entries").get(0).get("battery");
+        assertEquals("PowerCell A1", battery.get("name").asText());
+        assertEquals("9002", battery.get("postcode").asText());
+        assertEquals(100, battery.get("wattCapacity").asInt());
+
+        ArgumentCaptor<List<Battery>> captor = ArgumentCaptor.forClass(List.class);
+        verify(batteryService, times(1)).publishValidBatteries(captor.capture(), anyString(), eq(BatteryIngestMetrics.STREAM));
+        assertEquals("PowerCell A1", captor.getValue().get(0).getName());
+    }
+
+    @Test
+    void testIngestJsonArray_emptyArray() throws Exception {
+        JsonNode response = ingest("[]");
+
+        assertEquals(0, response.get("savedBatteriesCount").asInt());
+        assertTrue(response.get("entries").isEmpty());
+        verify(batteryService, never()).publishValidBatteries(anyList(), anyString(), anyString());
+    }
+
+    @Test
+    void testIngestJsonArray_truncatedInput_reportsProcessedEntriesAndError() throws Exception {
+        JsonNode response = ingest("[{\"name\": \"A\", \"postcode\": \"1234\", \"wattCapacity\": 10}, {\"name\": ");
+
+        assertEquals(1, response.get("savedBatteriesCount").asInt());
+        assertTrue(response.get("error").asText().startsWith("Malformed JSON at element 1"));
+        verify(batteryService, times(1)).publishValidBatteries(anyList(), anyString(), anyString());
+    }
+
+    @Test
+    void testIngestJsonArray_brokerFailure_reportsUnpublishedBatteriesAndStops() throws Exception {
+        doAnswer(invocation -> {
+            publishedChunkSizes.add(((List<?>) invocation.getArgument(0)).size());
+            return "batch";
+        }).doThrow(new BatteryPublishException(1, new AmqpConnectException(new java.net.ConnectException("refused"))))
+                .when(batteryService).publishValidBatteries(anyList(), anyString(), anyString());
+
+        JsonNode response = ingest("""
+                [
+                  {"name": "A", "postcode": "1234", "wattCapacity": 10},
+                  {"name": "B", "postcode": "1234", "wattCapacity": 10},
+                  {"name": "C", "postcode": "1234", "wattCapacity": 10},
+                  {"name": "D", "postcode": "1234", "wattCapacity": 10},
+                  {"name": "E", "postcode": "1234", "wattCapacity": 10}
+                ]
+                """);
+
+        assertEquals(3, response.get("savedBatteriesCount").asInt());
+        assertEquals(1, response.get("unpublishedBatteriesCount").asInt());
+        assertTrue(response.get("error").asText().startsWith("Publishing to the message broker failed"));
+        JsonNode entries = response.get("entries");
+        assertEquals(4, entries.size());
+        assertEquals("saved", entries.get(2).get("status").asText());
+        assertEquals(3, entries.get(3).get("index").asInt());
+        assertEquals("unpublished", entries.get(3).get("status").asText());
+        verify(batteryService, times(2)).publishValidBatteries(anyList(), anyString(), anyString());
+    }
+
+    @Test
+    void testIngestJsonArray_notAnArray_throws() {
+        assertThrows(HttpMessageNotReadableException.class, () -> ingest("{\"name\": \"A\"}"));
+        verify(batteryService, never()).publishValidBatteries(anyList(), anyString(), anyString());
+    }
+
+    @Test
+    void testIngestJsonLines_reportsLineIndicesAndKeepsGoingAfterMalformedLine() throws Exception {
+        JsonNode response = ingestLines("""
+                {"name": "PowerSurge_1001", "postcode": "3451", "wattCapacity": 760}
+                {"name": "TurboCharge X", "postcode": "12", "wattCapacity": 200}
+                {"name": "VoltMaster Z",
+
+                {"name": "EnergyBlast_404", "postcode": "6012", "wattCapacity": 875}
+                {"name": "ChargePulse_328", "postcode": "7723", "wattCapacity": 250}
+                """);
+
+        assertEquals(3, response.get("savedBatteriesCount").asInt());
+        assertEquals(2, response.get("invalidEntriesCount").asInt());
+        assertEquals(List.of(2, 1), publishedChunkSizes);
+
+        List<Integer> savedIndexes = new ArrayList<>();
+        for (JsonNode entry : response.get("entries")) {
+            int index = entry.get("index").asInt();
+            if ("saved".equals(entry.get("status").asText())) {
+                savedIndexes.add(index);
+            } else if (index == 1) {
+                assertTrue(entry.get("errors").has("postcode"));
+            } else {
+                assertEquals(2, index);
+                assertTrue(entry.get("errors").has("line"));
+                assertEquals("{\"name\": \"VoltMaster Z\",", entry.get("data").asText());
+            }
+        }
+        assertEquals(List.of(0, 4, 5), savedIndexes);
+    }
+
+    @Test
+    void testIngestJsonLines_rejectsTrailingTokensAndOverlongLines() throws Exception {
+        String overlong = "{\"name\": \"" + "X".repeat(300) + "\", \"postcode\": \"3451\", \"wattCapacity\": 760}";
+        JsonNode response = ingestLines("{\"name\": \"PowerSurge_1001\", \"postcode\": \"3451\", \"wattCapacity\": 760} {}\n"
+                + overlong + "\r\n"
+                + "{\"name\": \"EnergyBlast_404\", \"postcode\": \"6012\", \"wattCapacity\": 875}\r\n");
+
+        assertEquals(1, response.get("savedBatteriesCount").asInt());
+        assertEquals(2, response.get("invalidEntriesCount").asInt());
+        for (JsonNode entry : response.get("entries")) {
+            int index = entry.get("index").asInt();
+            if (index == 2) {
+                assertEquals("saved", entry.get("status").asText());
+                assertEquals("EnergyBlast_404", entry.get("battery").get("name").asText());
+            } else {
+                assertEquals("invalid", entry.get("status").asText());
+                assertTrue(entry.get("errors").has("line"));
+            }
+        }
+        assertTrue(response.get("entries").get(1).get("errors").get("line").get(0).asText().contains("200"));
+    }
+
+    @Test
+    void testIngestJsonLines_emptyBody() throws Exception {
+        JsonNode response = ingestLines("");
+
+        assertEquals(0, response.get("savedBatteriesCount").asInt());
+        assertEquals(0, response.get("invalidEntriesCount").asInt());
+        verify(batteryService, never()).publishValidBatteries(anyList(), anyString(), anyString());
+    }
+
+    @Test
+    void testIngestJsonLines_ReportsRepeatedBatteryAsDuplicate() throws Exception {
+        ingestor = new StreamingBatteryIngestor(validator, new BatteryMapper(), batteryService,
+                duplicateFilter(true), new BatteryIngestMetrics(new SimpleMeterRegistry()), objectMapper, 10, 200);
+
+        JsonNode response = ingestLines("""
+                {"name": "PowerCell A1", "postcode": "9002", "wattCapacity": 100}
+                {"name": "PowerCell A1", "postcode": "9002", "wattCapacity": 100}
+                {"name": "PowerCell A1", "postcode": "9002", "wattCapacity": 200}
+                """);
+
+        assertEquals(2, response.get("savedBatteriesCount").asInt());
+        assertEquals(1, response.get("duplicateEntriesCount").asInt());
+        JsonNode duplicate = response.get("entries").get(0);
+        assertEquals(1, duplicate.get("index").asInt());
+        assertEquals("duplicate", duplicate.get("status").asText());
+        assertEquals(List.of(2), publishedChunkSizes);
+    }
+}